@@ -10,29 +10,146 @@ import java.util.List;
 /**
  * The {@code DistanceCalculator} class provides functionality
  * to filter notes based on their proximity to a given location.
+ * Notes are first checked against the bounding box of the radius,
+ * and only the remaining notes are checked with the exact great-circle distance.
  *
  * @author gxstxxv
  * @version 1.0
  */
 public class DistanceCalculator {
 
-    private static final double OFFSET = 0.0004;
+    public static final double DEFAULT_RADIUS_METERS = 60;
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private final double radiusMeters;
+    private final double angularRadius;
+    private final double latitudeDelta;
+    private final double maxHaversine;
+    private long distanceEvaluations;
+
+    /**
+     * Constructs a new {@code DistanceCalculator} with the default radius.
+     */
+    public DistanceCalculator() {
+        this(DEFAULT_RADIUS_METERS);
+    }
+
+    /**
+     * Constructs a new {@code DistanceCalculator} with the given radius.
+     *
+     * @param radiusMeters the radius in meters within which notes are considered nearby
+     */
+    public DistanceCalculator(double radiusMeters) {
+        this.radiusMeters = radiusMeters;
+        this.angularRadius = radiusMeters / EARTH_RADIUS_METERS;
+        this.latitudeDelta = Math.toDegrees(angularRadius);
+        double halfChord = Math.sin(angularRadius / 2);
+        this.maxHaversine = halfChord * halfChord;
+    }
+
+    /**
+     * Returns the radius within which notes are considered nearby.
+     *
+     * @return the radius in meters
+     */
+    public double getRadiusMeters() {
+        return radiusMeters;
+    }
+
+    /**
+     * Returns the half height of the bounding box of the radius.
+     *
+     * @return the latitude difference in degrees
+     */
+    public double getLatitudeDelta() {
+        return latitudeDelta;
+    }
+
+    /**
+     * Returns the half width of the bounding box of the radius around the given latitude.
+     * The width grows towards the poles; close to a pole every longitude is covered.
+     *
+     * @param latitude the latitude of the center of the radius
+     * @return the longitude difference in degrees, at most 180
+     */
+    public double getLongitudeDelta(double latitude) {
+        return longitudeDelta(Math.cos(Math.toRadians(latitude)));
+    }
+
+    /**
+     * Returns how many exact distance checks have been performed so far.
+     *
+     * @return the number of great-circle distance evaluations
+     */
+    public long getDistanceEvaluations() {
+        return distanceEvaluations;
+    }
 
     /**
-     * Filters and returns a list of notes that are within a specific
-     * offset distance from the provided location.
+     * Filters and returns a list of notes that are within the radius
+     * of the provided location.
      *
      * @param location the reference location from which distances are measured
      * @param notes    the list of notes to be evaluated
-     * @return a list of notes that are within the specified offset distance from the given location
+     * @return a list of notes that are within the radius of the given location
      */
     public List<Note> getNotesInRadius(Location location, List<Note> notes) {
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        double longitudeDelta = longitudeDelta(cosLatitude);
+
         List<Note> notesInRadius = new ArrayList<>();
         for (Note note : notes) {
-            if ((Math.abs(note.getLongitude() - location.getLongitude()) <= OFFSET) || (Math.abs(note.getLatitude() - location.getLatitude()) <= OFFSET))
+            if (Math.abs(note.getLatitude() - latitude) > latitudeDelta) continue;
+            if (longitudeDifference(note.getLongitude(), longitude) > longitudeDelta) continue;
+            if (isWithinRadius(latitude, longitude, cosLatitude, note))
                 notesInRadius.add(note);
         }
         return notesInRadius;
     }
 
+    /**
+     * Checks the exact great-circle distance between the reference location and a note by
+     * comparing the haversine of their central angle with the haversine of the radius.
+     *
+     * @param latitude    the latitude of the reference location
+     * @param longitude   the longitude of the reference location
+     * @param cosLatitude the cosine of the latitude of the reference location
+     * @param note        the note to be checked
+     * @return {@code true} if the note is within the radius
+     */
+    boolean isWithinRadius(double latitude, double longitude, double cosLatitude, Note note) {
+        distanceEvaluations++;
+        double sinHalfLatitude = Math.sin(Math.toRadians(note.getLatitude() - latitude) / 2);
+        double sinHalfLongitude = Math.sin(Math.toRadians(note.getLongitude() - longitude) / 2);
+        double haversine = sinHalfLatitude * sinHalfLatitude
+                + cosLatitude * Math.cos(Math.toRadians(note.getLatitude())) * sinHalfLongitude * sinHalfLongitude;
+        return haversine <= maxHaversine;
+    }
+
+    /**
+     * Returns the half width of the bounding box for a center with the given latitude cosine.
+     *
+     * @param cosLatitude the cosine of the latitude of the center
+     * @return the longitude difference in degrees, at most 180
+     */
+    private double longitudeDelta(double cosLatitude) {
+        double sinRadius = Math.sin(angularRadius);
+        if (sinRadius >= cosLatitude) return 180;
+        return Math.toDegrees(Math.asin(sinRadius / cosLatitude));
+    }
+
+    /**
+     * Returns the absolute difference between two longitudes, taking the antimeridian into account.
+     *
+     * @param a the first longitude
+     * @param b the second longitude
+     * @return the difference in degrees, between 0 and 180
+     */
+    private static double longitudeDifference(double a, double b) {
+        double difference = Math.abs(a - b);
+        return difference > 180 ? 360 - difference : difference;
+    }
+
 }
@@ -0,0 +1,503 @@
+package com.example.comvi.core;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@code DtwRecognizer} class recognizes gestures by matching the accelerometer stream
+ * against recorded {@link Template templates} with dynamic time warping (DTW), as a
+ * complement to the threshold rules of the {@link GestureDetector}.
+ * On every sample, the most recent samples are compared with each template of the same
+ * length. The distance of two samples is their squared Euclidean distance over all three
+ * axes, and the distance of a match is the DTW distance divided by the template length,
+ * so that templates of different lengths are comparable.
+ * Warping is limited to a Sakoe-Chiba band around the diagonal. Most comparisons are
+ * pruned before any DTW is computed: the LB_Keogh lower bound against an envelope of the
+ * template, precomputed over the band, is summed with early abandoning, and the DTW itself
+ * is abandoned as soon as a row plus the lower bound of the remaining rows exceeds the
+ * best distance so far.
+ * A match is reported once its distance stops decreasing, after which the recent samples
+ * are forgotten, so that a gesture is reported once. A match is rated with a confidence
+ * between 1 for a perfect match and 0.5 at the largest distance of its template. A
+ * recognizer is usually owned by a {@link GestureDetector}, which reports its matches like
+ * the rule-based gestures. Samples are expected at the rate the
+ * templates were recorded at, like the output of the
+ * {@link com.example.comvi.sensor.Resampler Resampler}.
+ * Recognition does not allocate. An instance is not thread-safe, except for enabling and
+ * disabling motion types, which may happen from any thread.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class DtwRecognizer {
+
+    /**
+     * The default width of the Sakoe-Chiba band on either side of the diagonal, as a ratio of the template length.
+     */
+    public static final float DEFAULT_BAND_RATIO = 0.1f;
+
+    private final Template[] templates;
+    private final int[] bandRadius;
+    private final float[][] upper;
+    private final float[][] lower;
+    private final int[][] boundOrder;
+    private final int maxLength;
+
+    private final float[] history;
+    private int position;
+    private int count;
+
+    private final float[] bounds;
+    private final float[] previousRow;
+    private final float[] currentRow;
+
+    private volatile int enabledMotions = ~0;
+    private MotionType pendingMotion = MotionType.NONE;
+    private int pendingTemplate = -1;
+    private float pendingDistance = Float.POSITIVE_INFINITY;
+    private int matchedTemplate;
+    private float distance;
+    private float peak;
+    private long comparisons;
+    private long prunedByBound;
+    private long abandonedDtw;
+
+    /**
+     * Constructs a new {@code DtwRecognizer} with the default band.
+     *
+     * @param templates the templates to match
+     * @throws IllegalArgumentException if no templates are given
+     */
+    public DtwRecognizer(List<Template> templates) {
+        this(templates, DEFAULT_BAND_RATIO);
+    }
+
+    /**
+     * Constructs a new {@code DtwRecognizer}.
+     *
+     * @param templates the templates to match
+     * @param bandRatio the width of the Sakoe-Chiba band on either side of the diagonal as a
+     *                  ratio of the template length, between 0 for no warping and 1 for unlimited warping
+     * @throws IllegalArgumentException if no templates are given or the ratio is out of range
+     */
+    public DtwRecognizer(List<Template> templates, float bandRatio) {
+        if (templates.isEmpty()) throw new IllegalArgumentException("At least one template is required");
+        if (!(bandRatio >= 0 && bandRatio <= 1)) throw new IllegalArgumentException("Band ratio must be between 0 and 1: " + bandRatio);
+        this.templates = templates.toArray(new Template[0]);
+        this.bandRadius = new int[this.templates.length];
+        this.upper = new float[this.templates.length][];
+        this.lower = new float[this.templates.length][];
+        this.boundOrder = new int[this.templates.length][];
+
+        int longest = 0;
+        for (int i = 0; i < this.templates.length; i++) {
+            int length = this.templates[i].getLength();
+            bandRadius[i] = (int) Math.ceil(bandRatio * length);
+            upper[i] = new float[length * 3];
+            lower[i] = new float[length * 3];
+            envelope(this.templates[i].samples, bandRadius[i], upper[i], lower[i]);
+            boundOrder[i] = boundOrder(upper[i], lower[i]);
+            longest = Math.max(longest, length);
+        }
+        this.maxLength = longest;
+        this.history = new float[longest * 6];
+        this.bounds = new float[longest + 1];
+        this.previousRow = new float[longest + 1];
+        this.currentRow = new float[longest + 1];
+    }
+
+    /**
+     * Enables or disables matching the templates of a motion type.
+     *
+     * @param motionType the motion type
+     * @param enabled    {@code true} to match its templates
+     */
+    public synchronized void setEnabled(MotionType motionType, boolean enabled) {
+        int bit = 1 << motionType.ordinal();
+        enabledMotions = enabled ? enabledMotions | bit : enabledMotions & ~bit;
+    }
+
+    /**
+     * Checks whether the templates of a motion type are matched.
+     *
+     * @param motionType the motion type
+     * @return {@code true} if its templates are matched
+     */
+    public boolean isEnabled(MotionType motionType) {
+        return (enabledMotions & (1 << motionType.ordinal())) != 0;
+    }
+
+    /**
+     * Returns the distance of the match reported by the last call to {@code recognize}.
+     *
+     * @return the mean squared distance per sample, or 0 if no match was reported
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns the confidence of the match reported by the last call to {@code recognize}.
+     *
+     * @return a value between 0.5 at the largest distance of the matched template and 1 for
+     * a perfect match, only meaningful after a match was reported
+     */
+    public float getConfidence() {
+        return 1 - 0.5f * distance / templates[matchedTemplate].maxDistance;
+    }
+
+    /**
+     * Returns the number of samples of the match reported by the last call to
+     * {@code recognize}. The match ended on the sample before the one that reported it.
+     *
+     * @return the length of the matched template, only meaningful after a match was reported
+     */
+    public int getMatchLength() {
+        return templates[matchedTemplate].getLength();
+    }
+
+    /**
+     * Returns the largest acceleration along the Z-axis among the samples of the match
+     * reported by the last call to {@code recognize}.
+     *
+     * @return the peak, only meaningful after a match was reported
+     */
+    public float getPeak() {
+        return peak;
+    }
+
+    /**
+     * Returns how many comparisons of the recent samples with a template were started.
+     *
+     * @return the number of comparisons
+     */
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    /**
+     * Returns how many comparisons were pruned by the LB_Keogh lower bound without computing DTW.
+     *
+     * @return the number of pruned comparisons
+     */
+    public long getPrunedByBound() {
+        return prunedByBound;
+    }
+
+    /**
+     * Returns how many DTW computations were abandoned early.
+     *
+     * @return the number of abandoned computations
+     */
+    public long getAbandonedDtw() {
+        return abandonedDtw;
+    }
+
+    /**
+     * Forgets the recent samples and any pending match.
+     */
+    public void reset() {
+        count = 0;
+        pendingMotion = MotionType.NONE;
+        pendingTemplate = -1;
+        pendingDistance = Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Adds a sample and matches the recent samples against all enabled templates.
+     *
+     * @param x the acceleration along the X-axis
+     * @param y the acceleration along the Y-axis
+     * @param z the acceleration along the Z-axis
+     * @return the motion type of the best match if its distance stopped decreasing, or {@code NONE}
+     */
+    public MotionType recognize(float x, float y, float z) {
+        int offset = position * 3;
+        history[offset] = history[offset + maxLength * 3] = x;
+        history[offset + 1] = history[offset + maxLength * 3 + 1] = y;
+        history[offset + 2] = history[offset + maxLength * 3 + 2] = z;
+        position = position + 1 == maxLength ? 0 : position + 1;
+        if (count < maxLength) count++;
+        distance = 0;
+
+        int enabled = enabledMotions;
+        MotionType bestMotion = MotionType.NONE;
+        int bestTemplate = -1;
+        float best = pendingDistance;
+        for (int i = 0; i < templates.length; i++) {
+            Template template = templates[i];
+            int length = template.getLength();
+            if (length > count || (enabled & (1 << template.motionType.ordinal())) == 0) continue;
+
+            float bound = Math.min(best, template.maxDistance) * length;
+            float candidate = match(i, (position + maxLength - length) * 3, bound) / length;
+            if (candidate < best) {
+                best = candidate;
+                bestMotion = template.motionType;
+                bestTemplate = i;
+            }
+        }
+
+        if (bestMotion != MotionType.NONE) {
+            pendingMotion = bestMotion;
+            pendingTemplate = bestTemplate;
+            pendingDistance = best;
+            return MotionType.NONE;
+        }
+        if (pendingMotion == MotionType.NONE) return MotionType.NONE;
+
+        MotionType detected = pendingMotion;
+        matchedTemplate = pendingTemplate;
+        distance = pendingDistance;
+        peak = peakZ(templates[matchedTemplate].getLength());
+        reset();
+        return detected;
+    }
+
+    /**
+     * Returns the largest acceleration along the Z-axis among the given number of samples
+     * before the most recent one.
+     */
+    private float peakZ(int length) {
+        int end = (position + maxLength - 1) % maxLength + maxLength;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = end - length; i < end; i++) max = Math.max(max, history[i * 3 + 2]);
+        return max;
+    }
+
+    /**
+     * Computes the DTW distance of the recent samples starting at the given offset of the
+     * history with a template, or gives up once it exceeds the bound.
+     *
+     * @param index  the index of the template
+     * @param offset the offset of the first sample in the history
+     * @param bound  the distance beyond which the comparison is abandoned
+     * @return the distance, or infinity if it exceeds the bound
+     */
+    private float match(int index, int offset, float bound) {
+        comparisons++;
+        float[] samples = templates[index].samples;
+        float[] upper = this.upper[index];
+        float[] lower = this.lower[index];
+        int length = templates[index].getLength();
+        float[] history = this.history;
+        float[] bounds = this.bounds;
+
+        int[] order = boundOrder[index];
+        float sum = 0;
+        for (int k = 0; k < length; k++) {
+            int i = order[k];
+            int j = i * 3;
+            float contribution = 0;
+            for (int axis = 0; axis < 3; axis++) {
+                float value = history[offset + j + axis];
+                float excess = value > upper[j + axis] ? value - upper[j + axis] : value < lower[j + axis] ? lower[j + axis] - value : 0;
+                contribution += excess * excess;
+            }
+            bounds[i] = contribution;
+            sum += contribution;
+            if (sum >= bound) {
+                prunedByBound++;
+                return Float.POSITIVE_INFINITY;
+            }
+        }
+        bounds[length] = 0;
+        for (int i = length - 1; i >= 0; i--) bounds[i] += bounds[i + 1];
+
+        int radius = bandRadius[index];
+        float[] previous = previousRow;
+        float[] current = currentRow;
+        Arrays.fill(previous, 0, length + 1, Float.POSITIVE_INFINITY);
+        previous[0] = 0;
+        for (int i = 0; i < length; i++) {
+            int first = Math.max(0, i - radius);
+            int last = Math.min(length - 1, i + radius);
+            float qx = history[offset + i * 3];
+            float qy = history[offset + i * 3 + 1];
+            float qz = history[offset + i * 3 + 2];
+            current[first] = Float.POSITIVE_INFINITY;
+            float rowMin = Float.POSITIVE_INFINITY;
+            for (int j = first; j <= last; j++) {
+                float dx = qx - samples[j * 3];
+                float dy = qy - samples[j * 3 + 1];
+                float dz = qz - samples[j * 3 + 2];
+                float cost = dx * dx + dy * dy + dz * dz + Math.min(current[j], Math.min(previous[j], previous[j + 1]));
+                current[j + 1] = cost;
+                if (cost < rowMin) rowMin = cost;
+            }
+            if (last + 2 <= length) current[last + 2] = Float.POSITIVE_INFINITY;
+            if (rowMin + bounds[i + 1] >= bound) {
+                abandonedDtw++;
+                return Float.POSITIVE_INFINITY;
+            }
+            float[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[length] < bound ? previous[length] : Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Orders the samples of an envelope by how far it is from zero, so that the lower bound
+     * of samples at rest grows fastest and is abandoned early.
+     */
+    private static int[] boundOrder(float[] upper, float[] lower) {
+        int length = upper.length / 3;
+        Integer[] order = new Integer[length];
+        float[] magnitude = new float[length];
+        for (int i = 0; i < length; i++) {
+            order[i] = i;
+            for (int axis = 0; axis < 3; axis++) {
+                float gap = Math.max(0, Math.max(lower[i * 3 + axis], -upper[i * 3 + axis]));
+                magnitude[i] += gap * gap;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(magnitude[b], magnitude[a]));
+        int[] result = new int[length];
+        for (int i = 0; i < length; i++) result[i] = order[i];
+        return result;
+    }
+
+    /**
+     * Computes the upper and lower envelope of interleaved samples over the given radius on every axis.
+     */
+    private static void envelope(float[] samples, int radius, float[] upper, float[] lower) {
+        int length = samples.length / 3;
+        for (int i = 0; i < length; i++) {
+            int first = Math.max(0, i - radius);
+            int last = Math.min(length - 1, i + radius);
+            for (int axis = 0; axis < 3; axis++) {
+                float max = Float.NEGATIVE_INFINITY;
+                float min = Float.POSITIVE_INFINITY;
+                for (int j = first; j <= last; j++) {
+                    max = Math.max(max, samples[j * 3 + axis]);
+                    min = Math.min(min, samples[j * 3 + axis]);
+                }
+                upper[i * 3 + axis] = max;
+                lower[i * 3 + axis] = min;
+            }
+        }
+    }
+
+    /**
+     * Reads gesture templates from JSON, for example:
+     * <pre>
+     * {"templates": [{"motion": "SHAKE", "maxDistance": 20,
+     *     "samples": [[0.5, 0.1, 0.2], [6.3, 0.4, -0.1], ...]}]}
+     * </pre>
+     *
+     * @param reader the reader providing the JSON document
+     * @return the templates in document order
+     * @throws IOException if the document cannot be read or does not describe valid templates
+     */
+    public static List<Template> parse(Reader reader) throws IOException {
+        Document document;
+        try {
+            document = new Gson().fromJson(reader, Document.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed gesture templates", e);
+        }
+        if (document == null || document.templates == null) throw new IOException("No templates declared");
+
+        List<Template> templates = new ArrayList<>(document.templates.size());
+        try {
+            for (TemplateJson template : document.templates) {
+                templates.add(template.toTemplate());
+            }
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IOException("Invalid gesture template: " + e.getMessage(), e);
+        }
+        return templates;
+    }
+
+    /**
+     * The {@code Template} class is a recorded gesture.
+     */
+    public static final class Template {
+
+        private final MotionType motionType;
+        private final float[] samples;
+        private final float maxDistance;
+
+        /**
+         * Constructs a new {@code Template}.
+         *
+         * @param motionType  the motion type reported for a match, not {@code NONE}
+         * @param samples     the samples as consecutive x, y and z values, at the rate of the recognized stream
+         * @param maxDistance the largest mean squared distance per sample that still matches
+         * @throws IllegalArgumentException if the motion type is {@code NONE}, the template
+         *                                  has no samples or the distance is not positive
+         */
+        public Template(MotionType motionType, float[] samples, float maxDistance) {
+            if (motionType == null || motionType == MotionType.NONE) {
+                throw new IllegalArgumentException("A template needs a motion type other than NONE");
+            }
+            if (samples.length == 0 || samples.length % 3 != 0) {
+                throw new IllegalArgumentException("Samples of " + motionType + " must be non-empty x, y, z triples");
+            }
+            if (!(maxDistance > 0)) throw new IllegalArgumentException("Distance of " + motionType + " must be positive: " + maxDistance);
+            this.motionType = motionType;
+            this.samples = samples.clone();
+            this.maxDistance = maxDistance;
+        }
+
+        /**
+         * Returns the motion type reported for a match.
+         *
+         * @return the motion type
+         */
+        public MotionType getMotionType() {
+            return motionType;
+        }
+
+        /**
+         * Returns the number of samples of the template.
+         *
+         * @return the length
+         */
+        public int getLength() {
+            return samples.length / 3;
+        }
+
+        /**
+         * Returns the largest mean squared distance per sample that still matches.
+         *
+         * @return the distance
+         */
+        public float getMaxDistance() {
+            return maxDistance;
+        }
+    }
+
+    /**
+     * The JSON document holding the templates.
+     */
+    private static final class Document {
+        List<TemplateJson> templates;
+    }
+
+    /**
+     * The JSON form of a template.
+     */
+    private static final class TemplateJson {
+        String motion;
+        float maxDistance;
+        List<float[]> samples;
+
+        Template toTemplate() {
+            float[] values = new float[samples.size() * 3];
+            for (int i = 0; i < samples.size(); i++) {
+                float[] sample = samples.get(i);
+                if (sample.length != 3) throw new IllegalArgumentException("Sample " + i + " of " + motion + " needs x, y and z");
+                System.arraycopy(sample, 0, values, i * 3, 3);
+            }
+            return new Template(MotionType.valueOf(motion), values, maxDistance);
+        }
+    }
+}
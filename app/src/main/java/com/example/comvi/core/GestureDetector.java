@@ -1,44 +1,722 @@
 package com.example.comvi.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
- * The {@code GestureDetector} class is responsible for detecting drop motions
- * using accelerometer data.
+ * The {@code GestureDetector} class is responsible for detecting drop, pickup and shake
+ * motions using accelerometer data with gravity removed.
+ * All gestures are evaluated in a single pass over each sample. They share a sample
+ * counter, which serves as the clock for their time windows, and a smoothed Z-axis signal.
+ * Every gesture keeps a fixed amount of state, so every sample is processed in constant
+ * time no matter how many gestures are enabled.
+ * <ul>
+ *     <li>A drop is a sample above the rise threshold with the Y-axis below its threshold,
+ *     followed within {@link #DROP_WINDOW_MILLIS} by a sample below the fall threshold.</li>
+ *     <li>A pickup is the smoothed Z-axis staying above the pickup threshold for
+ *     {@link #PICKUP_MIN_MILLIS} after the device rested for {@link #PICKUP_REST_MILLIS}.</li>
+ *     <li>A shake is {@link #SHAKE_SWINGS} swings of the X-axis beyond the shake threshold,
+ *     each in the opposite direction of the previous one, within {@link #SHAKE_WINDOW_MILLIS}.</li>
+ * </ul>
+ * Each completed gesture is rated with a confidence between 0.5 at its thresholds and 1
+ * at twice its thresholds. If several gestures complete on the same sample, the most
+ * confident one is reported. After a gesture was reported, no further gesture is reported
+ * for a refractory period, so that one physical movement triggers its action only once.
+ * Every reported gesture, and every drop or declared gesture that started but ran out of
+ * time, can be passed as a {@link GestureEvent} to an {@link EventListener}, with its
+ * onset, peak and margin. Events are only created while a listener is set.
+ * Further gestures can be declared as {@link GestureSpec specs}, which are evaluated by a
+ * {@link GestureRuleEngine} in the same pass. A spec replaces the built-in gesture of the
+ * same motion type, so thresholds can be tuned without code changes. A declared gesture
+ * costs more per sample than a built-in one, so a single DROP spec with the shape of the
+ * built-in drop, a rise of Z above a positive threshold with Y below a threshold followed
+ * within a window by a fall of Z below a negative threshold, is not evaluated by the
+ * engine but sets the thresholds and the window of the built-in drop.
+ * Recorded gestures can be matched by a {@link DtwRecognizer} owned by the detector. It
+ * sees every sample, and a match of an enabled gesture is reported when no threshold
+ * gesture completed on the same sample, subject to the same refractory period and events.
+ * The detector expects samples at a fixed rate, as delivered by a resampler, so that the
+ * windows cover the same time on every device. Samples can be passed one at a time or in
+ * batches of primitive arrays, which saves the per-sample call overhead when replaying
+ * traces or draining buffered samples.
  *
  * @author gxstxxv
  * @version 1.0
  */
 public class GestureDetector {
 
-    private static final float Z_RISE_THRESHOLD = 15.0f;
-    private static final float Z_FALL_THRESHOLD = -10.0f;
-    private static final float Y_FALL_THRESHOLD = -6.0f;
+    /**
+     * The sample period the detector is tuned for, 100 Hz.
+     */
+    public static final long DEFAULT_SAMPLE_PERIOD_NANOS = 10_000_000L;
+
+    /**
+     * The default time after a reported gesture during which no gesture is reported.
+     */
+    public static final long DEFAULT_REFRACTORY_MILLIS = 500;
+
+    /**
+     * The longest time between the rise and the fall of a drop.
+     */
+    public static final long DROP_WINDOW_MILLIS = 50;
+
+    /**
+     * The shortest time the device has to be lifted for a pickup.
+     */
+    public static final long PICKUP_MIN_MILLIS = 120;
+
+    /**
+     * The shortest time the device has to rest before it can be picked up.
+     */
+    public static final long PICKUP_REST_MILLIS = 200;
+
+    /**
+     * The longest time for all swings of a shake.
+     */
+    public static final long SHAKE_WINDOW_MILLIS = 800;
+
+    /**
+     * The number of swings that make up a shake.
+     */
+    public static final int SHAKE_SWINGS = 4;
+
+    /**
+     * The Z acceleration a drop has to exceed when the device is swung up.
+     */
+    public static final float Z_RISE_THRESHOLD = 15.0f;
+
+    /**
+     * The Z acceleration a drop has to fall below when the device is stopped.
+     */
+    public static final float Z_FALL_THRESHOLD = -10.0f;
+
+    /**
+     * The Y acceleration a drop has to fall below while the device is swung up.
+     */
+    public static final float Y_FALL_THRESHOLD = -6.0f;
+
+    private static final float PICKUP_THRESHOLD = 2.5f;
+    private static final float PICKUP_REST_THRESHOLD = 1.0f;
+    private static final float SHAKE_THRESHOLD = 12.0f;
+    private static final long SMOOTHING_TIME_CONSTANT_NANOS = 50_000_000L;
+    private static final MotionType[] MOTION_TYPES = MotionType.values();
+    private static final int DROP = bit(MotionType.DROP);
+    private static final int PICKUP = bit(MotionType.PICKUP);
+    private static final int SHAKE = bit(MotionType.SHAKE);
+    private static final int DROP_ORDINAL = MotionType.DROP.ordinal();
+    private static final int PICKUP_ORDINAL = MotionType.PICKUP.ordinal();
+    private static final int SHAKE_ORDINAL = MotionType.SHAKE.ordinal();
+    private static final long NEVER = Long.MIN_VALUE / 2;
+
+    private final long samplePeriodNanos;
+    private final float zRiseThreshold;
+    private final float zFallThreshold;
+    private final float yFallThreshold;
+    private final int dropWindowSamples;
+    private final int pickupSamples;
+    private final int pickupRestSamples;
+    private final int shakeWindowSamples;
+    private final float smoothing;
+    private final int refractorySamples;
+    private final GestureRuleEngine rules;
+    private final int builtInGestures;
+    private volatile int enabledGestures = DROP | PICKUP | SHAKE;
+    private volatile EventListener eventListener;
+    private DtwRecognizer recognizer;
+    private int activeBuiltIns;
+
+    private long sampleIndex;
+    private long timestampNanos;
+    private long reportIndex = NEVER;
+    private float smoothedZ;
+    private float confidence;
+
+    private long riseIndex = NEVER;
+    private long riseStartIndex;
+    private float risePeak;
+    private float closestFall;
+
+    private int restSamples;
+    private long pickupStartIndex;
+    private int pickupSamplesAbove;
+    private float pickupPeak;
+
+    private final long[] swingIndices = new long[SHAKE_SWINGS];
+    private final float[] swingPeaks = new float[SHAKE_SWINGS];
+    private int swingCount;
+    private int swingDirection;
+
+    private final long[] completedOnsets = new long[MOTION_TYPES.length];
+    private final float[] completedPeaks = new float[MOTION_TYPES.length];
+    private final float[] completedRatios = new float[MOTION_TYPES.length];
+
+    /**
+     * Constructs a new {@code GestureDetector} for samples at the default period.
+     */
+    public GestureDetector() {
+        this(DEFAULT_SAMPLE_PERIOD_NANOS);
+    }
+
+    /**
+     * Constructs a new {@code GestureDetector} for samples at the given period with the
+     * default refractory period.
+     *
+     * @param samplePeriodNanos the time between two samples in nanoseconds
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public GestureDetector(long samplePeriodNanos) {
+        this(samplePeriodNanos, DEFAULT_REFRACTORY_MILLIS);
+    }
+
+    /**
+     * Constructs a new {@code GestureDetector} for samples at the given period.
+     *
+     * @param samplePeriodNanos the time between two samples in nanoseconds
+     * @param refractoryMillis  the time after a reported gesture during which no gesture
+     *                          is reported, or 0 to report every gesture
+     * @throws IllegalArgumentException if the period is not positive or the refractory period is negative
+     */
+    public GestureDetector(long samplePeriodNanos, long refractoryMillis) {
+        this(samplePeriodNanos, refractoryMillis, Collections.emptyList());
+    }
+
+    /**
+     * Constructs a new {@code GestureDetector} for samples at the given period, which also
+     * detects the given gestures. Specs replace the built-in gestures of the same motion type,
+     * except a single DROP spec with the shape of the built-in drop, which sets its thresholds.
+     *
+     * @param samplePeriodNanos the time between two samples in nanoseconds
+     * @param refractoryMillis  the time after a reported gesture during which no gesture
+     *                          is reported, or 0 to report every gesture
+     * @param specs             the declared gestures, in order of precedence
+     * @throws IllegalArgumentException if the period is not positive or the refractory period is negative
+     */
+    public GestureDetector(long samplePeriodNanos, long refractoryMillis, List<GestureSpec> specs) {
+        if (samplePeriodNanos <= 0) throw new IllegalArgumentException("Sample period must be positive: " + samplePeriodNanos);
+        if (refractoryMillis < 0) throw new IllegalArgumentException("Refractory period must not be negative: " + refractoryMillis);
+        this.samplePeriodNanos = samplePeriodNanos;
+        this.refractorySamples = refractoryMillis == 0 ? 0 : toSamples(refractoryMillis, samplePeriodNanos);
+        GestureSpec drop = findBuiltInDrop(specs);
+        if (drop == null) {
+            this.zRiseThreshold = Z_RISE_THRESHOLD;
+            this.zFallThreshold = Z_FALL_THRESHOLD;
+            this.yFallThreshold = Y_FALL_THRESHOLD;
+            this.dropWindowSamples = toSamples(DROP_WINDOW_MILLIS, samplePeriodNanos);
+        } else {
+            List<GestureSpec.Condition> rise = drop.getSteps().get(0).getConditions();
+            GestureSpec.Step fall = drop.getSteps().get(1);
+            this.zRiseThreshold = rise.get(0).getThreshold();
+            this.yFallThreshold = rise.get(1).getThreshold();
+            this.zFallThreshold = fall.getConditions().get(0).getThreshold();
+            this.dropWindowSamples = toSamples(fall.getWithinMillis(), samplePeriodNanos);
+            specs = new ArrayList<>(specs);
+            specs.remove(drop);
+        }
+        this.pickupSamples = toSamples(PICKUP_MIN_MILLIS, samplePeriodNanos);
+        this.pickupRestSamples = toSamples(PICKUP_REST_MILLIS, samplePeriodNanos);
+        this.shakeWindowSamples = toSamples(SHAKE_WINDOW_MILLIS, samplePeriodNanos);
+        this.smoothing = (float) samplePeriodNanos / (SMOOTHING_TIME_CONSTANT_NANOS + samplePeriodNanos);
+        this.rules = specs.isEmpty() ? null : new GestureRuleEngine(specs, samplePeriodNanos);
+        this.builtInGestures = rules == null ? ~0 : ~rules.getDefinedMotions();
+    }
+
+    /**
+     * Returns the number of samples within which the fall of a drop must follow its rise.
+     *
+     * @return the drop window in samples
+     */
+    public int getDropWindowSamples() {
+        return dropWindowSamples;
+    }
+
+    /**
+     * Returns whether a gesture is detected by the built-in code rather than by a declared spec.
+     *
+     * @param motionType the gesture
+     * @return {@code true} if no spec replaces the built-in gesture
+     */
+    public boolean isBuiltIn(MotionType motionType) {
+        return (builtInGestures & bit(motionType)) != 0;
+    }
+
+    /**
+     * Returns the number of samples after a reported gesture during which no gesture is reported.
+     *
+     * @return the refractory period in samples
+     */
+    public int getRefractorySamples() {
+        return refractorySamples;
+    }
+
+    /**
+     * Enables or disables the detection of a gesture. A disabled gesture costs nothing and
+     * forgets its progress. May be called from any thread.
+     *
+     * @param motionType the gesture, one of {@code DROP}, {@code PICKUP} or {@code SHAKE}
+     * @param enabled    {@code true} to detect the gesture
+     * @throws IllegalArgumentException if the motion type is {@code NONE}
+     */
+    public synchronized void setEnabled(MotionType motionType, boolean enabled) {
+        if (motionType == MotionType.NONE) throw new IllegalArgumentException("NONE is not a gesture");
+        enabledGestures = enabled ? enabledGestures | bit(motionType) : enabledGestures & ~bit(motionType);
+    }
+
+    /**
+     * Returns whether a gesture is detected.
+     *
+     * @param motionType the gesture
+     * @return {@code true} if the gesture is enabled
+     */
+    public boolean isEnabled(MotionType motionType) {
+        return (enabledGestures & bit(motionType)) != 0;
+    }
+
+    /**
+     * Sets the listener receiving an event for every reported gesture and near miss. The
+     * listener is called on the thread passing the samples.
+     *
+     * @param eventListener the listener, or {@code null} to create no events
+     */
+    public void setEventListener(EventListener eventListener) {
+        this.eventListener = eventListener;
+    }
 
-    private static final int BUFFER_SIZE = 10;
-    private final float[] zBuffer = new float[BUFFER_SIZE];
-    private final float[] yBuffer = new float[BUFFER_SIZE];
-    private int bufferIndex = 0;
+    /**
+     * Sets the recognizer matching recorded gestures alongside the threshold gestures. Must
+     * be set before samples are passed, or on the thread passing them.
+     *
+     * @param recognizer the recognizer, or {@code null} to match no recorded gestures
+     */
+    public void setRecognizer(DtwRecognizer recognizer) {
+        this.recognizer = recognizer;
+    }
+
+    /**
+     * Returns the confidence of the gesture reported for the last sample, passed alone or
+     * as the last sample of a batch.
+     *
+     * @return a value between 0.5 and 1, or 0 if no gesture was reported
+     */
+    public float getConfidence() {
+        return confidence;
+    }
 
     /**
      * Detects the type of motion based on the given accelerometer values.
      *
      * @param values the accelerometer values, where values[0] is the X-axis, values[1] the Y-axis and values[2] the Z-axis
-     * @return the detected motion type, either {@code MotionType.DROP} if a drop is detected,
-     * or {@code MotionType.NONE} if no significant motion is detected
+     * @return the most confident gesture completed by this sample, or {@code MotionType.NONE}
+     * if no gesture was completed
      */
     public MotionType detectMotion(float[] values) {
-        float y = values[1];
-        float z = values[2];
+        return detectMotion(values[0], values[1], values[2]);
+    }
 
-        zBuffer[bufferIndex] = z;
-        yBuffer[bufferIndex] = y;
-        bufferIndex = (bufferIndex + 1) % BUFFER_SIZE;
+    /**
+     * Detects the type of motion based on the given accelerometer sample.
+     *
+     * @param x the acceleration along the X-axis
+     * @param y the acceleration along the Y-axis
+     * @param z the acceleration along the Z-axis
+     * @return the most confident gesture completed by this sample, or {@code MotionType.NONE}
+     * if no gesture was completed or the refractory period of the last gesture has not passed
+     */
+    public MotionType detectMotion(float x, float y, float z) {
+        return detectMotion(x, y, z, (sampleIndex + 1) * samplePeriodNanos);
+    }
 
-        for (int i = 0; i < BUFFER_SIZE - 2; i++) {
-            if (zBuffer[i] < Z_RISE_THRESHOLD && zBuffer[i + 1] > Z_RISE_THRESHOLD && zBuffer[i + 2] < Z_FALL_THRESHOLD && yBuffer[i + 1] < Y_FALL_THRESHOLD)
-                return MotionType.DROP;
+    /**
+     * Detects the type of motion based on the given accelerometer sample and its time,
+     * which is used for the times of the {@link GestureEvent events}. Samples passed without
+     * a time are timed by their index.
+     *
+     * @param x              the acceleration along the X-axis
+     * @param y              the acceleration along the Y-axis
+     * @param z              the acceleration along the Z-axis
+     * @param timestampNanos the time of the sample in nanoseconds
+     * @return the most confident gesture completed by this sample, or {@code MotionType.NONE}
+     * if no gesture was completed or the refractory period of the last gesture has not passed
+     */
+    public MotionType detectMotion(float x, float y, float z, long timestampNanos) {
+        this.timestampNanos = timestampNanos;
+        int enabled = enabledGestures;
+        int builtIn = activateBuiltIns(enabled);
+        int detected = detect(x, y, z, enabled, builtIn);
+        return detected < 0 ? MotionType.NONE : MOTION_TYPES[detected];
+    }
+
+    /**
+     * Detects gestures in a batch of samples, as if each sample was passed to
+     * {@link #detectMotion(float, float, float)} in order. The enabled gestures are read
+     * once per batch.
+     *
+     * @param x          the accelerations along the X-axis
+     * @param y          the accelerations along the Y-axis
+     * @param z          the accelerations along the Z-axis
+     * @param offset     the index of the first sample in the arrays
+     * @param count      the number of samples
+     * @param outIndices receives the index relative to {@code offset} of every sample that
+     *                   completed a gesture, must hold {@link #getMaxDetections(int)} entries
+     * @param outMotions receives the reported gesture for each index, must be as long as {@code outIndices}
+     * @return the number of detected gestures
+     * @throws IllegalArgumentException if the output arrays are too short
+     */
+    public int detectMotions(float[] x, float[] y, float[] z, int offset, int count, int[] outIndices, MotionType[] outMotions) {
+        checkOutput(count, outIndices, outMotions);
+        int enabled = enabledGestures;
+        int builtIn = activateBuiltIns(enabled);
+        int detections = 0;
+        for (int i = 0; i < count; i++) {
+            timestampNanos = (sampleIndex + 1) * samplePeriodNanos;
+            int detected = detect(x[offset + i], y[offset + i], z[offset + i], enabled, builtIn);
+            if (detected < 0) continue;
+            outIndices[detections] = i;
+            outMotions[detections++] = MOTION_TYPES[detected];
+        }
+        return detections;
+    }
+
+    /**
+     * Detects gestures in a batch of samples stored as consecutive x, y and z values, as if
+     * each sample was passed to {@link #detectMotion(float, float, float)} in order. The
+     * enabled gestures are read once per batch.
+     *
+     * @param values     the samples as consecutive x, y and z values
+     * @param offset     the index of the first sample, counted in samples
+     * @param count      the number of samples
+     * @param outIndices receives the index relative to {@code offset} of every sample that
+     *                   completed a gesture, must hold {@link #getMaxDetections(int)} entries
+     * @param outMotions receives the reported gesture for each index, must be as long as {@code outIndices}
+     * @return the number of detected gestures
+     * @throws IllegalArgumentException if the output arrays are too short
+     */
+    public int detectMotions(float[] values, int offset, int count, int[] outIndices, MotionType[] outMotions) {
+        checkOutput(count, outIndices, outMotions);
+        int enabled = enabledGestures;
+        int builtIn = activateBuiltIns(enabled);
+        int detections = 0;
+        for (int i = 0, j = offset * 3; i < count; i++, j += 3) {
+            timestampNanos = (sampleIndex + 1) * samplePeriodNanos;
+            int detected = detect(values[j], values[j + 1], values[j + 2], enabled, builtIn);
+            if (detected < 0) continue;
+            outIndices[detections] = i;
+            outMotions[detections++] = MOTION_TYPES[detected];
+        }
+        return detections;
+    }
+
+    /**
+     * Returns how many gestures a batch can report at most, as reports are at least a
+     * refractory period apart.
+     *
+     * @param count the number of samples of the batch
+     * @return the largest number of detections
+     */
+    public int getMaxDetections(int count) {
+        return (count + refractorySamples) / (refractorySamples + 1);
+    }
+
+    private void checkOutput(int count, int[] outIndices, MotionType[] outMotions) {
+        int required = getMaxDetections(count);
+        if (outIndices.length < required || outMotions.length < required) {
+            throw new IllegalArgumentException("Output must hold " + required + " detections for " + count + " samples");
+        }
+    }
+
+    /**
+     * Makes the built-in gestures follow the enabled gestures.
+     *
+     * @param enabled the enabled gestures
+     * @return the built-in gestures to be detected
+     */
+    private int activateBuiltIns(int enabled) {
+        int builtIn = enabled & builtInGestures;
+        if (builtIn != activeBuiltIns) resetBuiltIns(activeBuiltIns & ~builtIn);
+        activeBuiltIns = builtIn;
+        return builtIn;
+    }
+
+    /**
+     * Advances all gestures by one sample.
+     *
+     * @return the ordinal of the reported gesture, or -1
+     */
+    private int detect(float x, float y, float z, int enabled, int builtIn) {
+        sampleIndex++;
+        smoothedZ += smoothing * (z - smoothedZ);
+
+        int detected = -1;
+        float best = 0;
+        if ((builtIn & DROP) != 0) {
+            best = detectDrop(y, z);
+            if (best > 0) detected = DROP_ORDINAL;
+        }
+        if ((builtIn & PICKUP) != 0) {
+            float candidate = detectPickup();
+            if (candidate > best) {
+                best = candidate;
+                detected = PICKUP_ORDINAL;
+            }
+        }
+        if ((builtIn & SHAKE) != 0) {
+            float candidate = detectShake(x);
+            if (candidate > best) {
+                best = candidate;
+                detected = SHAKE_ORDINAL;
+            }
+        }
+        if (rules != null) {
+            int declared = rules.evaluate(sampleIndex, x, y, z, smoothedZ, enabled);
+            if (declared >= 0 && rules.getConfidence() > best) {
+                best = rules.getConfidence();
+                detected = declared;
+                completedOnsets[declared] = rules.getOnsetIndex();
+                completedPeaks[declared] = rules.getPeak();
+                completedRatios[declared] = rules.getRatio();
+            }
+            if (rules.getNearMissCount() > 0) reportRuleNearMisses();
+        }
+        if (recognizer != null) {
+            MotionType matched = recognizer.recognize(x, y, z);
+            if (detected < 0 && matched != MotionType.NONE && (enabled & bit(matched)) != 0) {
+                detected = matched.ordinal();
+                best = recognizer.getConfidence();
+                completedOnsets[detected] = sampleIndex - recognizer.getMatchLength();
+                completedPeaks[detected] = recognizer.getPeak();
+                completedRatios[detected] = 2 * best;
+            }
+        }
+        if (detected >= 0) {
+            if (sampleIndex - reportIndex <= refractorySamples) {
+                detected = -1;
+                best = 0;
+            } else {
+                reportIndex = sampleIndex;
+                EventListener listener = eventListener;
+                if (listener != null) {
+                    listener.onGestureEvent(new GestureEvent(MOTION_TYPES[detected], true, toNanos(completedOnsets[detected]),
+                            timestampNanos, completedPeaks[detected], best, completedRatios[detected] - 1));
+                }
+            }
+        }
+        confidence = best;
+        return detected;
+    }
+
+    /**
+     * Makes built-in gestures that were disabled or replaced forget their progress.
+     *
+     * @param stopped the built-in gestures that stopped being detected
+     */
+    private void resetBuiltIns(int stopped) {
+        if ((stopped & DROP) != 0) resetDrop();
+        if ((stopped & PICKUP) != 0) resetPickup();
+        if ((stopped & SHAKE) != 0) resetShake();
+    }
+
+    /**
+     * Advances the drop detection by one sample.
+     *
+     * @return the confidence of a completed drop, or 0
+     */
+    private float detectDrop(float y, float z) {
+        if (riseIndex != NEVER && sampleIndex - riseIndex > dropWindowSamples) {
+            nearMiss(DROP_ORDINAL, riseStartIndex, risePeak, Math.max(0, closestFall / zFallThreshold));
+            riseIndex = NEVER;
+        }
+        if (z > zRiseThreshold && y < yFallThreshold) {
+            if (sampleIndex - riseIndex > 1) {
+                risePeak = 0;
+                riseStartIndex = sampleIndex;
+                closestFall = Float.POSITIVE_INFINITY;
+            }
+            riseIndex = sampleIndex;
+            risePeak = Math.max(risePeak, z);
+            return 0;
+        }
+        if (riseIndex == NEVER) return 0;
+        if (z >= zFallThreshold) {
+            closestFall = Math.min(closestFall, z);
+            return 0;
+        }
+
+        riseIndex = NEVER;
+        return complete(DROP_ORDINAL, riseStartIndex, risePeak, (risePeak / zRiseThreshold + z / zFallThreshold) / 2);
+    }
+
+    private float resetDrop() {
+        riseIndex = NEVER;
+        return 0;
+    }
+
+    /**
+     * Advances the pickup detection by one sample of the smoothed Z-axis. A lift that ends
+     * too early, like the rise of a drop, or a completed pickup requires a new rest.
+     *
+     * @return the confidence of a completed pickup, or 0
+     */
+    private float detectPickup() {
+        if (Math.abs(smoothedZ) < PICKUP_REST_THRESHOLD) {
+            if (restSamples < pickupRestSamples) restSamples++;
+            pickupSamplesAbove = 0;
+            pickupPeak = 0;
+            return 0;
         }
+        if (restSamples < pickupRestSamples) return resetPickup();
+        if (smoothedZ <= PICKUP_THRESHOLD) return pickupSamplesAbove > 0 ? resetPickup() : 0;
+
+        pickupPeak = Math.max(pickupPeak, smoothedZ);
+        if (pickupSamplesAbove == 0) pickupStartIndex = sampleIndex;
+        if (++pickupSamplesAbove < pickupSamples) return 0;
+
+        float rating = complete(PICKUP_ORDINAL, pickupStartIndex, pickupPeak, pickupPeak / PICKUP_THRESHOLD);
+        resetPickup();
+        return rating;
+    }
+
+    private float resetPickup() {
+        restSamples = 0;
+        pickupSamplesAbove = 0;
+        pickupPeak = 0;
+        return 0;
+    }
+
+    /**
+     * Advances the shake detection by one sample of the X-axis. The indices and peaks of
+     * the last swings are kept in small rings indexed by the swing count.
+     *
+     * @return the confidence of a completed shake, or 0
+     */
+    private float detectShake(float x) {
+        if (Math.abs(x) <= SHAKE_THRESHOLD) return 0;
+
+        int direction = x > 0 ? 1 : -1;
+        int slot = (swingCount + SHAKE_SWINGS - 1) % SHAKE_SWINGS;
+        if (direction == swingDirection) {
+            swingPeaks[slot] = Math.max(swingPeaks[slot], Math.abs(x));
+            return 0;
+        }
+
+        swingDirection = direction;
+        slot = swingCount % SHAKE_SWINGS;
+        swingIndices[slot] = sampleIndex;
+        swingPeaks[slot] = Math.abs(x);
+        swingCount++;
+        if (swingCount < SHAKE_SWINGS || sampleIndex - swingIndices[swingCount % SHAKE_SWINGS] > shakeWindowSamples) {
+            return 0;
+        }
+
+        float peaks = 0;
+        float highest = 0;
+        for (float peak : swingPeaks) {
+            peaks += peak;
+            highest = Math.max(highest, peak);
+        }
+        long onset = swingIndices[swingCount % SHAKE_SWINGS];
+        resetShake();
+        return complete(SHAKE_ORDINAL, onset, highest, peaks / (SHAKE_SWINGS * SHAKE_THRESHOLD));
+    }
+
+    private float resetShake() {
+        swingCount = 0;
+        swingDirection = 0;
+        return 0;
+    }
+
+    /**
+     * Remembers the onset, peak and ratio of a completed gesture for its event.
+     *
+     * @return the confidence of the gesture
+     */
+    private float complete(int gesture, long onsetIndex, float peak, float ratio) {
+        completedOnsets[gesture] = onsetIndex;
+        completedPeaks[gesture] = peak;
+        completedRatios[gesture] = ratio;
+        return rate(ratio);
+    }
+
+    /**
+     * Passes a gesture that ran out of time to the listener.
+     *
+     * @param ratio how close the awaited signal came to its threshold, 1 at the threshold
+     */
+    private void nearMiss(int gesture, long onsetIndex, float peak, float ratio) {
+        EventListener listener = eventListener;
+        if (listener == null) return;
+        listener.onGestureEvent(new GestureEvent(MOTION_TYPES[gesture], false, toNanos(onsetIndex), timestampNanos, peak, 0, ratio - 1));
+    }
+
+    private void reportRuleNearMisses() {
+        for (int i = 0; i < rules.getNearMissCount(); i++) {
+            nearMiss(rules.getNearMissMotion(i), rules.getNearMissOnsetIndex(i), rules.getNearMissPeak(i), rules.getNearMissRatio(i));
+        }
+    }
+
+    /**
+     * Converts the index of an earlier sample to its time, relative to the current sample.
+     */
+    private long toNanos(long index) {
+        return timestampNanos - (sampleIndex - index) * samplePeriodNanos;
+    }
+
+    /**
+     * Maps how far a gesture exceeded its thresholds to a confidence.
+     *
+     * @param ratio the measured values relative to the thresholds, at least 1
+     * @return the confidence, between 0.5 and 1
+     */
+    private static float rate(float ratio) {
+        return Math.min(1f, 0.5f * ratio);
+    }
+
+    /**
+     * Finds the DROP spec that can be detected by the built-in drop with other thresholds.
+     *
+     * @param specs the declared gestures
+     * @return the only DROP spec if it has the shape of the built-in drop, or {@code null}
+     */
+    private static GestureSpec findBuiltInDrop(List<GestureSpec> specs) {
+        GestureSpec drop = null;
+        for (GestureSpec spec : specs) {
+            if (spec.getMotionType() != MotionType.DROP) continue;
+            if (drop != null) return null;
+            drop = spec;
+        }
+        if (drop == null || drop.getSteps().size() != 2) return null;
+        GestureSpec.Step rise = drop.getSteps().get(0);
+        GestureSpec.Step fall = drop.getSteps().get(1);
+        if (rise.getHoldMillis() != 0 || rise.getConditions().size() != 2) return null;
+        if (fall.getHoldMillis() != 0 || fall.getWithinMillis() == 0 || fall.getConditions().size() != 1) return null;
+        GestureSpec.Condition zRise = rise.getConditions().get(0);
+        GestureSpec.Condition yFall = rise.getConditions().get(1);
+        GestureSpec.Condition zFall = fall.getConditions().get(0);
+        boolean shaped = zRise.getSignal() == GestureSpec.Signal.Z && zRise.isAbove() && zRise.getThreshold() > 0
+                && yFall.getSignal() == GestureSpec.Signal.Y && !yFall.isAbove()
+                && zFall.getSignal() == GestureSpec.Signal.Z && !zFall.isAbove() && zFall.getThreshold() < 0;
+        return shaped ? drop : null;
+    }
+
+    private static int toSamples(long millis, long samplePeriodNanos) {
+        return (int) Math.max(1, (millis * 1_000_000L + samplePeriodNanos - 1) / samplePeriodNanos);
+    }
+
+    private static int bit(MotionType motionType) {
+        return 1 << motionType.ordinal();
+    }
+
+    /**
+     * The {@code EventListener} interface receives the {@link GestureEvent events} of a
+     * {@code GestureDetector}.
+     */
+    public interface EventListener {
 
-        return MotionType.NONE;
+        /**
+         * Called for every reported gesture and near miss.
+         *
+         * @param event the event
+         */
+        void onGestureEvent(GestureEvent event);
     }
 
 }
@@ -0,0 +1,130 @@
+package com.example.comvi.core;
+
+import java.util.Locale;
+
+/**
+ * The {@code GestureEvent} class describes a gesture reported by the
+ * {@link GestureDetector}, or a near miss: a gesture that started but did not complete
+ * within its time window.
+ * Times are in the clock of the sample timestamps. The onset is the first sample of the
+ * gesture, like the start of the rise of a drop, and the detection is the sample that
+ * completed it, or for a near miss the sample at which its window ran out.
+ * The margin tells how far the gesture went beyond its thresholds: a detection at exactly
+ * its thresholds has a margin of 0 and one at twice its thresholds a margin of 1. A near
+ * miss has a negative margin telling how far the awaited signal stayed from its
+ * threshold, so -0.2 means it came within 20 % of it.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public final class GestureEvent {
+
+    private final MotionType motionType;
+    private final boolean detected;
+    private final long onsetNanos;
+    private final long detectionNanos;
+    private final float peak;
+    private final float confidence;
+    private final float margin;
+
+    /**
+     * Constructs a new {@code GestureEvent}.
+     *
+     * @param motionType     the gesture
+     * @param detected       {@code true} for a reported gesture, {@code false} for a near miss
+     * @param onsetNanos     the time of the first sample of the gesture
+     * @param detectionNanos the time of the sample that completed the gesture or ended the near miss
+     * @param peak           the peak of the signal that started the gesture
+     * @param confidence     the confidence of a reported gesture, or 0 for a near miss
+     * @param margin         how far the gesture went beyond its thresholds, negative for a near miss
+     */
+    public GestureEvent(MotionType motionType, boolean detected, long onsetNanos, long detectionNanos,
+                        float peak, float confidence, float margin) {
+        this.motionType = motionType;
+        this.detected = detected;
+        this.onsetNanos = onsetNanos;
+        this.detectionNanos = detectionNanos;
+        this.peak = peak;
+        this.confidence = confidence;
+        this.margin = margin;
+    }
+
+    /**
+     * Returns the gesture.
+     *
+     * @return the motion type
+     */
+    public MotionType getMotionType() {
+        return motionType;
+    }
+
+    /**
+     * Checks whether the gesture was reported, rather than missed.
+     *
+     * @return {@code true} for a reported gesture, {@code false} for a near miss
+     */
+    public boolean isDetected() {
+        return detected;
+    }
+
+    /**
+     * Returns the time of the first sample of the gesture.
+     *
+     * @return the onset in nanoseconds
+     */
+    public long getOnsetNanos() {
+        return onsetNanos;
+    }
+
+    /**
+     * Returns the time of the sample that completed the gesture, or ended the near miss.
+     *
+     * @return the detection time in nanoseconds
+     */
+    public long getDetectionNanos() {
+        return detectionNanos;
+    }
+
+    /**
+     * Returns how long the gesture took from its onset to its detection.
+     *
+     * @return the duration in nanoseconds
+     */
+    public long getDurationNanos() {
+        return detectionNanos - onsetNanos;
+    }
+
+    /**
+     * Returns the peak of the signal that started the gesture, like the highest Z
+     * acceleration of the rise of a drop.
+     *
+     * @return the peak value
+     */
+    public float getPeak() {
+        return peak;
+    }
+
+    /**
+     * Returns the confidence of a reported gesture.
+     *
+     * @return a value between 0.5 and 1, or 0 for a near miss
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Returns how far the gesture went beyond its thresholds.
+     *
+     * @return the margin, 0 at the thresholds, negative for a near miss
+     */
+    public float getMargin() {
+        return margin;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%s %s after %.0f ms, peak %.1f, confidence %.2f, margin %+.2f",
+                motionType, detected ? "detected" : "missed", getDurationNanos() / 1e6, peak, confidence, margin);
+    }
+}
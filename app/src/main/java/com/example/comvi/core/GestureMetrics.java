@@ -0,0 +1,175 @@
+package com.example.comvi.core;
+
+import android.os.SystemClock;
+
+import com.example.comvi.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code GestureMetrics} class collects the {@link GestureEvent events} of a
+ * {@link GestureDetector}: how many gestures of each type were detected and nearly missed,
+ * the closest near miss of each type and two latency histograms. The sensor to detection
+ * latency is the time from the sensor timestamp of the sample that completed a gesture
+ * until the detector reported it, so the sample timestamps must come from the same clock,
+ * the elapsed realtime clock of sensor events. The detection to feedback latency is the
+ * time from the report until {@link #onFeedback} is called for the gesture, like after
+ * vibrating on the UI thread.
+ * Recording takes a few atomic operations and no locks, so the metrics can stay enabled
+ * in production; events are recorded on the sensor thread and feedback on the UI thread.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class GestureMetrics implements GestureDetector.EventListener {
+
+    private static final int TYPES = MotionType.values().length;
+    private static final int NO_NEAR_MISS = Float.floatToIntBits(Float.NEGATIVE_INFINITY);
+
+    private final LongSupplier clock;
+    private final LatencyHistogram sensorToDetection = new LatencyHistogram();
+    private final LatencyHistogram detectionToFeedback = new LatencyHistogram();
+    private final AtomicLongArray detections = new AtomicLongArray(TYPES);
+    private final AtomicLongArray nearMisses = new AtomicLongArray(TYPES);
+    private final AtomicLongArray reportedNanos = new AtomicLongArray(TYPES);
+    private final AtomicIntegerArray closestMargins = new AtomicIntegerArray(TYPES);
+    private volatile GestureEvent lastEvent;
+
+    /**
+     * Constructs new {@code GestureMetrics} measuring time with the elapsed realtime clock.
+     */
+    public GestureMetrics() {
+        this(SystemClock::elapsedRealtimeNanos);
+    }
+
+    /**
+     * Constructs new {@code GestureMetrics} measuring time with the given clock.
+     *
+     * @param clock the clock returning the current time in nanoseconds
+     */
+    GestureMetrics(LongSupplier clock) {
+        this.clock = clock;
+        for (int i = 0; i < TYPES; i++) closestMargins.set(i, NO_NEAR_MISS);
+    }
+
+    /**
+     * Records a detected gesture with its latency, or a near miss with its margin.
+     *
+     * @param event the event
+     */
+    @Override
+    public void onGestureEvent(GestureEvent event) {
+        lastEvent = event;
+        int type = event.getMotionType().ordinal();
+        if (event.isDetected()) {
+            long now = clock.getAsLong();
+            detections.incrementAndGet(type);
+            sensorToDetection.record(now - event.getDetectionNanos());
+            reportedNanos.set(type, now);
+            return;
+        }
+
+        nearMisses.incrementAndGet(type);
+        int margin = Float.floatToIntBits(event.getMargin());
+        int closest = closestMargins.get(type);
+        while (event.getMargin() > Float.intBitsToFloat(closest) && !closestMargins.compareAndSet(type, closest, margin)) {
+            closest = closestMargins.get(type);
+        }
+    }
+
+    /**
+     * Records the detection to feedback latency of the last detected gesture of the given
+     * type. Calls without a detection since the last call are ignored.
+     *
+     * @param motionType the gesture the feedback was given for
+     */
+    public void onFeedback(MotionType motionType) {
+        long reported = reportedNanos.getAndSet(motionType.ordinal(), 0);
+        if (reported != 0) detectionToFeedback.record(clock.getAsLong() - reported);
+    }
+
+    /**
+     * Returns the latencies from the sensor timestamp of the sample completing a gesture
+     * until its detection.
+     *
+     * @return the sensor to detection histogram
+     */
+    public LatencyHistogram getSensorToDetection() {
+        return sensorToDetection;
+    }
+
+    /**
+     * Returns the latencies from the detection of a gesture until its feedback.
+     *
+     * @return the detection to feedback histogram
+     */
+    public LatencyHistogram getDetectionToFeedback() {
+        return detectionToFeedback;
+    }
+
+    /**
+     * Returns the number of detected gestures of the given type.
+     *
+     * @param motionType the motion type
+     * @return the number of detections
+     */
+    public long getDetectionCount(MotionType motionType) {
+        return detections.get(motionType.ordinal());
+    }
+
+    /**
+     * Returns the number of near misses of the given type.
+     *
+     * @param motionType the motion type
+     * @return the number of near misses
+     */
+    public long getNearMissCount(MotionType motionType) {
+        return nearMisses.get(motionType.ordinal());
+    }
+
+    /**
+     * Returns the margin of the near miss of the given type that came closest to being
+     * detected.
+     *
+     * @param motionType the motion type
+     * @return the highest margin, between -1 and 0, or {@code Float.NaN} if there was no near miss
+     */
+    public float getClosestNearMissMargin(MotionType motionType) {
+        int closest = closestMargins.get(motionType.ordinal());
+        return closest == NO_NEAR_MISS ? Float.NaN : Float.intBitsToFloat(closest);
+    }
+
+    /**
+     * Returns the last detected gesture or near miss.
+     *
+     * @return the last event, or {@code null} if there was none
+     */
+    public GestureEvent getLastEvent() {
+        return lastEvent;
+    }
+
+    /**
+     * Returns a summary of the counts and latencies.
+     *
+     * @return a human readable summary
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        for (MotionType motionType : MotionType.values()) {
+            long detected = getDetectionCount(motionType);
+            long missed = getNearMissCount(motionType);
+            if (detected == 0 && missed == 0) continue;
+            summary.append(String.format("%s: %d detected, %d missed", motionType, detected, missed));
+            if (missed > 0) summary.append(String.format(" (closest margin %+.2f)", getClosestNearMissMargin(motionType)));
+            summary.append(", ");
+        }
+        summary.append("sensor to detection: ").append(sensorToDetection)
+                .append(", detection to feedback: ").append(detectionToFeedback);
+        GestureEvent last = lastEvent;
+        if (last != null) summary.append(", last: ").append(last);
+        return summary.toString();
+    }
+}
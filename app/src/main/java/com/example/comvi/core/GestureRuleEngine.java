@@ -0,0 +1,442 @@
+package com.example.comvi.core;
+
+import java.util.List;
+
+/**
+ * The {@code GestureRuleEngine} class evaluates {@link GestureSpec gesture specs} on a
+ * stream of samples at a fixed rate.
+ * The specs are compiled once into flat primitive tables of gestures, steps and
+ * conditions, with all times converted to samples. Conditions below a threshold are
+ * compiled into conditions above the negated threshold on the negated signal, so every
+ * condition is a single comparison. Each sample is evaluated by a single
+ * loop over these tables, without virtual calls and without allocating. The loop only
+ * visits the enabled gestures, listed again whenever the enabled motion types change, and
+ * an idle gesture is skipped after comparing the primary signal of its first step with its
+ * threshold, so gestures waiting to start cost one comparison per sample. Every gesture
+ * keeps its state in primitive arrays: the step it waits for, the sample index at which
+ * the previous step was reached, how long the current step held so far and the ratings
+ * of the steps reached. A step is rated by how far its primary condition went beyond its
+ * threshold, keeping the best of consecutive samples, and a gesture by the mean rating of its steps.
+ * For the events of the detector, every gesture also keeps the index of its first sample,
+ * the peak of its first step and how close the awaited step came to its threshold, so
+ * that a gesture whose window runs out is reported as a near miss.
+ * An instance is not thread-safe; it is meant to be owned by one {@link GestureDetector}.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public final class GestureRuleEngine {
+
+    private static final int SIGNAL_COUNT = GestureSpec.Signal.values().length;
+
+    private final int gestureCount;
+    private final int[] gestureMotion;
+    private final int[] gestureFirstStep;
+    private final int[] gestureStepCount;
+    private final int[] gestureTriggerSignal;
+    private final float[] gestureTriggerThreshold;
+    private final int[] activeGestures;
+    private int activeCount;
+    private int activeMotions;
+
+    private final int[] stepFirstCondition;
+    private final int[] stepHoldSamples;
+    private final int[] stepWithinSamples;
+    private final float[] stepRatingScale;
+
+    private final int[] conditionSignal;
+    private final float[] conditionThreshold;
+
+    private final int[] currentStep;
+    private final long[] anchorIndex;
+    private final int[] heldSamples;
+    private final float[] ratingSum;
+    private final float[] stepRating;
+    private final float[] reachedRating;
+    private final long[] onsetIndex;
+    private final float[] firstPeak;
+    private final float[] closestRating;
+    private final long[] completedOnset;
+    private final float[] completedPeak;
+    private final float[] completedRatio;
+    private final int[] missedMotion;
+    private final long[] missedOnset;
+    private final float[] missedPeak;
+    private final float[] missedRatio;
+    private final float[] signals = new float[2 * SIGNAL_COUNT];
+    private final int definedMotions;
+    private float confidence;
+    private int reported;
+    private int nearMissCount;
+
+    /**
+     * Compiles the given specs for samples at the given period.
+     *
+     * @param specs             the gestures to be evaluated, in order of precedence
+     * @param samplePeriodNanos the time between two samples in nanoseconds
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public GestureRuleEngine(List<GestureSpec> specs, long samplePeriodNanos) {
+        if (samplePeriodNanos <= 0) throw new IllegalArgumentException("Sample period must be positive: " + samplePeriodNanos);
+        int stepCount = 0;
+        int conditionCount = 0;
+        for (GestureSpec spec : specs) {
+            stepCount += spec.getSteps().size();
+            for (GestureSpec.Step step : spec.getSteps()) conditionCount += step.getConditions().size();
+        }
+
+        gestureCount = specs.size();
+        gestureMotion = new int[gestureCount];
+        gestureFirstStep = new int[gestureCount];
+        gestureStepCount = new int[gestureCount];
+        gestureTriggerSignal = new int[gestureCount];
+        gestureTriggerThreshold = new float[gestureCount];
+        activeGestures = new int[gestureCount];
+        stepFirstCondition = new int[stepCount + 1];
+        stepHoldSamples = new int[stepCount];
+        stepWithinSamples = new int[stepCount];
+        stepRatingScale = new float[stepCount];
+        conditionSignal = new int[conditionCount];
+        conditionThreshold = new float[conditionCount];
+        currentStep = new int[gestureCount];
+        anchorIndex = new long[gestureCount];
+        heldSamples = new int[gestureCount];
+        ratingSum = new float[gestureCount];
+        stepRating = new float[gestureCount];
+        reachedRating = new float[gestureCount];
+        onsetIndex = new long[gestureCount];
+        firstPeak = new float[gestureCount];
+        closestRating = new float[gestureCount];
+        completedOnset = new long[gestureCount];
+        completedPeak = new float[gestureCount];
+        completedRatio = new float[gestureCount];
+        missedMotion = new int[gestureCount];
+        missedOnset = new long[gestureCount];
+        missedPeak = new float[gestureCount];
+        missedRatio = new float[gestureCount];
+
+        int defined = 0;
+        int step = 0;
+        int condition = 0;
+        for (int gesture = 0; gesture < gestureCount; gesture++) {
+            GestureSpec spec = specs.get(gesture);
+            gestureMotion[gesture] = spec.getMotionType().ordinal();
+            gestureFirstStep[gesture] = step;
+            gestureStepCount[gesture] = spec.getSteps().size();
+            defined |= 1 << gestureMotion[gesture];
+            for (GestureSpec.Step specStep : spec.getSteps()) {
+                stepFirstCondition[step] = condition;
+                stepHoldSamples[step] = toSamples(specStep.getHoldMillis(), samplePeriodNanos);
+                stepWithinSamples[step] = specStep.getWithinMillis() == 0 ? 0 : toSamples(specStep.getWithinMillis(), samplePeriodNanos);
+                for (GestureSpec.Condition specCondition : specStep.getConditions()) {
+                    int signal = specCondition.getSignal().ordinal();
+                    conditionSignal[condition] = specCondition.isAbove() ? signal : signal + SIGNAL_COUNT;
+                    conditionThreshold[condition] = specCondition.isAbove() ? specCondition.getThreshold() : -specCondition.getThreshold();
+                    condition++;
+                }
+                float primary = conditionThreshold[stepFirstCondition[step]];
+                stepRatingScale[step] = primary > 0 ? 1 / primary : 0;
+                step++;
+            }
+        }
+        stepFirstCondition[stepCount] = condition;
+        definedMotions = defined;
+        for (int gesture = 0; gesture < gestureCount; gesture++) {
+            int trigger = stepFirstCondition[gestureFirstStep[gesture]];
+            gestureTriggerSignal[gesture] = conditionSignal[trigger];
+            gestureTriggerThreshold[gesture] = conditionThreshold[trigger];
+        }
+        activate(0);
+    }
+
+    /**
+     * Returns the motion types defined by the specs as a bit mask indexed by ordinal.
+     *
+     * @return the mask of defined motion types
+     */
+    public int getDefinedMotions() {
+        return definedMotions;
+    }
+
+    /**
+     * Returns the confidence of the gesture reported by the last call to {@code evaluate}.
+     *
+     * @return a value between 0.5 and 1, or 0 if no gesture was reported
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Returns the index of the first sample of the gesture reported by the last call to
+     * {@code evaluate}.
+     *
+     * @return the onset sample index
+     */
+    public long getOnsetIndex() {
+        return completedOnset[reported];
+    }
+
+    /**
+     * Returns the peak of the primary signal of the first step of the gesture reported by
+     * the last call to {@code evaluate}.
+     *
+     * @return the peak value
+     */
+    public float getPeak() {
+        return completedPeak[reported];
+    }
+
+    /**
+     * Returns the mean ratio of the primary signals to their thresholds over the steps of
+     * the gesture reported by the last call to {@code evaluate}.
+     *
+     * @return the ratio, 1 at the thresholds
+     */
+    public float getRatio() {
+        return completedRatio[reported];
+    }
+
+    /**
+     * Returns the number of gestures whose window ran out at the last call to {@code evaluate}.
+     *
+     * @return the number of near misses
+     */
+    public int getNearMissCount() {
+        return nearMissCount;
+    }
+
+    /**
+     * Returns the ordinal of the motion type of a near miss.
+     *
+     * @param index the index of the near miss, less than {@link #getNearMissCount()}
+     * @return the motion type ordinal
+     */
+    public int getNearMissMotion(int index) {
+        return missedMotion[index];
+    }
+
+    /**
+     * Returns the index of the first sample of a near miss.
+     *
+     * @param index the index of the near miss, less than {@link #getNearMissCount()}
+     * @return the onset sample index
+     */
+    public long getNearMissOnsetIndex(int index) {
+        return missedOnset[index];
+    }
+
+    /**
+     * Returns the peak of the primary signal of the first step of a near miss.
+     *
+     * @param index the index of the near miss, less than {@link #getNearMissCount()}
+     * @return the peak value
+     */
+    public float getNearMissPeak(int index) {
+        return missedPeak[index];
+    }
+
+    /**
+     * Returns how close the primary signal of the awaited step of a near miss came to its
+     * threshold.
+     *
+     * @param index the index of the near miss, less than {@link #getNearMissCount()}
+     * @return the ratio of the closest value to the threshold, between 0 and 1
+     */
+    public float getNearMissRatio(int index) {
+        return missedRatio[index];
+    }
+
+    /**
+     * Advances all enabled gestures by one sample. Disabled gestures forget their progress.
+     *
+     * @param sampleIndex    the index of the sample, increasing by one per sample
+     * @param x              the acceleration along the X-axis
+     * @param y              the acceleration along the Y-axis
+     * @param z              the acceleration along the Z-axis
+     * @param smoothedZ      the smoothed acceleration along the Z-axis
+     * @param enabledMotions the enabled motion types as a bit mask indexed by ordinal
+     * @return the ordinal of the most confident gesture completed by this sample, or -1
+     */
+    public int evaluate(long sampleIndex, float x, float y, float z, float smoothedZ, int enabledMotions) {
+        float[] signals = this.signals;
+        signals[0] = x;
+        signals[1] = y;
+        signals[2] = z;
+        signals[3] = smoothedZ;
+        signals[4] = -x;
+        signals[5] = -y;
+        signals[6] = -z;
+        signals[7] = -smoothedZ;
+
+        if (enabledMotions != activeMotions) activate(enabledMotions);
+        int detected = -1;
+        float best = 0;
+        nearMissCount = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int gesture = activeGestures[i];
+            if (currentStep[gesture] == 0 && heldSamples[gesture] == 0
+                    && !(signals[gestureTriggerSignal[gesture]] > gestureTriggerThreshold[gesture])) {
+                continue;
+            }
+            boolean holds = holds(gestureFirstStep[gesture] + currentStep[gesture]);
+            if (!holds && currentStep[gesture] == 0 && heldSamples[gesture] == 0) continue;
+
+            float rating = advance(gesture, sampleIndex, holds);
+            if (rating > best) {
+                best = rating;
+                detected = gestureMotion[gesture];
+                reported = gesture;
+            }
+        }
+        confidence = best;
+        return detected;
+    }
+
+    /**
+     * Lists the gestures of the enabled motion types and makes the others forget their progress.
+     *
+     * @param enabledMotions the enabled motion types as a bit mask indexed by ordinal
+     */
+    private void activate(int enabledMotions) {
+        activeMotions = enabledMotions;
+        activeCount = 0;
+        for (int gesture = 0; gesture < gestureCount; gesture++) {
+            if ((enabledMotions & (1 << gestureMotion[gesture])) != 0) {
+                activeGestures[activeCount++] = gesture;
+            } else {
+                reset(gesture);
+            }
+        }
+    }
+
+    /**
+     * Advances a gesture that is in progress or whose first step holds. Kept apart from
+     * {@link #evaluate}, so that the common case of an idle gesture stays small enough
+     * to be inlined.
+     *
+     * @param gesture     the gesture
+     * @param sampleIndex the index of the sample
+     * @param holds       whether the conditions of the awaited step hold
+     * @return the confidence if the gesture completed, or 0
+     */
+    private float advance(int gesture, long sampleIndex, boolean holds) {
+        int first = gestureFirstStep[gesture];
+        int step = first + currentStep[gesture];
+        if (step > first && stepWithinSamples[step] > 0 && sampleIndex - anchorIndex[gesture] > stepWithinSamples[step]) {
+            miss(gesture);
+            reset(gesture);
+            step = first;
+            holds = holds(step);
+        }
+
+        if (!holds) {
+            heldSamples[gesture] = 0;
+            stepRating[gesture] = 0;
+            if (step == first) return 0;
+            if (stepHoldSamples[step - 1] <= 1 && holds(step - 1)) {
+                boolean consecutive = sampleIndex - anchorIndex[gesture] == 1;
+                float again = rating(step - 1);
+                if (consecutive) again = Math.max(again, reachedRating[gesture]);
+                ratingSum[gesture] += again - reachedRating[gesture];
+                reachedRating[gesture] = again;
+                anchorIndex[gesture] = sampleIndex;
+                if (step - 1 == first) {
+                    firstPeak[gesture] = consecutive ? Math.max(firstPeak[gesture], primary(first)) : primary(first);
+                    if (!consecutive) {
+                        onsetIndex[gesture] = sampleIndex;
+                        closestRating[gesture] = Float.NEGATIVE_INFINITY;
+                    }
+                }
+            } else {
+                closestRating[gesture] = Math.max(closestRating[gesture], primary(step) * stepRatingScale[step]);
+            }
+            return 0;
+        }
+
+        if (step == first) {
+            firstPeak[gesture] = heldSamples[gesture] == 0 ? primary(first) : Math.max(firstPeak[gesture], primary(first));
+        } else {
+            closestRating[gesture] = Math.max(closestRating[gesture], primary(step) * stepRatingScale[step]);
+        }
+        stepRating[gesture] = Math.max(stepRating[gesture], rating(step));
+        if (++heldSamples[gesture] < stepHoldSamples[step]) return 0;
+
+        if (step == first) {
+            onsetIndex[gesture] = sampleIndex - stepHoldSamples[first] + 1;
+            closestRating[gesture] = Float.NEGATIVE_INFINITY;
+        }
+        ratingSum[gesture] += stepRating[gesture];
+        reachedRating[gesture] = stepRating[gesture];
+        stepRating[gesture] = 0;
+        heldSamples[gesture] = 0;
+        anchorIndex[gesture] = sampleIndex;
+        if (++currentStep[gesture] < gestureStepCount[gesture]) return 0;
+
+        completedOnset[gesture] = onsetIndex[gesture];
+        completedPeak[gesture] = peak(gesture);
+        completedRatio[gesture] = ratingSum[gesture] / gestureStepCount[gesture];
+        float rating = Math.min(1f, 0.5f * completedRatio[gesture]);
+        reset(gesture);
+        return rating;
+    }
+
+    /**
+     * Remembers a gesture whose window ran out as a near miss of the current sample.
+     */
+    private void miss(int gesture) {
+        int index = nearMissCount++;
+        missedMotion[index] = gestureMotion[gesture];
+        missedOnset[index] = onsetIndex[gesture];
+        missedPeak[index] = peak(gesture);
+        missedRatio[index] = Math.max(0, closestRating[gesture]);
+    }
+
+    /**
+     * Checks whether all conditions of a step hold on the current signals.
+     */
+    private boolean holds(int step) {
+        int end = stepFirstCondition[step + 1];
+        for (int condition = stepFirstCondition[step]; condition < end; condition++) {
+            if (!(signals[conditionSignal[condition]] > conditionThreshold[condition])) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the signal of the primary condition of a step, negated for a condition below
+     * its threshold.
+     */
+    private float primary(int step) {
+        return signals[conditionSignal[stepFirstCondition[step]]];
+    }
+
+    /**
+     * Returns the peak of the first step of a gesture as a value of its signal.
+     */
+    private float peak(int gesture) {
+        int signal = conditionSignal[stepFirstCondition[gestureFirstStep[gesture]]];
+        return signal < SIGNAL_COUNT ? firstPeak[gesture] : -firstPeak[gesture];
+    }
+
+    /**
+     * Rates a step by its primary condition, 1 at the threshold. Conditions with a threshold
+     * on the other side of zero, like staying below a small positive value, are always rated 1.
+     */
+    private float rating(int step) {
+        float scale = stepRatingScale[step];
+        return scale == 0 ? 1 : Math.max(1, signals[conditionSignal[stepFirstCondition[step]]] * scale);
+    }
+
+    private void reset(int gesture) {
+        currentStep[gesture] = 0;
+        heldSamples[gesture] = 0;
+        ratingSum[gesture] = 0;
+        stepRating[gesture] = 0;
+        reachedRating[gesture] = 0;
+    }
+
+    private static int toSamples(long millis, long samplePeriodNanos) {
+        return (int) Math.max(1, (millis * 1_000_000L + samplePeriodNanos - 1) / samplePeriodNanos);
+    }
+}
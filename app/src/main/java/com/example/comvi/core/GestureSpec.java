@@ -0,0 +1,390 @@
+package com.example.comvi.core;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The {@code GestureSpec} class declares a gesture as an ordered sequence of steps.
+ * A step is reached when all of its conditions, threshold crossings of one signal each,
+ * hold on a sample, optionally for a minimum time. Every step after the first has to be
+ * reached within a time window after the previous step. While a step is awaited, the
+ * previous step holding again moves the start of the window, so the window is measured
+ * from the latest occurrence of the previous step.
+ * The first condition of each step is its primary condition: how far the signal went
+ * beyond its threshold rates the confidence of the gesture.
+ * Specs are created with a {@link Builder} or read from JSON, for example:
+ * <pre>
+ * {"gestures": [{"motion": "DROP", "steps": [
+ *     {"conditions": [{"signal": "Z", "above": 15}, {"signal": "Y", "below": -6}]},
+ *     {"withinMillis": 50, "conditions": [{"signal": "Z", "below": -10}]}]}]}
+ * </pre>
+ * Specs are compiled into a {@link GestureRuleEngine} for evaluation.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public final class GestureSpec {
+
+    /**
+     * The {@code Signal} enum defines the signals a condition can test.
+     */
+    public enum Signal {
+        X,
+        Y,
+        Z,
+        SMOOTHED_Z
+    }
+
+    private final MotionType motionType;
+    private final List<Step> steps;
+
+    private GestureSpec(MotionType motionType, List<Step> steps) {
+        this.motionType = motionType;
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Returns the motion type reported when the gesture completes.
+     *
+     * @return the motion type
+     */
+    public MotionType getMotionType() {
+        return motionType;
+    }
+
+    /**
+     * Returns the steps of the gesture in order.
+     *
+     * @return an unmodifiable list of steps
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Reads gesture specs from JSON.
+     *
+     * @param reader the reader providing the JSON document
+     * @return the specs in document order
+     * @throws IOException if the document cannot be read or does not describe valid specs
+     */
+    public static List<GestureSpec> parse(Reader reader) throws IOException {
+        Document document;
+        try {
+            document = new Gson().fromJson(reader, Document.class);
+        } catch (JsonParseException e) {
+            throw new IOException("Malformed gesture specs", e);
+        }
+        if (document == null || document.gestures == null) throw new IOException("No gestures declared");
+
+        List<GestureSpec> specs = new ArrayList<>(document.gestures.size());
+        try {
+            for (GestureJson gesture : document.gestures) {
+                specs.add(gesture.toSpec());
+            }
+        } catch (IllegalArgumentException | IllegalStateException | NullPointerException e) {
+            throw new IOException("Invalid gesture spec: " + e.getMessage(), e);
+        }
+        return specs;
+    }
+
+    /**
+     * Writes gesture specs as JSON, in the form read by {@link #parse}.
+     *
+     * @param specs  the specs to write
+     * @param writer the writer receiving the JSON document
+     * @throws IOException if the document cannot be written
+     */
+    public static void write(List<GestureSpec> specs, Writer writer) throws IOException {
+        Document document = new Document();
+        document.gestures = new ArrayList<>(specs.size());
+        for (GestureSpec spec : specs) document.gestures.add(GestureJson.from(spec));
+        try {
+            new GsonBuilder().setPrettyPrinting().create().toJson(document, writer);
+        } catch (JsonIOException e) {
+            throw new IOException("Cannot write gesture specs", e);
+        }
+        writer.flush();
+    }
+
+    /**
+     * The {@code Step} class is one step of a gesture.
+     */
+    public static final class Step {
+
+        private final List<Condition> conditions;
+        private final long withinMillis;
+        private final long holdMillis;
+
+        private Step(List<Condition> conditions, long withinMillis, long holdMillis) {
+            this.conditions = Collections.unmodifiableList(conditions);
+            this.withinMillis = withinMillis;
+            this.holdMillis = holdMillis;
+        }
+
+        /**
+         * Returns the conditions that all have to hold, the primary condition first.
+         *
+         * @return an unmodifiable list of conditions
+         */
+        public List<Condition> getConditions() {
+            return conditions;
+        }
+
+        /**
+         * Returns the longest time after the previous step within which this step has to be reached.
+         *
+         * @return the window in milliseconds, or 0 for no limit
+         */
+        public long getWithinMillis() {
+            return withinMillis;
+        }
+
+        /**
+         * Returns how long the conditions have to hold to reach this step.
+         *
+         * @return the time in milliseconds, or 0 for a single sample
+         */
+        public long getHoldMillis() {
+            return holdMillis;
+        }
+    }
+
+    /**
+     * The {@code Condition} class is a threshold crossing of one signal.
+     */
+    public static final class Condition {
+
+        private final Signal signal;
+        private final boolean above;
+        private final float threshold;
+
+        private Condition(Signal signal, boolean above, float threshold) {
+            this.signal = signal;
+            this.above = above;
+            this.threshold = threshold;
+        }
+
+        /**
+         * Returns the tested signal.
+         *
+         * @return the signal
+         */
+        public Signal getSignal() {
+            return signal;
+        }
+
+        /**
+         * Returns whether the signal has to be above the threshold.
+         *
+         * @return {@code true} for above, {@code false} for below
+         */
+        public boolean isAbove() {
+            return above;
+        }
+
+        /**
+         * Returns the threshold, which the signal has to exceed strictly.
+         *
+         * @return the threshold
+         */
+        public float getThreshold() {
+            return threshold;
+        }
+    }
+
+    /**
+     * The {@code Builder} class creates a {@link GestureSpec} step by step.
+     */
+    public static final class Builder {
+
+        private final MotionType motionType;
+        private final List<Step> steps = new ArrayList<>();
+        private List<Condition> conditions;
+        private long withinMillis;
+        private long holdMillis;
+
+        /**
+         * Constructs a new {@code Builder} for a gesture reporting the given motion type.
+         *
+         * @param motionType the motion type, not {@code NONE}
+         * @throws IllegalArgumentException if the motion type is {@code NONE}
+         */
+        public Builder(MotionType motionType) {
+            if (motionType == null || motionType == MotionType.NONE) {
+                throw new IllegalArgumentException("A gesture needs a motion type other than NONE");
+            }
+            this.motionType = motionType;
+        }
+
+        /**
+         * Starts the next step.
+         *
+         * @param withinMillis the longest time after the previous step within which this step
+         *                     has to be reached, or 0 for no limit; ignored for the first step
+         * @return this builder
+         * @throws IllegalArgumentException if the window is negative
+         */
+        public Builder step(long withinMillis) {
+            if (withinMillis < 0) throw new IllegalArgumentException("Window must not be negative: " + withinMillis);
+            finishStep();
+            conditions = new ArrayList<>();
+            this.withinMillis = steps.isEmpty() ? 0 : withinMillis;
+            this.holdMillis = 0;
+            return this;
+        }
+
+        /**
+         * Requires the conditions of the current step to hold for the given time.
+         *
+         * @param holdMillis the time in milliseconds
+         * @return this builder
+         * @throws IllegalArgumentException if the time is negative
+         */
+        public Builder hold(long holdMillis) {
+            if (holdMillis < 0) throw new IllegalArgumentException("Hold time must not be negative: " + holdMillis);
+            currentConditions();
+            this.holdMillis = holdMillis;
+            return this;
+        }
+
+        /**
+         * Adds a condition requiring the signal to be above the threshold.
+         *
+         * @param signal    the signal
+         * @param threshold the threshold
+         * @return this builder
+         */
+        public Builder above(Signal signal, float threshold) {
+            return condition(signal, true, threshold);
+        }
+
+        /**
+         * Adds a condition requiring the signal to be below the threshold.
+         *
+         * @param signal    the signal
+         * @param threshold the threshold
+         * @return this builder
+         */
+        public Builder below(Signal signal, float threshold) {
+            return condition(signal, false, threshold);
+        }
+
+        /**
+         * Creates the spec.
+         *
+         * @return the spec
+         * @throws IllegalStateException if the spec has no steps or a step has no conditions
+         */
+        public GestureSpec build() {
+            finishStep();
+            if (steps.isEmpty()) throw new IllegalStateException(motionType + " has no steps");
+            return new GestureSpec(motionType, new ArrayList<>(steps));
+        }
+
+        private Builder condition(Signal signal, boolean above, float threshold) {
+            if (signal == null) throw new IllegalArgumentException("A condition needs a signal");
+            if (Float.isNaN(threshold)) throw new IllegalArgumentException("Threshold of " + signal + " is not a number");
+            currentConditions().add(new Condition(signal, above, threshold));
+            return this;
+        }
+
+        private List<Condition> currentConditions() {
+            if (conditions == null) throw new IllegalStateException("Call step() before adding conditions");
+            return conditions;
+        }
+
+        private void finishStep() {
+            if (conditions == null) return;
+            if (conditions.isEmpty()) throw new IllegalStateException("Step " + steps.size() + " of " + motionType + " has no conditions");
+            steps.add(new Step(conditions, withinMillis, holdMillis));
+            conditions = null;
+        }
+    }
+
+    /**
+     * The JSON document holding the specs.
+     */
+    private static final class Document {
+        List<GestureJson> gestures;
+    }
+
+    /**
+     * The JSON form of a spec.
+     */
+    private static final class GestureJson {
+        String motion;
+        List<StepJson> steps;
+
+        GestureSpec toSpec() {
+            Builder builder = new Builder(MotionType.valueOf(motion));
+            if (steps != null) {
+                for (StepJson step : steps) step.addTo(builder);
+            }
+            return builder.build();
+        }
+
+        static GestureJson from(GestureSpec spec) {
+            GestureJson gesture = new GestureJson();
+            gesture.motion = spec.motionType.name();
+            gesture.steps = new ArrayList<>(spec.steps.size());
+            for (Step step : spec.steps) gesture.steps.add(StepJson.from(step));
+            return gesture;
+        }
+    }
+
+    /**
+     * The JSON form of a step.
+     */
+    private static final class StepJson {
+        long withinMillis;
+        long holdMillis;
+        List<ConditionJson> conditions;
+
+        void addTo(Builder builder) {
+            builder.step(withinMillis).hold(holdMillis);
+            if (conditions == null) return;
+            for (ConditionJson condition : conditions) {
+                if ((condition.above == null) == (condition.below == null)) {
+                    throw new IllegalArgumentException("A condition needs either above or below");
+                }
+                Signal signal = Signal.valueOf(condition.signal);
+                if (condition.above != null) builder.above(signal, condition.above);
+                else builder.below(signal, condition.below);
+            }
+        }
+
+        static StepJson from(Step step) {
+            StepJson json = new StepJson();
+            json.withinMillis = step.withinMillis;
+            json.holdMillis = step.holdMillis;
+            json.conditions = new ArrayList<>(step.conditions.size());
+            for (Condition condition : step.conditions) {
+                ConditionJson conditionJson = new ConditionJson();
+                conditionJson.signal = condition.signal.name();
+                if (condition.above) conditionJson.above = condition.threshold;
+                else conditionJson.below = condition.threshold;
+                json.conditions.add(conditionJson);
+            }
+            return json;
+        }
+    }
+
+    /**
+     * The JSON form of a condition.
+     */
+    private static final class ConditionJson {
+        String signal;
+        Float above;
+        Float below;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.comvi.core;
+
+import com.example.comvi.data.Note;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code ProximityTracker} class keeps the set of notes currently within the radius
+ * and reports which notes entered or exited it since the previous location update,
+ * so that callers can skip all further work when nothing changed.
+ * Notes are compared by {@link Note#equals(Object) value}, which includes the id the
+ * repository assigned to them, so the same stored note read by two lookups is recognized
+ * even though every lookup creates new objects.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class ProximityTracker {
+
+    private final List<Note> entered = new ArrayList<>();
+    private final List<Note> exited = new ArrayList<>();
+    private List<Note> notesInRadius = new ArrayList<>();
+    private Set<Note> current = new HashSet<>();
+    private Set<Note> next = new HashSet<>();
+
+    /**
+     * Replaces the nearby set with the given notes and determines the notes that
+     * entered or exited the radius.
+     *
+     * @param notesInRadius the notes currently within the radius
+     * @return {@code true} if any note entered or exited the radius
+     */
+    public boolean update(List<Note> notesInRadius) {
+        entered.clear();
+        exited.clear();
+        next.clear();
+        for (Note note : notesInRadius) {
+            next.add(note);
+            if (!current.contains(note)) entered.add(note);
+        }
+        if (entered.isEmpty() && next.size() == current.size()) return false;
+
+        for (Note note : this.notesInRadius) {
+            if (!next.contains(note)) exited.add(note);
+        }
+        Set<Note> previous = current;
+        current = next;
+        next = previous;
+        this.notesInRadius = new ArrayList<>(notesInRadius);
+        return true;
+    }
+
+    /**
+     * Returns the notes that entered the radius with the last update.
+     *
+     * @return an unmodifiable list of entered notes
+     */
+    public List<Note> getEntered() {
+        return Collections.unmodifiableList(entered);
+    }
+
+    /**
+     * Returns the notes that exited the radius with the last update.
+     *
+     * @return an unmodifiable list of exited notes
+     */
+    public List<Note> getExited() {
+        return Collections.unmodifiableList(exited);
+    }
+
+    /**
+     * Returns the notes currently within the radius.
+     *
+     * @return an unmodifiable list of nearby notes
+     */
+    public List<Note> getNotesInRadius() {
+        return Collections.unmodifiableList(notesInRadius);
+    }
+
+}
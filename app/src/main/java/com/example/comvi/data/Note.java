@@ -2,12 +2,17 @@ package com.example.comvi.data;
 
 import androidx.annotation.NonNull;
 
+import java.util.Objects;
+
 /**
  * The {@code Note} class represents a note that includes textual content
  * and geolocation information specified by latitude and longitude.
+ * A stored note carries the id its repository assigned to it, so that the same note read
+ * twice compares equal. Notes are compared by value, including their id.
  */
 public class Note {
 
+    private final transient long id;
     private final String content;
     private final double latitude;
     private final double longitude;
@@ -20,11 +25,33 @@ public class Note {
      * @param longitude the longitude where the note is associated
      */
     public Note(String content, double latitude, double longitude) {
+        this(0, content, latitude, longitude);
+    }
+
+    /**
+     * Constructs a new {@code Note} read from a repository.
+     *
+     * @param id        the id the repository assigned to the note
+     * @param content   the textual content of the note
+     * @param latitude  the latitude where the note is associated
+     * @param longitude the longitude where the note is associated
+     */
+    public Note(long id, String content, double latitude, double longitude) {
+        this.id = id;
         this.content = content;
         this.latitude = latitude;
         this.longitude = longitude;
     }
 
+    /**
+     * Returns the id the repository assigned to the note.
+     *
+     * @return the id of the note, or 0 if it was not stored yet
+     */
+    public long getId() {
+        return id;
+    }
+
     /**
      * Returns the content of the note.
      *
@@ -52,6 +79,32 @@ public class Note {
         return longitude;
     }
 
+    /**
+     * Compares the note with another object. Two notes are equal if they have the same id,
+     * content and location.
+     *
+     * @param other the object to compare with
+     * @return {@code true} if the other object is an equal note
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Note)) return false;
+        Note note = (Note) other;
+        return id == note.id && Double.compare(latitude, note.latitude) == 0
+                && Double.compare(longitude, note.longitude) == 0 && Objects.equals(content, note.content);
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return the hash code of the note
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, content, latitude, longitude);
+    }
+
     /**
      * Returns a string representation of the note, including its content
      * and location coordinates.
@@ -0,0 +1,44 @@
+package com.example.comvi.data;
+
+import android.location.Location;
+
+import java.util.List;
+
+/**
+ * The {@code NoteRepository} interface defines operations for storing notes
+ * and looking up the notes close to a location.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public interface NoteRepository {
+
+    /**
+     * Saves a new note.
+     *
+     * @param note the note to be saved
+     */
+    void saveNote(Note note);
+
+    /**
+     * Retrieves all saved notes.
+     *
+     * @return a list of all saved notes, or an empty list if no notes are found
+     */
+    List<Note> getNotes();
+
+    /**
+     * Retrieves the saved notes that are within the radius around the given location.
+     *
+     * @param location the reference location from which distances are measured
+     * @return a list of notes within the radius of the given location
+     */
+    List<Note> getNotesInRadius(Location location);
+
+    /**
+     * Releases the files or database held by the repository. The repository must not be
+     * used afterwards.
+     */
+    void close();
+
+}
@@ -0,0 +1,316 @@
+package com.example.comvi.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.location.Location;
+import android.util.Log;
+
+import com.example.comvi.core.DistanceCalculator;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@code SqliteNoteRepository} class stores notes in a SQLite database and keeps
+ * an R*Tree index on their coordinates, so that radius lookups become indexed range
+ * queries instead of a scan over all notes. If the SQLite build lacks the R*Tree module,
+ * a composite B-tree index on latitude and longitude is used instead.
+ * Every note read from the database carries its row id, so the same note read by two
+ * queries compares equal. Notes stored as a JSON string in SharedPreferences by earlier
+ * versions are moved into the database once. The constructor opens the database and may
+ * migrate, so it should be called off the main thread.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class SqliteNoteRepository implements NoteRepository {
+
+    static final String DATABASE_NAME = "notes.db";
+    static final String PREFS_NAME = "MyLocations";
+    static final String KEY_LOCATIONS = "locations";
+    private static final int DATABASE_VERSION = 1;
+
+    private static final String TABLE_NOTES = "notes";
+    private static final String TABLE_INDEX = "notes_index";
+    private static final String TABLE_MIGRATIONS = "migrations";
+    private static final String MIGRATION_SHARED_PREFERENCES = "shared_preferences";
+    private static final String TAG = "SqliteNoteRepository";
+
+    private final DatabaseHelper databaseHelper;
+    private final DistanceCalculator distanceCalculator;
+
+    /**
+     * Constructs a new {@code SqliteNoteRepository}, opening the database and moving the
+     * notes stored in SharedPreferences by earlier versions into it once.
+     *
+     * @param context            the context used to access the database and SharedPreferences
+     * @param distanceCalculator the calculator used for the exact distance check
+     */
+    public SqliteNoteRepository(Context context, DistanceCalculator distanceCalculator) {
+        this.databaseHelper = new DatabaseHelper(context);
+        this.distanceCalculator = distanceCalculator;
+        migrateLegacyNotes(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+    }
+
+    /**
+     * Saves a new note by inserting it into the notes table and the spatial index
+     * within a single transaction.
+     *
+     * @param note the note to be saved
+     */
+    @Override
+    public void saveNote(Note note) {
+        SQLiteDatabase database = databaseHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            insert(database, note);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Saves several notes within a single transaction.
+     *
+     * @param notes the notes to be saved
+     */
+    public void saveNotes(Collection<Note> notes) {
+        SQLiteDatabase database = databaseHelper.getWritableDatabase();
+        database.beginTransaction();
+        try {
+            for (Note note : notes) insert(database, note);
+            database.setTransactionSuccessful();
+        } finally {
+            database.endTransaction();
+        }
+    }
+
+    /**
+     * Retrieves all saved notes in insertion order.
+     *
+     * @return a list of all saved notes, or an empty list if no notes are found
+     */
+    @Override
+    public List<Note> getNotes() {
+        try (Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(
+                "SELECT id, content, latitude, longitude FROM " + TABLE_NOTES + " ORDER BY id", null)) {
+            return readNotes(cursor);
+        }
+    }
+
+    /**
+     * Retrieves the notes close to the given location. Candidates are selected with an
+     * indexed range query on the bounding box of the radius; only these candidates are
+     * passed to the {@link DistanceCalculator}. Boxes crossing the antimeridian are widened
+     * to all longitudes.
+     *
+     * @param location the reference location from which distances are measured
+     * @return a list of notes within the radius of the given location
+     */
+    @Override
+    public List<Note> getNotesInRadius(Location location) {
+        double latitudeDelta = distanceCalculator.getLatitudeDelta();
+        double longitudeDelta = distanceCalculator.getLongitudeDelta(location.getLatitude());
+        double minLongitude = location.getLongitude() - longitudeDelta;
+        double maxLongitude = location.getLongitude() + longitudeDelta;
+        if (minLongitude < -180 || maxLongitude > 180) {
+            minLongitude = -180;
+            maxLongitude = 180;
+        }
+        String[] bounds = {
+                String.valueOf(location.getLatitude() - latitudeDelta),
+                String.valueOf(location.getLatitude() + latitudeDelta),
+                String.valueOf(minLongitude),
+                String.valueOf(maxLongitude)
+        };
+
+        SQLiteDatabase database = databaseHelper.getReadableDatabase();
+        String query = databaseHelper.hasSpatialIndex
+                ? "SELECT n.id, n.content, n.latitude, n.longitude FROM " + TABLE_INDEX + " i JOIN " + TABLE_NOTES + " n ON n.id = i.id"
+                + " WHERE i.max_latitude >= CAST(? AS REAL) AND i.min_latitude <= CAST(? AS REAL)"
+                + " AND i.max_longitude >= CAST(? AS REAL) AND i.min_longitude <= CAST(? AS REAL)"
+                : "SELECT id, content, latitude, longitude FROM " + TABLE_NOTES
+                + " WHERE latitude >= CAST(? AS REAL) AND latitude <= CAST(? AS REAL)"
+                + " AND longitude >= CAST(? AS REAL) AND longitude <= CAST(? AS REAL)";
+
+        try (Cursor cursor = database.rawQuery(query, bounds)) {
+            return distanceCalculator.getNotesInRadius(location, readNotes(cursor));
+        }
+    }
+
+    /**
+     * Returns whether the R*Tree index is available in this SQLite build.
+     *
+     * @return {@code true} if radius lookups use the R*Tree index
+     */
+    public boolean hasSpatialIndex() {
+        databaseHelper.getReadableDatabase();
+        return databaseHelper.hasSpatialIndex;
+    }
+
+    /**
+     * Closes the underlying database.
+     */
+    @Override
+    public void close() {
+        databaseHelper.close();
+    }
+
+    /**
+     * Moves the notes stored as a JSON string in SharedPreferences by earlier versions into
+     * the database and removes the string afterwards with a synchronous commit. The notes
+     * and a record of the migration are inserted in one transaction, so a migration
+     * interrupted before the string is removed only removes it on the next start. The string
+     * is kept if it is malformed.
+     *
+     * @param sharedPreferences the preferences holding the notes of earlier versions
+     */
+    private void migrateLegacyNotes(SharedPreferences sharedPreferences) {
+        String json = sharedPreferences.getString(KEY_LOCATIONS, null);
+        if (json == null) return;
+
+        SQLiteDatabase database = databaseHelper.getWritableDatabase();
+        if (!isMigrated(database)) {
+            Type type = new TypeToken<ArrayList<Note>>() {
+            }.getType();
+            List<Note> legacyNotes;
+            try {
+                legacyNotes = new Gson().fromJson(json, type);
+            } catch (JsonParseException e) {
+                Log.e(TAG, "Cannot parse notes to migrate", e);
+                return;
+            }
+
+            database.beginTransaction();
+            try {
+                if (legacyNotes != null) {
+                    for (Note note : legacyNotes) {
+                        if (note != null) insert(database, note);
+                    }
+                }
+                ContentValues values = new ContentValues();
+                values.put("name", MIGRATION_SHARED_PREFERENCES);
+                database.insertOrThrow(TABLE_MIGRATIONS, null, values);
+                database.setTransactionSuccessful();
+            } finally {
+                database.endTransaction();
+            }
+        }
+        sharedPreferences.edit().remove(KEY_LOCATIONS).commit();
+    }
+
+    private static boolean isMigrated(SQLiteDatabase database) {
+        try (Cursor cursor = database.rawQuery("SELECT 1 FROM " + TABLE_MIGRATIONS + " WHERE name = ?",
+                new String[]{MIGRATION_SHARED_PREFERENCES})) {
+            return cursor.moveToFirst();
+        }
+    }
+
+    /**
+     * Inserts a note into the notes table and, if available, into the spatial index.
+     *
+     * @param database the database to insert into, within a transaction
+     * @param note     the note to be inserted
+     */
+    private void insert(SQLiteDatabase database, Note note) {
+        ContentValues values = new ContentValues();
+        values.put("content", note.getContent());
+        values.put("latitude", note.getLatitude());
+        values.put("longitude", note.getLongitude());
+        long id = database.insertOrThrow(TABLE_NOTES, null, values);
+
+        if (databaseHelper.hasSpatialIndex) {
+            SQLiteStatement statement = databaseHelper.indexInsert(database);
+            statement.bindLong(1, id);
+            statement.bindDouble(2, note.getLatitude());
+            statement.bindDouble(3, note.getLatitude());
+            statement.bindDouble(4, note.getLongitude());
+            statement.bindDouble(5, note.getLongitude());
+            statement.executeInsert();
+        }
+    }
+
+    private static List<Note> readNotes(Cursor cursor) {
+        List<Note> notes = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            notes.add(new Note(cursor.getLong(0), cursor.getString(1), cursor.getDouble(2), cursor.getDouble(3)));
+        }
+        return notes;
+    }
+
+    /**
+     * Creates the schema and detects whether the R*Tree index exists.
+     */
+    private static final class DatabaseHelper extends SQLiteOpenHelper {
+
+        private boolean hasSpatialIndex;
+        private SQLiteStatement indexInsert;
+
+        DatabaseHelper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase database) {
+            database.execSQL("CREATE TABLE " + TABLE_NOTES + " (id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + " content TEXT, latitude REAL NOT NULL, longitude REAL NOT NULL)");
+            database.execSQL("CREATE TABLE " + TABLE_MIGRATIONS + " (name TEXT PRIMARY KEY)");
+            try {
+                database.execSQL("CREATE VIRTUAL TABLE " + TABLE_INDEX + " USING rtree("
+                        + "id, min_latitude, max_latitude, min_longitude, max_longitude)");
+            } catch (SQLiteException e) {
+                database.execSQL("CREATE INDEX notes_location ON " + TABLE_NOTES + " (latitude, longitude)");
+            }
+        }
+
+        @Override
+        public void onOpen(SQLiteDatabase database) {
+            try (Cursor cursor = database.rawQuery(
+                    "SELECT 1 FROM sqlite_master WHERE name = ?", new String[]{TABLE_INDEX})) {
+                hasSpatialIndex = cursor.moveToFirst();
+            }
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase database, int oldVersion, int newVersion) {
+            // Only one schema version exists so far
+        }
+
+        /**
+         * Returns the compiled insert statement of the spatial index, compiling it on first use.
+         *
+         * @param database the writable database
+         * @return the insert statement
+         */
+        SQLiteStatement indexInsert(SQLiteDatabase database) {
+            if (indexInsert == null) {
+                indexInsert = database.compileStatement("INSERT INTO " + TABLE_INDEX
+                        + " (id, min_latitude, max_latitude, min_longitude, max_longitude) VALUES (?, ?, ?, ?, ?)");
+            }
+            return indexInsert;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (indexInsert != null) {
+                indexInsert.close();
+                indexInsert = null;
+            }
+            super.close();
+        }
+    }
+
+}
@@ -13,28 +13,37 @@ import android.widget.Button;
 import androidx.annotation.NonNull;
 import androidx.core.app.ActivityCompat;
 
+import com.google.android.gms.location.CurrentLocationRequest;
 import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationCallback;
-import com.google.android.gms.location.LocationRequest;
-import com.google.android.gms.location.LocationRequest.Builder;
-import com.google.android.gms.location.LocationResult;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
+import com.google.android.gms.tasks.CancellationTokenSource;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The {@code LocationService} class implements the {@link LocationAPI} interface
  * to provide location services using the Fused Location Provider API or the
  * Android LocationManager as a fallback.
+ * Requests for the current location that arrive while a request is in flight do not
+ * start another high-accuracy request; all their callbacks share the next fix.
+ * A request always completes: it fails, times out after {@value #REQUEST_TIMEOUT_MILLIS} ms
+ * or is cancelled by {@link #cancelLocationRequest()}, and the next request starts afresh.
  *
  * @author gxstxxv
  * @version 1.0
  */
 public class LocationService implements LocationAPI {
 
+    private static final long REQUEST_TIMEOUT_MILLIS = 30_000;
+
     private final Context context;
     private final FusedLocationProviderClient fusedLocationClient;
     private final LocationManager locationManager;
     private LocationListener locationListener;
+    private final List<LocationResultCallback> pendingCallbacks = new ArrayList<>();
+    private CancellationTokenSource pendingRequest;
 
     /**
      * Constructs a new {@code LocationService} with the provided context.
@@ -43,8 +52,19 @@ public class LocationService implements LocationAPI {
      * @param requestLocationButton the button that, when clicked, requests the location
      */
     public LocationService(Context context, Button requestLocationButton) {
+        this(context, requestLocationButton, LocationServices.getFusedLocationProviderClient(context));
+    }
+
+    /**
+     * Constructs a new {@code LocationService} requesting the current location from the given client.
+     *
+     * @param context               the context used to access location services and permissions
+     * @param requestLocationButton the button that, when clicked, requests the location
+     * @param fusedLocationClient   the client of the Fused Location Provider
+     */
+    LocationService(Context context, Button requestLocationButton, FusedLocationProviderClient fusedLocationClient) {
         this.context = context;
-        this.fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
+        this.fusedLocationClient = fusedLocationClient;
         this.locationManager = (LocationManager) context.getSystemService(Context.LOCATION_SERVICE);
         addListener(requestLocationButton);
     }
@@ -59,7 +79,9 @@ public class LocationService implements LocationAPI {
     }
 
     /**
-     * Requests the current location using the Fused Location Provider.
+     * Requests the current location using the Fused Location Provider. If a request is
+     * already in flight, the callback is attached to it instead; a callback attached twice
+     * receives the fix once. Must be called on the main thread.
      *
      * @param callback the callback to receive the location result
      */
@@ -70,22 +92,55 @@ public class LocationService implements LocationAPI {
             return;
         }
 
-        final long intervalMillis = 10000;
-        final long minUpdateIntervalMillis = 5000;
-        final int maxUpdates = 1;
-        Builder builder = new Builder(Priority.PRIORITY_HIGH_ACCURACY, intervalMillis).setMinUpdateIntervalMillis(minUpdateIntervalMillis).setMaxUpdates(maxUpdates);
-        LocationRequest locationRequest = builder.build();
+        if (!pendingCallbacks.isEmpty()) {
+            if (!pendingCallbacks.contains(callback)) pendingCallbacks.add(callback);
+            return;
+        }
+        pendingCallbacks.add(callback);
+
+        CurrentLocationRequest locationRequest = new CurrentLocationRequest.Builder()
+                .setPriority(Priority.PRIORITY_HIGH_ACCURACY)
+                .setDurationMillis(REQUEST_TIMEOUT_MILLIS)
+                .build();
+        CancellationTokenSource request = new CancellationTokenSource();
+        pendingRequest = request;
+        fusedLocationClient.getCurrentLocation(locationRequest, request.getToken()).addOnCompleteListener(task -> {
+            if (request != pendingRequest) return;
+            deliverLocation(task.isSuccessful() ? task.getResult() : null);
+        });
+    }
 
-        fusedLocationClient.requestLocationUpdates(locationRequest, new LocationCallback() {
-            @Override
-            public void onLocationResult(@NonNull LocationResult locationResult) {
-                Location location = locationResult.getLastLocation();
-                if (location != null) {
-                    callback.onLocationResult(location);
-                }
-                fusedLocationClient.removeLocationUpdates(this);
-            }
-        }, null);
+    /**
+     * Cancels the request in flight and drops its callbacks. Must be called on the main thread.
+     */
+    public void cancelLocationRequest() {
+        if (pendingRequest != null) pendingRequest.cancel();
+        pendingRequest = null;
+        pendingCallbacks.clear();
+    }
+
+    /**
+     * Returns whether a request for the current location is in flight.
+     *
+     * @return {@code true} if callbacks are waiting for a fix
+     */
+    boolean isRequestPending() {
+        return !pendingCallbacks.isEmpty();
+    }
+
+    /**
+     * Completes the request in flight, passing the fix to every waiting callback.
+     *
+     * @param location the fix, or {@code null} if the request failed or timed out
+     */
+    private void deliverLocation(Location location) {
+        LocationResultCallback[] callbacks = pendingCallbacks.toArray(new LocationResultCallback[0]);
+        pendingRequest = null;
+        pendingCallbacks.clear();
+        if (location == null) return;
+        for (LocationResultCallback callback : callbacks) {
+            callback.onLocationResult(location);
+        }
     }
 
     /**
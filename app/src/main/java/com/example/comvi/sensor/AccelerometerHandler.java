@@ -5,22 +5,54 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
 
 /**
  * The {@code AccelerometerHandler} class handles events related to the accelerometer sensor.
  * It implements calibration and provides calibrated sensor events to a listener.
+ * Calibrated values are written into a single reused array, so that delivering an
+ * event does not allocate. Events are received and processed on a dedicated
+ * {@link HandlerThread}, so the listener is never called on the main thread.
+ * The sampling rate and report latency follow the {@link SamplingMode} set by the application.
+ * With a report latency, the sensor hub batches samples; each burst is collected
+ * in a {@link SensorBatch} and replayed to the listener in timestamp order.
  *
  * @author gxstxxv
  * @version 1.0
  */
 public class AccelerometerHandler implements SensorEventListener {
 
+    private static final int BATCH_CAPACITY = 128;
+    private static final String TAG = "AccelerometerHandler";
+
     private final SensorManager sensorManager;
     private final Sensor accelerometer;
-    private SensorAPI.SensorEventCallback listener;
+    private volatile SensorAPI.SensorEventCallback listener;
+    private HandlerThread sensorThread;
+    private volatile Handler sensorHandler;
+    private SamplingMode samplingMode = SamplingMode.BACKGROUND;
+    private final SamplingStats samplingStats;
+    private final SensorBatch batch = new SensorBatch(BATCH_CAPACITY);
+    private final SensorAPI.SensorEventCallback batchReplay = this::deliver;
+    private final Runnable batchFlush = this::flushBatch;
+    private volatile int maxReportLatencyUs;
+    private volatile TraceRecorder traceRecorder;
+    private Sensor batchSensor;
 
     private final float[] offset = new float[3];
-    private boolean isCalibrated;
+    private final float[] calibratedValues = new float[3];
+    private volatile boolean isCalibrated;
+
+    // Written by the sensor thread only
+    private volatile long eventCount;
+    private volatile long totalQueueDelayNanos;
+    private volatile long maxQueueDelayNanos;
+    private volatile long totalProcessingNanos;
 
     /**
      * Constructs a new {@code AccelerometerHandler} with the specified context, initializing
@@ -29,6 +61,17 @@ public class AccelerometerHandler implements SensorEventListener {
      * @param context the context used to access system services
      */
     public AccelerometerHandler(Context context) {
+        this(context, new SamplingStats());
+    }
+
+    /**
+     * Constructs a new {@code AccelerometerHandler} recording into the given statistics.
+     *
+     * @param context       the context used to access system services
+     * @param samplingStats the statistics recording event rate and CPU load per sampling mode
+     */
+    AccelerometerHandler(Context context, SamplingStats samplingStats) {
+        this.samplingStats = samplingStats;
         sensorManager = (SensorManager) context.getSystemService(Context.SENSOR_SERVICE);
         accelerometer = sensorManager != null ? sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER) : null;
     }
@@ -43,24 +86,122 @@ public class AccelerometerHandler implements SensorEventListener {
     }
 
     /**
-     * Starts listening to the accelerometer sensor with the fastest delay.
+     * Switches to the given sampling mode. In {@link SamplingMode#BACKGROUND} the listener is
+     * unregistered and the sensor thread quits; in all other modes events are delivered on a
+     * dedicated sensor thread at the rate and with the report latency of the mode. The
+     * calibration is kept across switches.
+     *
+     * @param mode the new sampling mode
      */
-    public void startListening() {
-        if (sensorManager != null && accelerometer != null) {
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_FASTEST);
+    public void setSamplingMode(SamplingMode mode) {
+        if (samplingMode == mode) return;
+        samplingMode = mode;
+        maxReportLatencyUs = mode.getMaxReportLatencyUs();
+        samplingStats.enter(mode);
+        if (sensorManager == null || accelerometer == null) return;
+
+        if (sensorHandler != null) sensorManager.unregisterListener(this);
+        if (!mode.isSampling()) {
+            stopSensorThread();
+            return;
         }
-        isCalibrated = false;
+        if (sensorHandler == null) {
+            sensorThread = new HandlerThread("AccelerometerHandler");
+            sensorThread.start();
+            sensorHandler = new Handler(sensorThread.getLooper());
+        }
+        sensorManager.registerListener(this, accelerometer, mode.getSamplingPeriodUs(), maxReportLatencyUs, sensorHandler);
     }
 
     /**
-     * Stops listening to the accelerometer sensor.
+     * Returns the maximum report latency of the current sampling mode. With a latency of 0,
+     * every sample is reported immediately; otherwise samples arrive in bursts and the
+     * application wakes up less often. Sensors without a hardware FIFO ignore the latency.
+     *
+     * @return the maximum report latency in microseconds, 0 if samples are not batched
      */
-    public void stopListening() {
-        if (sensorManager != null) {
-            sensorManager.unregisterListener(this);
+    public int getMaxReportLatency() {
+        return maxReportLatencyUs;
+    }
+
+    /**
+     * Returns the current sampling mode.
+     *
+     * @return the sampling mode
+     */
+    public SamplingMode getSamplingMode() {
+        return samplingMode;
+    }
+
+    /**
+     * Returns the event rate and CPU load recorded per sampling mode.
+     *
+     * @return the sampling statistics
+     */
+    public SamplingStats getSamplingStats() {
+        return samplingStats;
+    }
+
+    /**
+     * Quits the sensor thread after it has processed the pending events.
+     */
+    private void stopSensorThread() {
+        if (sensorThread != null) {
+            sensorThread.quitSafely();
+            sensorThread = null;
+            sensorHandler = null;
         }
     }
 
+    /**
+     * Sets the recorder that receives the raw and calibrated values of every delivered event.
+     * The recorder is written on the sensor thread and detached if writing fails.
+     *
+     * @param traceRecorder the recorder, or {@code null} to stop recording
+     */
+    public void setTraceRecorder(TraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    /**
+     * Returns how many events were passed to the listener.
+     *
+     * @return the number of delivered events
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the average time between the creation of an event by the sensor and its
+     * arrival on the sensor thread.
+     *
+     * @return the average queue delay in nanoseconds
+     */
+    public long getAverageQueueDelayNanos() {
+        long count = eventCount;
+        return count == 0 ? 0 : totalQueueDelayNanos / count;
+    }
+
+    /**
+     * Returns the longest time between the creation of an event by the sensor and its
+     * arrival on the sensor thread.
+     *
+     * @return the maximum queue delay in nanoseconds
+     */
+    public long getMaxQueueDelayNanos() {
+        return maxQueueDelayNanos;
+    }
+
+    /**
+     * Returns the total time spent in the listener. This work used to run on the main thread.
+     *
+     * @return the total processing time in nanoseconds
+     */
+    public long getTotalProcessingNanos() {
+        return totalProcessingNanos;
+    }
+
     /**
      * Sets the initial acceleration values to establish a baseline for calibration.
      * The initial values are stored in the offset array.
@@ -83,10 +224,9 @@ public class AccelerometerHandler implements SensorEventListener {
      * This helps in normalizing the sensor data based on the initial baseline.
      *
      * @param values the raw accelerometer values to be calibrated
-     * @return an array of calibrated values
+     * @return the reused array of calibrated values, overwritten by the next event
      */
     private float[] calibrate(float[] values) {
-        float[] calibratedValues = new float[3];
         for (int i = 0; i < calibratedValues.length; i++) {
             calibratedValues[i] = values[i] - offset[i];
         }
@@ -101,13 +241,83 @@ public class AccelerometerHandler implements SensorEventListener {
      */
     @Override
     public void onSensorChanged(SensorEvent event) {
-        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER && listener != null) {
-            if (!isCalibrated) {
-                setInitialValues(event.values);
-                isCalibrated = true;
+        if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+            long queueDelay = SystemClock.elapsedRealtimeNanos() - event.timestamp;
+            totalQueueDelayNanos += queueDelay;
+            if (queueDelay > maxQueueDelayNanos) maxQueueDelayNanos = queueDelay;
+            if (maxReportLatencyUs > 0) {
+                if (enqueue(event.sensor, event.values, event.accuracy, event.timestamp)) scheduleFlush();
+            } else {
+                deliver(event.sensor, event.values, event.accuracy, event.timestamp);
+            }
+        }
+    }
+
+    /**
+     * Posts the flush of the batch just started to the sensor thread. The handler is cleared
+     * on the UI thread when the sensor thread quits, while events it had already received
+     * may still be dispatched; their batch is then flushed right away on the sensor thread,
+     * so that it does not stay pending.
+     */
+    void scheduleFlush() {
+        Handler handler = sensorHandler;
+        if (handler == null || !handler.post(batchFlush)) flushBatch();
+    }
+
+    /**
+     * Adds a raw sample to the current batch. The batch is flushed once all events of the
+     * burst, which the sensor framework dispatches back to back, have been received.
+     *
+     * @param sensor    the sensor that generated the event
+     * @param values    the raw accelerometer values
+     * @param accuracy  the accuracy of the values
+     * @param timestamp the time of the event in nanoseconds
+     * @return {@code true} if this is the first sample of a batch and a flush must be scheduled
+     */
+    boolean enqueue(Sensor sensor, float[] values, int accuracy, long timestamp) {
+        batchSensor = sensor;
+        batch.add(values, accuracy, timestamp);
+        return batch.size() == 1;
+    }
+
+    /**
+     * Replays the current batch to the listener in timestamp order.
+     */
+    void flushBatch() {
+        batch.replay(batchSensor, batchReplay);
+    }
+
+    /**
+     * Calibrates the raw values of an accelerometer event and passes them to the listener.
+     *
+     * @param sensor    the sensor that generated the event
+     * @param values    the raw accelerometer values
+     * @param accuracy  the accuracy of the values
+     * @param timestamp the time of the event in nanoseconds
+     */
+    void deliver(Sensor sensor, float[] values, int accuracy, long timestamp) {
+        SensorAPI.SensorEventCallback listener = this.listener;
+        if (listener == null) return;
+        if (!isCalibrated) {
+            setInitialValues(values);
+            isCalibrated = true;
+        }
+        float[] calibrated = calibrate(values);
+        TraceRecorder recorder = traceRecorder;
+        if (recorder != null) {
+            try {
+                recorder.record(values, calibrated, timestamp);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot record sensor trace", e);
+                traceRecorder = null;
             }
-            listener.onSensorChanged(event.sensor, calibrate(event.values), event.accuracy, event.timestamp);
         }
+        long start = System.nanoTime();
+        listener.onSensorChanged(sensor, calibrated, accuracy, timestamp);
+        long processingNanos = System.nanoTime() - start;
+        totalProcessingNanos += processingNanos;
+        eventCount++;
+        samplingStats.record(processingNanos);
     }
 
     @Override
@@ -0,0 +1,81 @@
+package com.example.comvi.sensor;
+
+/**
+ * The {@code GravityFilter} class continuously estimates the gravity component of the
+ * accelerometer samples with a low-pass filter and removes it, leaving the linear
+ * acceleration caused by moving the device. Unlike a single calibration sample, the
+ * estimate follows the device when it is tilted, so gesture detection does not depend
+ * on the orientation at the time of calibration.
+ * The filter adapts to the sample rate by using the time between samples, and works
+ * in place, so filtering does not allocate.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class GravityFilter {
+
+    public static final long DEFAULT_TIME_CONSTANT_NANOS = 1_000_000_000L;
+
+    private final float timeConstantNanos;
+    private final float[] gravity = new float[3];
+    private long previousTimestamp;
+    private boolean initialized;
+
+    /**
+     * Constructs a new {@code GravityFilter} with the default time constant.
+     */
+    public GravityFilter() {
+        this(DEFAULT_TIME_CONSTANT_NANOS);
+    }
+
+    /**
+     * Constructs a new {@code GravityFilter}.
+     *
+     * @param timeConstantNanos the time constant of the low-pass filter in nanoseconds;
+     *                          changes slower than this are treated as gravity
+     */
+    public GravityFilter(long timeConstantNanos) {
+        this.timeConstantNanos = timeConstantNanos;
+    }
+
+    /**
+     * Updates the gravity estimate with a sample and subtracts the estimate from it in place.
+     * The first sample initializes the estimate.
+     *
+     * @param values         the accelerometer values, replaced by the linear acceleration
+     * @param timestampNanos the time of the sample in nanoseconds
+     */
+    public void apply(float[] values, long timestampNanos) {
+        if (!initialized) {
+            System.arraycopy(values, 0, gravity, 0, 3);
+            initialized = true;
+        } else {
+            long elapsed = timestampNanos - previousTimestamp;
+            float alpha = elapsed <= 0 ? 0 : elapsed / (timeConstantNanos + elapsed);
+            for (int i = 0; i < 3; i++) {
+                gravity[i] += alpha * (values[i] - gravity[i]);
+            }
+        }
+        previousTimestamp = timestampNanos;
+        for (int i = 0; i < 3; i++) {
+            values[i] -= gravity[i];
+        }
+    }
+
+    /**
+     * Returns one axis of the current gravity estimate.
+     *
+     * @param axis 0 for X, 1 for Y, 2 for Z
+     * @return the estimated gravity along the axis
+     */
+    public float getGravity(int axis) {
+        return gravity[axis];
+    }
+
+    /**
+     * Discards the gravity estimate, so that the next sample initializes it again.
+     */
+    public void reset() {
+        initialized = false;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.comvi.sensor;
+
+/**
+ * The {@code Resampler} class turns accelerometer samples arriving at the rate of the
+ * device into samples at a fixed nominal rate, using the timestamps of the samples.
+ * Output samples lie on a regular grid and are linearly interpolated between the two
+ * input samples around them. Faster devices therefore deliver fewer samples downstream,
+ * and slower devices more, so that windows expressed in samples cover the same time
+ * everywhere.
+ * Interpolating a faster input at the grid points alone would skip short peaks, such as
+ * the rise and fall of a drop lasting a single input sample each. An input sample is
+ * therefore kept as a peak if the line through its two neighbours misses it by more than
+ * the peak threshold. Peaks are queued and each replaces the next grid point, so that
+ * every peak is passed on, in order and at most a few grid points late. Only the last two
+ * input samples and a few peaks are kept, so resampling takes constant memory and does
+ * not allocate.
+ * A gap longer than the maximum gap, for example after sampling was paused, or a
+ * timestamp going backwards restarts the grid at the new sample instead of
+ * interpolating across it.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class Resampler implements SensorAPI.SampleConsumer {
+
+    public static final long DEFAULT_MAX_GAP_NANOS = 200_000_000L;
+
+    /**
+     * The default distance in m/s² between an input sample and the line through its
+     * neighbours above which the sample is kept as a peak, well above sensor noise.
+     */
+    public static final float DEFAULT_PEAK_THRESHOLD = 4f;
+
+    private static final int PEAK_CAPACITY = 4;
+
+    private final long periodNanos;
+    private final long maxGapNanos;
+    private final float peakThresholdSquared;
+    private final SensorAPI.SampleConsumer consumer;
+    private boolean started;
+    private boolean hasBeforePrevious;
+    private float beforePreviousX;
+    private float beforePreviousY;
+    private float beforePreviousZ;
+    private long beforePreviousTimestamp;
+    private float previousX;
+    private float previousY;
+    private float previousZ;
+    private long previousTimestamp;
+    private long nextTimestamp;
+    private long outputCount;
+    private final float[] peaks = new float[PEAK_CAPACITY * 3];
+    private int peakHead;
+    private int peakCount;
+
+    /**
+     * Constructs a new {@code Resampler} with the default maximum gap and peak threshold.
+     *
+     * @param periodNanos the period of the output samples in nanoseconds
+     * @param consumer    the consumer receiving the resampled samples
+     */
+    public Resampler(long periodNanos, SensorAPI.SampleConsumer consumer) {
+        this(periodNanos, DEFAULT_MAX_GAP_NANOS, DEFAULT_PEAK_THRESHOLD, consumer);
+    }
+
+    /**
+     * Constructs a new {@code Resampler} with the default peak threshold.
+     *
+     * @param periodNanos the period of the output samples in nanoseconds
+     * @param maxGapNanos the longest time between two input samples that is interpolated
+     * @param consumer    the consumer receiving the resampled samples
+     * @throws IllegalArgumentException if the period is not positive
+     */
+    public Resampler(long periodNanos, long maxGapNanos, SensorAPI.SampleConsumer consumer) {
+        this(periodNanos, maxGapNanos, DEFAULT_PEAK_THRESHOLD, consumer);
+    }
+
+    /**
+     * Constructs a new {@code Resampler}.
+     *
+     * @param periodNanos   the period of the output samples in nanoseconds
+     * @param maxGapNanos   the longest time between two input samples that is interpolated
+     * @param peakThreshold the distance between an input sample and the line through its
+     *                      neighbours above which it is kept as a peak, infinite to only interpolate
+     * @param consumer      the consumer receiving the resampled samples
+     * @throws IllegalArgumentException if the period or the peak threshold is not positive
+     */
+    public Resampler(long periodNanos, long maxGapNanos, float peakThreshold, SensorAPI.SampleConsumer consumer) {
+        if (periodNanos <= 0) throw new IllegalArgumentException("Period must be positive: " + periodNanos);
+        if (!(peakThreshold > 0)) throw new IllegalArgumentException("Peak threshold must be positive: " + peakThreshold);
+        this.periodNanos = periodNanos;
+        this.maxGapNanos = maxGapNanos;
+        this.peakThresholdSquared = peakThreshold * peakThreshold;
+        this.consumer = consumer;
+    }
+
+    /**
+     * Queues the previous sample if it is a peak, then passes every grid point up to the
+     * timestamp of the sample to the consumer, each replaced by the oldest queued peak or
+     * interpolated between the previous sample and this one.
+     */
+    @Override
+    public void onSample(float x, float y, float z, long timestampNanos) {
+        long elapsed = timestampNanos - previousTimestamp;
+        if (!started || elapsed < 0 || elapsed > maxGapNanos) {
+            started = true;
+            hasBeforePrevious = false;
+            peakCount = 0;
+            nextTimestamp = timestampNanos + periodNanos;
+            emit(x, y, z, timestampNanos);
+        } else {
+            if (hasBeforePrevious) queueIfPeak(x, y, z, timestampNanos);
+            while (nextTimestamp <= timestampNanos) {
+                if (peakCount > 0) {
+                    int peak = peakHead * 3;
+                    peakHead = (peakHead + 1) % PEAK_CAPACITY;
+                    peakCount--;
+                    emit(peaks[peak], peaks[peak + 1], peaks[peak + 2], nextTimestamp);
+                } else {
+                    float fraction = elapsed == 0 ? 1f : (float) (nextTimestamp - previousTimestamp) / elapsed;
+                    emit(previousX + fraction * (x - previousX),
+                            previousY + fraction * (y - previousY),
+                            previousZ + fraction * (z - previousZ),
+                            nextTimestamp);
+                }
+                nextTimestamp += periodNanos;
+            }
+            hasBeforePrevious = true;
+        }
+        beforePreviousX = previousX;
+        beforePreviousY = previousY;
+        beforePreviousZ = previousZ;
+        beforePreviousTimestamp = previousTimestamp;
+        previousX = x;
+        previousY = y;
+        previousZ = z;
+        previousTimestamp = timestampNanos;
+    }
+
+    /**
+     * Queues the previous sample if the line from the sample before it to the given sample
+     * misses it by more than the peak threshold. A peak arriving while the queue is full is
+     * interpolated like any other sample.
+     */
+    private void queueIfPeak(float x, float y, float z, long timestampNanos) {
+        long span = timestampNanos - beforePreviousTimestamp;
+        float fraction = span == 0 ? 0f : (float) (previousTimestamp - beforePreviousTimestamp) / span;
+        float dx = previousX - (beforePreviousX + fraction * (x - beforePreviousX));
+        float dy = previousY - (beforePreviousY + fraction * (y - beforePreviousY));
+        float dz = previousZ - (beforePreviousZ + fraction * (z - beforePreviousZ));
+        if (dx * dx + dy * dy + dz * dz <= peakThresholdSquared || peakCount == PEAK_CAPACITY) return;
+
+        int peak = ((peakHead + peakCount) % PEAK_CAPACITY) * 3;
+        peaks[peak] = previousX;
+        peaks[peak + 1] = previousY;
+        peaks[peak + 2] = previousZ;
+        peakCount++;
+    }
+
+    /**
+     * Returns the number of samples passed to the consumer.
+     *
+     * @return the number of resampled samples
+     */
+    public long getOutputCount() {
+        return outputCount;
+    }
+
+    /**
+     * Discards the previous sample, so that the next sample restarts the grid.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    private void emit(float x, float y, float z, long timestampNanos) {
+        outputCount++;
+        consumer.onSample(x, y, z, timestampNanos);
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.comvi.sensor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code SampleRing} class hands accelerometer samples from the sensor thread to any
+ * number of consumers without locks and without allocating per sample.
+ * Samples are stored as primitive {@code (x, y, z, t)} records in preallocated arrays.
+ * There is a single producer; every consumer reads at its own pace through a {@link Cursor}.
+ * The producer never waits: a consumer that falls more than one lap behind loses the
+ * oldest samples, which are counted as overruns of its cursor.
+ * Every slot carries the sequence number of the sample it holds, so a consumer detects
+ * a slot that was overwritten while it was being read.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class SampleRing {
+
+    private static final long WRITING = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray xy;
+    private final AtomicLongArray z;
+    private final AtomicLongArray timestamps;
+    private final AtomicLong published = new AtomicLong();
+
+    /**
+     * Constructs a new {@code SampleRing}.
+     *
+     * @param capacity the number of samples kept, rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public SampleRing(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.sequences = new AtomicLongArray(this.capacity);
+        this.xy = new AtomicLongArray(this.capacity);
+        this.z = new AtomicLongArray(this.capacity);
+        this.timestamps = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) sequences.set(i, WRITING);
+    }
+
+    /**
+     * Returns the number of samples the ring keeps.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of samples published so far.
+     *
+     * @return the number of published samples
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * Publishes a sample. Must only be called from the single producer thread.
+     *
+     * @param x              the acceleration along the X-axis
+     * @param y              the acceleration along the Y-axis
+     * @param z              the acceleration along the Z-axis
+     * @param timestampNanos the timestamp of the sample in nanoseconds
+     */
+    public void publish(float x, float y, float z, long timestampNanos) {
+        long sequence = published.get();
+        int slot = (int) (sequence & mask);
+        sequences.set(slot, WRITING);
+        xy.lazySet(slot, ((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xFFFFFFFFL));
+        this.z.lazySet(slot, Float.floatToRawIntBits(z));
+        timestamps.lazySet(slot, timestampNanos);
+        sequences.set(slot, sequence);
+        published.set(sequence + 1);
+    }
+
+    /**
+     * Creates a cursor that receives the samples published from now on.
+     *
+     * @return a new cursor
+     */
+    public Cursor newCursor() {
+        return new Cursor(published.get());
+    }
+
+    /**
+     * The {@code Cursor} class is the read position of one consumer. A cursor must only
+     * be used by one thread at a time.
+     */
+    public final class Cursor {
+
+        private long next;
+        private long overruns;
+
+        private Cursor(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Passes up to {@code max} pending samples to the consumer, oldest first.
+         *
+         * @param consumer the consumer receiving the samples
+         * @param max      the maximum number of samples to pass
+         * @return the number of samples passed to the consumer
+         */
+        public int drain(SensorAPI.SampleConsumer consumer, int max) {
+            long head = published.get();
+            int drained = 0;
+            while (drained < max && next < head) {
+                if (head - next > capacity) {
+                    overruns += head - capacity - next;
+                    next = head - capacity;
+                }
+                int slot = (int) (next & mask);
+                if (sequences.get(slot) != next) {
+                    overruns++;
+                    next++;
+                    head = published.get();
+                    continue;
+                }
+                long packed = xy.get(slot);
+                float sampleZ = Float.intBitsToFloat((int) z.get(slot));
+                long timestamp = timestamps.get(slot);
+                if (sequences.get(slot) != next) {
+                    overruns++;
+                    next++;
+                    head = published.get();
+                    continue;
+                }
+                next++;
+                drained++;
+                consumer.onSample(Float.intBitsToFloat((int) (packed >>> 32)), Float.intBitsToFloat((int) packed), sampleZ, timestamp);
+            }
+            return drained;
+        }
+
+        /**
+         * Returns the number of samples waiting for this cursor, including samples that
+         * will be lost to an overrun.
+         *
+         * @return the number of pending samples
+         */
+        public long getPending() {
+            return published.get() - next;
+        }
+
+        /**
+         * Returns the number of samples this cursor lost because the producer overwrote them.
+         *
+         * @return the number of lost samples
+         */
+        public long getOverruns() {
+            return overruns;
+        }
+    }
+}
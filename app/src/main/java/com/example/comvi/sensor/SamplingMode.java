@@ -0,0 +1,67 @@
+package com.example.comvi.sensor;
+
+import android.hardware.SensorManager;
+
+/**
+ * The {@code SamplingMode} enum defines how often the accelerometer is sampled,
+ * depending on what the application currently needs the samples for.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public enum SamplingMode {
+
+    /**
+     * The activity is not visible; the accelerometer is not sampled at all.
+     */
+    BACKGROUND(-1, 0),
+
+    /**
+     * No note can be dropped; samples move the ball and are needed for the pickup and
+     * shake detection, but may be batched by the sensor hub for a few UI frames. They are
+     * sampled at about 50 Hz, since at the 15 Hz of {@code SENSOR_DELAY_UI} the swings of
+     * a fast shake can fall between two samples.
+     */
+    IDLE(SensorManager.SENSOR_DELAY_GAME, 100_000),
+
+    /**
+     * A note can be dropped; samples are needed for gesture detection and are reported
+     * without delay.
+     */
+    ARMED(SensorManager.SENSOR_DELAY_FASTEST, 0);
+
+    private final int samplingPeriodUs;
+    private final int maxReportLatencyUs;
+
+    SamplingMode(int samplingPeriodUs, int maxReportLatencyUs) {
+        this.samplingPeriodUs = samplingPeriodUs;
+        this.maxReportLatencyUs = maxReportLatencyUs;
+    }
+
+    /**
+     * Returns the sampling period passed to the {@link SensorManager}.
+     *
+     * @return the sampling period in microseconds, or one of the {@code SensorManager.SENSOR_DELAY_*} constants
+     */
+    public int getSamplingPeriodUs() {
+        return samplingPeriodUs;
+    }
+
+    /**
+     * Returns how long the sensor hub may hold samples back before reporting them.
+     *
+     * @return the maximum report latency in microseconds, 0 if samples are reported immediately
+     */
+    public int getMaxReportLatencyUs() {
+        return maxReportLatencyUs;
+    }
+
+    /**
+     * Returns whether the accelerometer is sampled in this mode.
+     *
+     * @return {@code true} unless this is {@link #BACKGROUND}
+     */
+    public boolean isSampling() {
+        return samplingPeriodUs >= 0;
+    }
+}
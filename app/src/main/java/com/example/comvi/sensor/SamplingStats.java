@@ -0,0 +1,137 @@
+package com.example.comvi.sensor;
+
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * The {@code SamplingStats} class records, per {@link SamplingMode}, how long the mode was
+ * active, how many events were delivered and how much time was spent processing them.
+ * From these it reports events per second and the estimated CPU load of each mode.
+ * Events may be recorded on the sensor thread while modes are switched on another thread.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class SamplingStats {
+
+    private static final int MODES = SamplingMode.values().length;
+
+    private final LongSupplier clock;
+    private final AtomicLongArray events = new AtomicLongArray(MODES);
+    private final AtomicLongArray processingNanos = new AtomicLongArray(MODES);
+    private final AtomicLongArray activeNanos = new AtomicLongArray(MODES);
+    private volatile SamplingMode mode = SamplingMode.BACKGROUND;
+    private long modeStartNanos;
+    private boolean started;
+
+    /**
+     * Constructs new {@code SamplingStats} measuring time with the elapsed realtime clock.
+     */
+    public SamplingStats() {
+        this(SystemClock::elapsedRealtimeNanos);
+    }
+
+    /**
+     * Constructs new {@code SamplingStats} measuring time with the given clock.
+     *
+     * @param clock the clock returning the current time in nanoseconds
+     */
+    SamplingStats(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Ends the current mode and starts measuring the given one. Time before the first
+     * call is not attributed to any mode.
+     *
+     * @param mode the mode that becomes active
+     */
+    public synchronized void enter(SamplingMode mode) {
+        long now = clock.getAsLong();
+        if (started) activeNanos.addAndGet(this.mode.ordinal(), now - modeStartNanos);
+        started = true;
+        modeStartNanos = now;
+        this.mode = mode;
+    }
+
+    /**
+     * Records one delivered event in the current mode.
+     *
+     * @param processingNanos the time spent processing the event
+     */
+    public void record(long processingNanos) {
+        int index = mode.ordinal();
+        events.incrementAndGet(index);
+        this.processingNanos.addAndGet(index, processingNanos);
+    }
+
+    /**
+     * Returns the mode currently measured.
+     *
+     * @return the current mode
+     */
+    public SamplingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of events delivered in the given mode.
+     *
+     * @param mode the mode
+     * @return the number of events
+     */
+    public long getEvents(SamplingMode mode) {
+        return events.get(mode.ordinal());
+    }
+
+    /**
+     * Returns how long the given mode was active, including the current period if it is active now.
+     *
+     * @param mode the mode
+     * @return the active time in nanoseconds
+     */
+    public synchronized long getActiveNanos(SamplingMode mode) {
+        long active = activeNanos.get(mode.ordinal());
+        if (started && mode == this.mode) active += clock.getAsLong() - modeStartNanos;
+        return active;
+    }
+
+    /**
+     * Returns the average number of events per second while the given mode was active.
+     *
+     * @param mode the mode
+     * @return the event rate, or 0 if the mode was never active
+     */
+    public double getEventsPerSecond(SamplingMode mode) {
+        long active = getActiveNanos(mode);
+        return active == 0 ? 0 : getEvents(mode) * 1e9 / active;
+    }
+
+    /**
+     * Returns the estimated share of one CPU core spent processing events while the given mode was active.
+     *
+     * @param mode the mode
+     * @return the CPU load between 0 and 1, or 0 if the mode was never active
+     */
+    public double getCpuLoad(SamplingMode mode) {
+        long active = getActiveNanos(mode);
+        return active == 0 ? 0 : (double) processingNanos.get(mode.ordinal()) / active;
+    }
+
+    /**
+     * Returns a summary of the event rate and CPU load of every mode.
+     *
+     * @return a human readable summary
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        for (SamplingMode mode : SamplingMode.values()) {
+            if (summary.length() > 0) summary.append(", ");
+            summary.append(String.format("%s: %.1f events/s, %.2f%% CPU", mode, getEventsPerSecond(mode), getCpuLoad(mode) * 100));
+        }
+        return summary.toString();
+    }
+}
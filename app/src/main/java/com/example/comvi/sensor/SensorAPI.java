@@ -18,14 +18,32 @@ public interface SensorAPI {
     interface SensorEventCallback {
 
         /**
-         * Called when there is a new sensor event.
+         * Called on the sensor thread when there is a new sensor event. The values array
+         * is reused for the next event, so implementations must copy the values they want to keep.
          *
          * @param sensor    the sensor that generated the event
-         * @param values    the values from the sensor event
+         * @param values    the values from the sensor event, only valid during this call
          * @param accuracy  the accuracy of the sensor event
          * @param timestamp the timestamp when the event occurred
          */
         void onSensorChanged(Sensor sensor, float[] values, int accuracy, long timestamp);
     }
 
-}
\ No newline at end of file
+    /**
+     * The {@code SampleConsumer} interface receives accelerometer samples as primitives,
+     * so that handing a sample to a consumer does not allocate.
+     */
+    interface SampleConsumer {
+
+        /**
+         * Called for each sample taken from a {@link SampleRing}.
+         *
+         * @param x              the acceleration along the X-axis
+         * @param y              the acceleration along the Y-axis
+         * @param z              the acceleration along the Z-axis
+         * @param timestampNanos the timestamp of the sample in nanoseconds
+         */
+        void onSample(float x, float y, float z, long timestampNanos);
+    }
+
+}
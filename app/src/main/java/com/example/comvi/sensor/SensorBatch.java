@@ -0,0 +1,118 @@
+package com.example.comvi.sensor;
+
+import android.hardware.Sensor;
+
+/**
+ * The {@code SensorBatch} class collects the samples of a burst delivered by the sensor
+ * hub when batching is enabled, and replays them in timestamp order. Samples are stored
+ * in primitive arrays that are reused for every batch and only grow when a batch is
+ * larger than any batch before.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+class SensorBatch {
+
+    private static final int AXES = 3;
+
+    private final float[] replayValues = new float[AXES];
+    private float[] values;
+    private long[] timestamps;
+    private int[] accuracies;
+    private int size;
+
+    /**
+     * Constructs a new, empty {@code SensorBatch}.
+     *
+     * @param capacity the number of samples that fit before the arrays grow
+     */
+    SensorBatch(int capacity) {
+        values = new float[capacity * AXES];
+        timestamps = new long[capacity];
+        accuracies = new int[capacity];
+    }
+
+    /**
+     * Adds a copy of a sample to the batch.
+     *
+     * @param sample    the sensor values, of which the first three are copied
+     * @param accuracy  the accuracy of the sample
+     * @param timestamp the time of the sample in nanoseconds
+     */
+    void add(float[] sample, int accuracy, long timestamp) {
+        if (size == timestamps.length) grow();
+        System.arraycopy(sample, 0, values, size * AXES, AXES);
+        timestamps[size] = timestamp;
+        accuracies[size] = accuracy;
+        size++;
+    }
+
+    /**
+     * Returns the number of samples in the batch.
+     *
+     * @return the number of samples
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the samples by timestamp, passes them to the callback one by one and empties
+     * the batch. The values array passed to the callback is reused for every sample.
+     *
+     * @param sensor   the sensor that generated the samples
+     * @param callback the callback receiving the samples in timestamp order
+     */
+    void replay(Sensor sensor, SensorAPI.SensorEventCallback callback) {
+        sort();
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(values, i * AXES, replayValues, 0, AXES);
+            callback.onSensorChanged(sensor, replayValues, accuracies[i], timestamps[i]);
+        }
+        size = 0;
+    }
+
+    /**
+     * Sorts the samples by timestamp with an insertion sort, which is stable and runs in
+     * linear time for the nearly ordered bursts delivered by the sensor hub.
+     */
+    private void sort() {
+        for (int i = 1; i < size; i++) {
+            long timestamp = timestamps[i];
+            if (timestamp >= timestamps[i - 1]) continue;
+
+            int accuracy = accuracies[i];
+            float x = values[i * AXES];
+            float y = values[i * AXES + 1];
+            float z = values[i * AXES + 2];
+            int j = i - 1;
+            while (j >= 0 && timestamps[j] > timestamp) {
+                timestamps[j + 1] = timestamps[j];
+                accuracies[j + 1] = accuracies[j];
+                System.arraycopy(values, j * AXES, values, (j + 1) * AXES, AXES);
+                j--;
+            }
+            timestamps[j + 1] = timestamp;
+            accuracies[j + 1] = accuracy;
+            values[(j + 1) * AXES] = x;
+            values[(j + 1) * AXES + 1] = y;
+            values[(j + 1) * AXES + 2] = z;
+        }
+    }
+
+    /**
+     * Doubles the capacity of the batch.
+     */
+    private void grow() {
+        int capacity = Math.max(1, timestamps.length * 2);
+        float[] grownValues = new float[capacity * AXES];
+        long[] grownTimestamps = new long[capacity];
+        int[] grownAccuracies = new int[capacity];
+        System.arraycopy(values, 0, grownValues, 0, size * AXES);
+        System.arraycopy(timestamps, 0, grownTimestamps, 0, size);
+        System.arraycopy(accuracies, 0, grownAccuracies, 0, size);
+        values = grownValues;
+        timestamps = grownTimestamps;
+        accuracies = grownAccuracies;
+    }
+}
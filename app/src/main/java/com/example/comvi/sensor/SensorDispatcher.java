@@ -0,0 +1,163 @@
+package com.example.comvi.sensor;
+
+import android.hardware.Sensor;
+import android.os.Handler;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The {@code SensorDispatcher} class distributes the samples of one sensor registration
+ * to any number of subscribers. Each subscriber chooses its own rate by decimation and
+ * either receives samples directly on the sensor thread or through a {@link Handler} on
+ * a thread of its choice.
+ * Subscribers with a handler read from a shared {@link SampleRing}. They never slow down
+ * the sensor thread: at most one drain is queued per subscriber, and a subscriber that
+ * cannot keep up loses its oldest samples, which are counted as overruns.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class SensorDispatcher implements SensorAPI.SensorEventCallback {
+
+    private static final int MAX_DRAIN = 256;
+
+    private final SampleRing ring;
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    /**
+     * Constructs a new {@code SensorDispatcher}.
+     *
+     * @param ring the ring buffering samples for subscribers with a handler
+     */
+    public SensorDispatcher(SampleRing ring) {
+        this.ring = ring;
+    }
+
+    /**
+     * Subscribes a consumer to the samples.
+     *
+     * @param consumer   the consumer receiving the samples
+     * @param decimation deliver every n-th sample only; 1 delivers every sample
+     * @param handler    the handler on whose thread samples are delivered, or {@code null}
+     *                   to receive them directly on the sensor thread
+     * @return the subscription, used to unsubscribe
+     * @throws IllegalArgumentException if the decimation is not positive
+     */
+    public synchronized Subscription subscribe(SensorAPI.SampleConsumer consumer, int decimation, Handler handler) {
+        if (decimation <= 0) throw new IllegalArgumentException("Decimation must be positive: " + decimation);
+        Subscription subscription = new Subscription(consumer, decimation, handler);
+        Subscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        updated[updated.length - 1] = subscription;
+        subscriptions = updated;
+        return subscription;
+    }
+
+    /**
+     * Removes a subscription. Samples already queued for it are dropped.
+     *
+     * @param subscription the subscription to remove
+     */
+    public synchronized void unsubscribe(Subscription subscription) {
+        Subscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                Subscription[] updated = new Subscription[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                subscriptions = updated;
+                subscription.active = false;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Publishes a sample to the ring and delivers it to all subscribers on the sensor thread.
+     * Subscribers with a handler get a drain posted unless one is already queued.
+     *
+     * @param sensor    the sensor that generated the event
+     * @param values    the calibrated values
+     * @param accuracy  the accuracy of the values
+     * @param timestamp the time of the event in nanoseconds
+     */
+    @Override
+    public void onSensorChanged(Sensor sensor, float[] values, int accuracy, long timestamp) {
+        ring.publish(values[0], values[1], values[2], timestamp);
+        Subscription[] current = subscriptions;
+        for (Subscription subscription : current) {
+            if (subscription.handler == null) {
+                subscription.onSample(values[0], values[1], values[2], timestamp);
+            } else if (subscription.drainScheduled.compareAndSet(false, true)) {
+                subscription.handler.post(subscription.drain);
+            }
+        }
+    }
+
+    /**
+     * The {@code Subscription} class represents one subscriber of a {@link SensorDispatcher}.
+     */
+    public final class Subscription implements SensorAPI.SampleConsumer {
+
+        private final SensorAPI.SampleConsumer consumer;
+        private final int decimation;
+        private final Handler handler;
+        private final SampleRing.Cursor cursor;
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private final Runnable drain = this::drain;
+        private volatile boolean active = true;
+        private int skipped;
+        private volatile long delivered;
+
+        private Subscription(SensorAPI.SampleConsumer consumer, int decimation, Handler handler) {
+            this.consumer = consumer;
+            this.decimation = decimation;
+            this.handler = handler;
+            this.cursor = handler != null ? ring.newCursor() : null;
+        }
+
+        /**
+         * Returns how many samples were delivered to the consumer.
+         *
+         * @return the number of delivered samples
+         */
+        public long getDelivered() {
+            return delivered;
+        }
+
+        /**
+         * Returns how many samples the consumer lost because it did not keep up.
+         * Always 0 for subscribers on the sensor thread.
+         *
+         * @return the number of lost samples
+         */
+        public long getOverruns() {
+            return cursor != null ? cursor.getOverruns() : 0;
+        }
+
+        /**
+         * Takes the pending samples from the ring on the handler thread. If more samples are
+         * pending than one drain delivers, another drain is queued so the handler thread is
+         * not blocked.
+         */
+        void drain() {
+            drainScheduled.set(false);
+            if (!active) return;
+            cursor.drain(this, MAX_DRAIN);
+            if (cursor.getPending() > 0 && drainScheduled.compareAndSet(false, true)) {
+                handler.post(drain);
+            }
+        }
+
+        /**
+         * Passes every n-th sample to the consumer.
+         */
+        @Override
+        public void onSample(float x, float y, float z, long timestampNanos) {
+            if (++skipped < decimation) return;
+            skipped = 0;
+            delivered++;
+            consumer.onSample(x, y, z, timestampNanos);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.comvi.sensor;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * The {@code SensorTrace} class holds the samples of a trace written by a {@link TraceRecorder}
+ * in primitive arrays, and replays them at full speed, so that gesture detection can be
+ * benchmarked and regression-tested on the JVM against recordings from the field.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class SensorTrace {
+
+    private final long[] timestamps;
+    private final float[] raw;
+    private final float[] calibrated;
+    private final int size;
+
+    private SensorTrace(long[] timestamps, float[] raw, float[] calibrated, int size) {
+        this.timestamps = timestamps;
+        this.raw = raw;
+        this.calibrated = calibrated;
+        this.size = size;
+    }
+
+    /**
+     * Reads a complete trace. A sample cut off at the end of the stream is ignored.
+     *
+     * @param in the stream to read the trace from
+     * @return the trace
+     * @throws IOException if the stream cannot be read or does not contain a trace
+     */
+    public static SensorTrace read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != TraceRecorder.MAGIC) throw new IOException("Not a sensor trace");
+        int version = data.readUnsignedByte();
+        if (version != TraceRecorder.VERSION) throw new IOException("Unsupported trace version " + version);
+
+        long[] timestamps = new long[1024];
+        float[] raw = new float[1024 * 3];
+        float[] calibrated = new float[1024 * 3];
+        int size = 0;
+        long micros = 0;
+        while (true) {
+            int first = data.read();
+            if (first < 0) break;
+            try {
+                long delta = readVarint(data, first);
+                micros += (delta >>> 1) ^ -(delta & 1);
+                if (size == timestamps.length) {
+                    timestamps = Arrays.copyOf(timestamps, size * 2);
+                    raw = Arrays.copyOf(raw, size * 6);
+                    calibrated = Arrays.copyOf(calibrated, size * 6);
+                }
+                timestamps[size] = micros * 1_000;
+                for (int i = 0; i < 3; i++) raw[size * 3 + i] = data.readShort() / TraceRecorder.FIXED_POINT_SCALE;
+                for (int i = 0; i < 3; i++) calibrated[size * 3 + i] = data.readShort() / TraceRecorder.FIXED_POINT_SCALE;
+                size++;
+            } catch (EOFException e) {
+                break;
+            }
+        }
+        return new SensorTrace(timestamps, raw, calibrated, size);
+    }
+
+    /**
+     * Returns the number of samples in the trace.
+     *
+     * @return the number of samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the timestamp of a sample.
+     *
+     * @param index the index of the sample
+     * @return the timestamp in nanoseconds, with microsecond resolution
+     */
+    public long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    /**
+     * Returns one raw axis of a sample.
+     *
+     * @param index the index of the sample
+     * @param axis  0 for X, 1 for Y, 2 for Z
+     * @return the raw acceleration along the axis
+     */
+    public float getRaw(int index, int axis) {
+        return raw[index * 3 + axis];
+    }
+
+    /**
+     * Returns one calibrated axis of a sample.
+     *
+     * @param index the index of the sample
+     * @param axis  0 for X, 1 for Y, 2 for Z
+     * @return the calibrated acceleration along the axis
+     */
+    public float getCalibrated(int index, int axis) {
+        return calibrated[index * 3 + axis];
+    }
+
+    /**
+     * Passes all calibrated samples to the consumer in recording order, as fast as possible.
+     *
+     * @param consumer the consumer receiving the samples
+     */
+    public void replay(SensorAPI.SampleConsumer consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.onSample(calibrated[i * 3], calibrated[i * 3 + 1], calibrated[i * 3 + 2], timestamps[i]);
+        }
+    }
+
+    private static long readVarint(DataInputStream data, int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int current = first;
+        while ((current & 0x80) != 0) {
+            current = data.readUnsignedByte();
+            value |= (long) (current & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+}
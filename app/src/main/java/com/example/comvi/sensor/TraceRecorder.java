@@ -0,0 +1,112 @@
+package com.example.comvi.sensor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The {@code TraceRecorder} class writes the raw and calibrated accelerometer samples
+ * into a compact binary trace that {@link SensorTrace} can read back.
+ * A trace starts with the magic number {@code CVTR} and a version byte. Each sample is
+ * stored as the zigzag varint of the time since the previous sample in microseconds,
+ * followed by the raw and the calibrated axes as signed Q8.8 fixed-point shorts,
+ * 14 bytes per sample at 200 Hz. Samples are encoded into a reused buffer, so recording
+ * does not allocate.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class TraceRecorder implements Closeable {
+
+    static final int MAGIC = 0x43565452;
+    static final int VERSION = 1;
+    static final float FIXED_POINT_SCALE = 256f;
+
+    private static final int MAX_RECORD_BYTES = 10 + 6 * 2;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private long previousMicros;
+    private long sampleCount;
+
+    /**
+     * Constructs a new {@code TraceRecorder} and writes the trace header.
+     *
+     * @param out the stream the trace is written to
+     * @throws IOException if the header cannot be written
+     */
+    public TraceRecorder(OutputStream out) throws IOException {
+        this.out = out;
+        writeInt(MAGIC);
+        buffer[position++] = VERSION;
+    }
+
+    /**
+     * Appends a sample to the trace.
+     *
+     * @param raw            the raw accelerometer values
+     * @param calibrated     the calibrated accelerometer values
+     * @param timestampNanos the time of the sample in nanoseconds
+     * @throws IOException if the buffer cannot be flushed to the stream
+     */
+    public void record(float[] raw, float[] calibrated, long timestampNanos) throws IOException {
+        if (position + MAX_RECORD_BYTES > buffer.length) flushBuffer();
+        long micros = timestampNanos / 1_000;
+        long delta = micros - previousMicros;
+        previousMicros = micros;
+
+        long zigzag = (delta << 1) ^ (delta >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        buffer[position++] = (byte) zigzag;
+
+        for (int i = 0; i < 3; i++) writeFixedPoint(raw[i]);
+        for (int i = 0; i < 3; i++) writeFixedPoint(calibrated[i]);
+        sampleCount++;
+    }
+
+    /**
+     * Returns the number of samples recorded so far.
+     *
+     * @return the number of samples
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Writes the buffered samples and closes the stream.
+     *
+     * @throws IOException if the samples cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void writeFixedPoint(float value) {
+        int fixed = Math.round(value * FIXED_POINT_SCALE);
+        fixed = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, fixed));
+        buffer[position++] = (byte) (fixed >> 8);
+        buffer[position++] = (byte) fixed;
+    }
+
+    private void writeInt(int value) {
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.comvi.ui;
+
+/**
+ * The {@code BallPositionFilter} class computes the position of the feedback ball from
+ * accelerometer samples. The X- and Y-axis are low-pass filtered and mapped onto a circular
+ * area; a ball that would leave the area is kept at its edge.
+ * The area is usually set on the UI thread while samples arrive on the sensor thread. It is
+ * published as one immutable {@link Bounds} snapshot, and the filter state is reset by the
+ * thread calling {@link #update}, so the two threads never write the same fields.
+ * The class has no Android dependencies, so the ball math can be replayed on the JVM.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class BallPositionFilter {
+
+    private static final float ALPHA_X = 0.005f;
+    private static final float ALPHA_Y = 0.025f;
+    private static final float MOVEMENT_MULTIPLIER = 1.9f;
+
+    private volatile Bounds bounds = new Bounds(0, 0, 0, 0);
+    private Bounds appliedBounds;
+    private float filteredX;
+    private float filteredY;
+    private float x;
+    private float y;
+    private boolean atEdge;
+
+    /**
+     * Sets the area the ball moves in. The ball is put back into its center by the next
+     * call to {@link #update}. Safe to call from any thread.
+     *
+     * @param centerX     the X-coordinate of the center of the area
+     * @param centerY     the Y-coordinate of the center of the area
+     * @param outerRadius the radius of the area
+     * @param ballRadius  the radius of the ball
+     */
+    public void setBounds(float centerX, float centerY, float outerRadius, float ballRadius) {
+        bounds = new Bounds(centerX, centerY, outerRadius, ballRadius);
+    }
+
+    /**
+     * Moves the ball according to the acceleration along the X- and Y-axis.
+     * May be called from any thread, but only from one thread at a time.
+     *
+     * @param accelerationX the acceleration along the X-axis
+     * @param accelerationY the acceleration along the Y-axis
+     */
+    public void update(float accelerationX, float accelerationY) {
+        Bounds bounds = this.bounds;
+        if (bounds != appliedBounds) {
+            appliedBounds = bounds;
+            filteredX = 0;
+            filteredY = 0;
+        }
+        float centerX = bounds.centerX;
+        float centerY = bounds.centerY;
+        float outerRadius = bounds.outerRadius;
+        float ballRadius = bounds.ballRadius;
+
+        filteredX = ALPHA_X * -accelerationX + (1 - ALPHA_X) * filteredX;
+        filteredY = ALPHA_Y * accelerationY + (1 - ALPHA_Y) * filteredY;
+
+        float newX = centerX + filteredX * outerRadius / 10 * MOVEMENT_MULTIPLIER;
+        float newY = centerY + filteredY * outerRadius / 10 * MOVEMENT_MULTIPLIER;
+
+        float distanceFromCenter = (float) Math.sqrt(Math.pow(newX - centerX, 2) + Math.pow(newY - centerY, 2));
+        atEdge = distanceFromCenter > outerRadius - ballRadius;
+        if (atEdge) {
+            float angle = (float) Math.atan2(newY - centerY, newX - centerX);
+            newX = centerX + (float) Math.cos(angle) * (outerRadius - ballRadius);
+            newY = centerY + (float) Math.sin(angle) * (outerRadius - ballRadius);
+        }
+        x = newX;
+        y = newY;
+    }
+
+    /**
+     * Returns the X-coordinate of the ball.
+     *
+     * @return the X-coordinate
+     */
+    public float getX() {
+        return x;
+    }
+
+    /**
+     * Returns the Y-coordinate of the ball.
+     *
+     * @return the Y-coordinate
+     */
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * Returns whether the ball is held at the edge of the area.
+     *
+     * @return {@code true} if the ball touches the edge
+     */
+    public boolean isAtEdge() {
+        return atEdge;
+    }
+
+    /**
+     * The area the ball moves in.
+     */
+    private static final class Bounds {
+        final float centerX;
+        final float centerY;
+        final float outerRadius;
+        final float ballRadius;
+
+        Bounds(float centerX, float centerY, float outerRadius, float ballRadius) {
+            this.centerX = centerX;
+            this.centerY = centerY;
+            this.outerRadius = outerRadius;
+            this.ballRadius = ballRadius;
+        }
+    }
+}
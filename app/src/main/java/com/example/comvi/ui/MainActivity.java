@@ -1,8 +1,8 @@
 package com.example.comvi.ui;
 
-import android.hardware.Sensor;
 import android.location.Location;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
@@ -11,17 +11,34 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.comvi.R;
 import com.example.comvi.core.DistanceCalculator;
+import com.example.comvi.core.DtwRecognizer;
 import com.example.comvi.core.GestureDetector;
+import com.example.comvi.core.GestureMetrics;
+import com.example.comvi.core.GestureSpec;
 import com.example.comvi.core.MotionType;
-import com.example.comvi.data.LocalStorage;
+import com.example.comvi.core.ProximityTracker;
 import com.example.comvi.data.Note;
+import com.example.comvi.data.NoteRepository;
+import com.example.comvi.data.SqliteNoteRepository;
 import com.example.comvi.location.LocationAPI;
 import com.example.comvi.location.LocationService;
 import com.example.comvi.sensor.AccelerometerHandler;
-import com.example.comvi.sensor.SensorAPI;
+import com.example.comvi.sensor.GravityFilter;
+import com.example.comvi.sensor.Resampler;
+import com.example.comvi.sensor.SamplingMode;
+import com.example.comvi.sensor.SampleRing;
+import com.example.comvi.sensor.SensorDispatcher;
 import com.example.comvi.util.VibrationManager;
 
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The {@code MainActivity} class is the main activity of the application.
@@ -30,13 +47,26 @@ import java.util.List;
  * @author gxstxxv
  * @version 1.0
  */
-public class MainActivity extends AppCompatActivity implements SensorAPI.SensorEventCallback, LocationAPI.LocationResultCallback {
+public class MainActivity extends AppCompatActivity implements LocationAPI.LocationResultCallback {
+
+    private static final String TAG = "MainActivity";
+    private static final int SAMPLE_RING_CAPACITY = 512;
+    private static final String GESTURES_ASSET = "gestures.json";
+    private static final String TEMPLATES_ASSET = "templates.json";
 
     private AccelerometerHandler accelerometerHandler;
+    private SensorDispatcher sensorDispatcher;
     private GestureDetector gestureDetector;
+    private final GestureMetrics gestureMetrics = new GestureMetrics();
+    private DtwRecognizer dtwRecognizer;
+    private final Resampler resampler = new Resampler(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, this::onResampledSample);
+    private final GravityFilter gravityFilter = new GravityFilter();
+    private final float[] linearAcceleration = new float[3];
     private DistanceCalculator distanceCalculator;
     private LocationService locationService;
-    private LocalStorage localStorage;
+    private NoteRepository noteRepository;
+    private final ExecutorService storageExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "NoteStorage"));
+    private ProximityTracker proximityTracker;
     private VibrationManager vibrationManager;
 
     private View rootView;
@@ -47,6 +77,10 @@ public class MainActivity extends AppCompatActivity implements SensorAPI.SensorE
     private Button listNotesButton;
     private Button requestLocationButton;
 
+    private final Runnable dropDetected = this::onDropDetected;
+    private final Runnable pickupDetected = this::onPickupDetected;
+    private final Runnable shakeDetected = this::onShakeDetected;
+
     /**
      * Initializes the activity, setting up views and managers.
      *
@@ -79,16 +113,88 @@ public class MainActivity extends AppCompatActivity implements SensorAPI.SensorE
 
     /**
      * Initializes the various managers used in the activity, such as sensors and location services.
+     * The note repository is opened on the storage thread, since opening it opens the database
+     * and may migrate the notes stored by earlier versions.
      */
     private void initializeManagers() {
         accelerometerHandler = new AccelerometerHandler(this);
-        accelerometerHandler.setListener(this);
+        sensorDispatcher = new SensorDispatcher(new SampleRing(SAMPLE_RING_CAPACITY));
+        accelerometerHandler.setListener(sensorDispatcher);
+        sensorDispatcher.subscribe((x, y, z, t) -> motionFeedbackView.updateBallPosition(x, y), 1, null);
+        sensorDispatcher.subscribe(resampler, 1, null);
+        noteInputView.setOnArmedChangeListener(this::onArmedChanged);
         vibrationManager = new VibrationManager(this);
         addOnClickRecalibrate(rootView);
-        gestureDetector = new GestureDetector();
+        gestureDetector = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS,
+                GestureDetector.DEFAULT_REFRACTORY_MILLIS, loadGestureSpecs());
+        gestureDetector.setEventListener(gestureMetrics);
+        dtwRecognizer = loadTemplateRecognizer();
+        gestureDetector.setRecognizer(dtwRecognizer);
+        enableGestures(noteInputView.isArmed());
         distanceCalculator = new DistanceCalculator();
         locationService = new LocationService(this, requestLocationButton);
-        localStorage = new LocalStorage(this);
+        storageExecutor.execute(() -> noteRepository = new SqliteNoteRepository(getApplicationContext(), distanceCalculator));
+        proximityTracker = new ProximityTracker();
+    }
+
+    /**
+     * Reads the gesture specs bundled as an asset, which replace the built-in gestures of
+     * the same motion type.
+     *
+     * @return the gesture specs, or an empty list if the asset cannot be read
+     */
+    private List<GestureSpec> loadGestureSpecs() {
+        try (Reader reader = new InputStreamReader(getAssets().open(GESTURES_ASSET), StandardCharsets.UTF_8)) {
+            return GestureSpec.parse(reader);
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot load " + GESTURES_ASSET + ", using the built-in gestures", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Creates a recognizer for the recorded gesture templates bundled as an optional asset.
+     *
+     * @return the recognizer, or {@code null} if no templates are bundled or they cannot be read
+     */
+    private DtwRecognizer loadTemplateRecognizer() {
+        try (Reader reader = new InputStreamReader(getAssets().open(TEMPLATES_ASSET), StandardCharsets.UTF_8)) {
+            List<DtwRecognizer.Template> templates = DtwRecognizer.parse(reader);
+            return templates.isEmpty() ? null : new DtwRecognizer(templates);
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot load " + TEMPLATES_ASSET + ", recognizing without templates", e);
+            return null;
+        }
+    }
+
+    /**
+     * Switches the gestures and the accelerometer between the idle and the armed sampling
+     * mode while the activity is in the foreground.
+     *
+     * @param armed {@code true} if the input field holds text
+     */
+    private void onArmedChanged(boolean armed) {
+        enableGestures(armed);
+        if (accelerometerHandler.getSamplingMode() == SamplingMode.BACKGROUND) return;
+        accelerometerHandler.setSamplingMode(armed ? SamplingMode.ARMED : SamplingMode.IDLE);
+    }
+
+    /**
+     * Enables dropping a note while a note was entered, and showing or dismissing the
+     * nearby notes otherwise.
+     *
+     * @param armed {@code true} if the input field holds text
+     */
+    private void enableGestures(boolean armed) {
+        gestureDetector.setEnabled(MotionType.DROP, armed);
+        gestureDetector.setEnabled(MotionType.PICKUP, !armed);
+        gestureDetector.setEnabled(MotionType.SHAKE, !armed);
+        if (dtwRecognizer == null) return;
+        dtwRecognizer.setEnabled(MotionType.DROP, armed);
+        dtwRecognizer.setEnabled(MotionType.PICKUP, !armed);
+        dtwRecognizer.setEnabled(MotionType.SHAKE, !armed);
     }
 
     /**
@@ -111,42 +217,107 @@ public class MainActivity extends AppCompatActivity implements SensorAPI.SensorE
     @Override
     protected void onResume() {
         super.onResume();
-        accelerometerHandler.startListening();
+        accelerometerHandler.setSamplingMode(noteInputView.isArmed() ? SamplingMode.ARMED : SamplingMode.IDLE);
         locationService.startLocationUpdates(this);
     }
 
     /**
-     * Stops listening to sensor and location updates when the activity is paused.
+     * Stops listening to sensor and location updates and cancels a pending location request
+     * when the activity is paused, and logs how the sensor thread, the ball rendering and the gesture detection performed.
      */
     @Override
     protected void onPause() {
         super.onPause();
-        accelerometerHandler.stopListening();
+        accelerometerHandler.setSamplingMode(SamplingMode.BACKGROUND);
         locationService.stopLocationUpdates();
+        locationService.cancelLocationRequest();
+        Log.d(TAG, String.format("Sensor events: %d, moved off the main thread: %d ms, queue delay: avg %d us, max %d us",
+                accelerometerHandler.getEventCount(),
+                accelerometerHandler.getTotalProcessingNanos() / 1_000_000,
+                accelerometerHandler.getAverageQueueDelayNanos() / 1_000,
+                accelerometerHandler.getMaxQueueDelayNanos() / 1_000));
+        Log.d(TAG, "Sampling modes: " + accelerometerHandler.getSamplingStats());
+        Log.d(TAG, String.format("Ball samples: %d, frames: %d, draws: %d",
+                motionFeedbackView.getSampleCount(),
+                motionFeedbackView.getFrameCount(),
+                motionFeedbackView.getDrawCount()));
+        Log.d(TAG, "Gestures: " + gestureMetrics);
     }
 
     /**
-     * Handles accelerometer sensor changes, checking for specific gestures and requests location updates if needed.
-     *
-     * @param sensor    the sensor that generated the event
-     * @param values    the sensor values
-     * @param accuracy  the accuracy of the values
-     * @param timestamp the time of the event
+     * Stops the storage thread once the pending saves and lookups have run.
      */
     @Override
-    public void onSensorChanged(Sensor sensor, float[] values, int accuracy, long timestamp) {
-        if (motionFeedbackView == null) return;
-
-        motionFeedbackView.updateBallPosition(values);
-        MotionType motionType = gestureDetector.detectMotion(values);
+    protected void onDestroy() {
+        super.onDestroy();
+        storageExecutor.execute(() -> noteRepository.close());
+        storageExecutor.shutdown();
+    }
 
-        if (motionType == MotionType.DROP && !noteInputView.getNoteText().isEmpty()) {
-            motionFeedbackView.displayGestureDetection(rootView);
-            vibrationManager.vibrate();
-            locationService.requestLocation(this);
+    /**
+     * Checks accelerometer samples, resampled so that gestures are detected at the same rate
+     * on every device, for gestures on the sensor thread. Gravity is
+     * removed first, so that detection does not depend on how the device was held when it
+     * was calibrated. The detector also matches the recorded templates, if any, so that
+     * matches share the refractory period of the threshold gestures. Detected gestures are
+     * posted to the UI thread, and their events are collected by the gesture metrics.
+     *
+     * @param x              the acceleration along the X-axis
+     * @param y              the acceleration along the Y-axis
+     * @param z              the acceleration along the Z-axis
+     * @param timestampNanos the time of the sample on the resampling grid
+     */
+    private void onResampledSample(float x, float y, float z, long timestampNanos) {
+        linearAcceleration[0] = x;
+        linearAcceleration[1] = y;
+        linearAcceleration[2] = z;
+        gravityFilter.apply(linearAcceleration, timestampNanos);
+        MotionType motion = gestureDetector.detectMotion(linearAcceleration[0], linearAcceleration[1], linearAcceleration[2], timestampNanos);
+        switch (motion) {
+            case DROP:
+                rootView.post(dropDetected);
+                break;
+            case PICKUP:
+                rootView.post(pickupDetected);
+                break;
+            case SHAKE:
+                rootView.post(shakeDetected);
+                break;
+            default:
+                break;
         }
     }
 
+    /**
+     * Handles a detected drop gesture on the UI thread and requests the location if a note was entered.
+     */
+    private void onDropDetected() {
+        if (!noteInputView.isArmed()) return;
+
+        motionFeedbackView.displayGestureDetection(rootView);
+        vibrationManager.vibrate();
+        gestureMetrics.onFeedback(MotionType.DROP);
+        locationService.requestLocation(this);
+    }
+
+    /**
+     * Handles a detected pickup gesture on the UI thread by showing the nearby notes.
+     */
+    private void onPickupDetected() {
+        if (noteInputView.isArmed() || proximityTracker.getNotesInRadius().isEmpty()) return;
+
+        vibrationManager.vibrate();
+        gestureMetrics.onFeedback(MotionType.PICKUP);
+        noteListView.showNotes();
+    }
+
+    /**
+     * Handles a detected shake gesture on the UI thread by dismissing the nearby notes.
+     */
+    private void onShakeDetected() {
+        noteListView.dismissNotes();
+    }
+
     /**
      * Handles location results and saves notes if the location is not null.
      *
@@ -156,8 +327,8 @@ public class MainActivity extends AppCompatActivity implements SensorAPI.SensorE
     public void onLocationResult(Location location) {
         if (location == null) return;
 
-        if (!noteInputView.getNoteText().isEmpty())
-            updateLocalStorage(location);
+        if (noteInputView.isArmed())
+            saveNote(location);
 
         updateNoteListView(location);
     }
@@ -173,26 +344,42 @@ public class MainActivity extends AppCompatActivity implements SensorAPI.SensorE
     }
 
     /**
-     * Saves a new note with the current text and specified location to local storage,
-     * then clears the input field.
+     * Saves a new note with the current text and specified location to the note repository
+     * on the storage thread, then clears the input field.
      *
      * @param location the location used to create the note
      */
-    private void updateLocalStorage(Location location) {
+    private void saveNote(Location location) {
         Note note = new Note(noteInputView.getNoteText(), location.getLatitude(), location.getLongitude());
-        localStorage.saveNote(note);
+        storageExecutor.execute(() -> noteRepository.saveNote(note));
         noteInputView.clearEditText();
     }
 
     /**
-     * Updates the note list view based on the current location, filtering notes in proximity.
+     * Looks up the notes close to the current location on the storage thread and passes
+     * them to the UI thread. Lookups run after all earlier saves, so a note saved at this
+     * location is included.
      *
      * @param location the current location
      */
     private void updateNoteListView(Location location) {
-        List<Note> notesInRadius = distanceCalculator.getNotesInRadius(location, localStorage.getNotes());
-        noteListView.setNotesInRadius(notesInRadius);
+        storageExecutor.execute(() -> {
+            List<Note> notesInRadius = noteRepository.getNotesInRadius(location);
+            rootView.post(() -> showNotesInRadius(notesInRadius));
+        });
+    }
+
+    /**
+     * Updates the note list view with the notes in proximity. The view is left untouched
+     * if no note entered or exited the radius.
+     *
+     * @param notesInRadius the notes within the radius of the current location
+     */
+    private void showNotesInRadius(List<Note> notesInRadius) {
+        if (!proximityTracker.update(notesInRadius)) return;
+
+        noteListView.setNotesInRadius(proximityTracker.getNotesInRadius());
         noteListView.updateDialog();
-        listNotesButton.setText(String.valueOf(notesInRadius.size()));
+        listNotesButton.setText(String.valueOf(proximityTracker.getNotesInRadius().size()));
     }
 }
\ No newline at end of file
@@ -8,33 +8,42 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.drawable.GradientDrawable;
 import android.util.AttributeSet;
+import android.view.Choreographer;
 import android.view.View;
 import android.view.animation.DecelerateInterpolator;
 
 import androidx.annotation.NonNull;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * The {@code MotionFeedbackView} class is a custom view that provides visual feedback
  * for motion events by displaying a movable ball within a confined area.
  * It reacts to sensor data to update the ball's position and offers an animation
  * when a gesture is detected.
+ * The ball position is computed on the sensor thread and published as a single packed
+ * value. A {@link Choreographer} frame callback picks up the latest position, so the
+ * view is drawn at most once per frame, and no frames are scheduled while the ball rests.
  *
  * @author gxstxxv
  * @version 1.0
  */
 public class MotionFeedbackView extends View {
-    private float ballX;
-    private float ballY;
-    private float centerX;
-    private float centerY;
-    private float outerRadius;
+    private static final float REST_THRESHOLD = 0.5f;
+    private final Choreographer choreographer;
+    private final Choreographer.FrameCallback frameCallback = this::onFrame;
+    private final AtomicBoolean frameScheduled = new AtomicBoolean();
+    private volatile long ballPosition;
+    private volatile boolean atEdge;
+    private volatile float ballX;
+    private volatile float ballY;
+    private volatile long sampleCount;
+    private volatile long frameCount;
+    private volatile long drawCount;
+    private final BallPositionFilter ballPositionFilter = new BallPositionFilter();
     private static final float BALL_RADIUS = 18f;
     private final float ballRadiusDp;
     private final Paint ballPaint;
-    private static final float ALPHA_X = 0.005f;
-    private static final float ALPHA_Y = 0.025f;
-    private float filteredX = 0;
-    private float filteredY = 0;
     private static final int normalStrokeWidth = 2;
     private static final int boldStrokeWidth = 4;
 
@@ -47,6 +56,7 @@ public class MotionFeedbackView extends View {
     public MotionFeedbackView(Context context, AttributeSet attrs) {
         super(context, attrs);
         ballRadiusDp = BALL_RADIUS * context.getResources().getDisplayMetrics().density;
+        choreographer = Choreographer.getInstance();
 
         ballPaint = new Paint();
         ballPaint.setColor(Color.BLACK);
@@ -68,13 +78,12 @@ public class MotionFeedbackView extends View {
     @Override
     protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
         super.onSizeChanged(width, height, oldWidth, oldHeight);
-        centerX = width / 2f;
-        centerY = height / 2f;
-        outerRadius = Math.min(width, height) / 1.8f - ballRadiusDp;
+        float centerX = width / 2f;
+        float centerY = height / 2f;
+        ballPositionFilter.setBounds(centerX, centerY, Math.min(width, height) / 1.8f - ballRadiusDp, ballRadiusDp);
         ballX = centerX;
         ballY = centerY;
-        filteredX = 0;
-        filteredY = 0;
+        ballPosition = pack(centerX, centerY);
     }
 
     /**
@@ -85,43 +94,91 @@ public class MotionFeedbackView extends View {
     @Override
     protected void onDraw(@NonNull Canvas canvas) {
         super.onDraw(canvas);
+        drawCount++;
+        ballPaint.setStrokeWidth(atEdge ? boldStrokeWidth : normalStrokeWidth);
         canvas.drawCircle(ballX, ballY, ballRadiusDp, ballPaint);
     }
 
     /**
-     * Updates the position of the ball based on the sensor values.
+     * Updates the position of the ball based on the sensor values and schedules a frame
+     * unless one is already scheduled or the ball has not moved noticeably since the last frame.
+     * May be called from any thread, but only from one thread at a time.
      *
      * @param values the array of sensor values
      */
     public void updateBallPosition(float[] values) {
-        float x = -values[0];
-        float y = values[1];
-
-        filteredX = ALPHA_X * x + (1 - ALPHA_X) * filteredX;
-        filteredY = ALPHA_Y * y + (1 - ALPHA_Y) * filteredY;
-
-        final float MOVEMENT_MULTIPLIER = 1.9f;
-        float dx = filteredX * outerRadius / 10 * MOVEMENT_MULTIPLIER;
-        float dy = filteredY * outerRadius / 10 * MOVEMENT_MULTIPLIER;
-
-        float newX = centerX + dx;
-        float newY = centerY + dy;
-
-        float distanceFromCenter = (float) Math.sqrt(Math.pow(newX - centerX, 2) + Math.pow(newY - centerY, 2));
-        if (distanceFromCenter > outerRadius - ballRadiusDp) {
-            float angle = (float) Math.atan2(newY - centerY, newX - centerX);
-            ballX = centerX + (float) Math.cos(angle) * (outerRadius - ballRadiusDp);
-            ballY = centerY + (float) Math.sin(angle) * (outerRadius - ballRadiusDp);
-            ballPaint.setStrokeWidth(boldStrokeWidth);
-        } else {
-            ballX = newX;
-            ballY = newY;
-            ballPaint.setStrokeWidth(normalStrokeWidth);
+        updateBallPosition(values[0], values[1]);
+    }
+
+    /**
+     * Updates the position of the ball based on the acceleration along the X- and Y-axis.
+     * May be called from any thread, but only from one thread at a time.
+     *
+     * @param accelerationX the acceleration along the X-axis
+     * @param accelerationY the acceleration along the Y-axis
+     */
+    public void updateBallPosition(float accelerationX, float accelerationY) {
+        ballPositionFilter.update(accelerationX, accelerationY);
+        float newX = ballPositionFilter.getX();
+        float newY = ballPositionFilter.getY();
+        boolean edge = ballPositionFilter.isAtEdge();
+
+        boolean atRest = edge == atEdge
+                && Math.abs(newX - ballX) < REST_THRESHOLD && Math.abs(newY - ballY) < REST_THRESHOLD;
+        ballPosition = pack(newX, newY);
+        atEdge = edge;
+        sampleCount++;
+
+        if (!atRest && frameScheduled.compareAndSet(false, true)) {
+            choreographer.postFrameCallback(frameCallback);
         }
+    }
 
+    /**
+     * Takes over the latest ball position at the start of a frame and invalidates the view.
+     *
+     * @param frameTimeNanos the time at which the frame started rendering
+     */
+    private void onFrame(long frameTimeNanos) {
+        frameScheduled.set(false);
+        long position = ballPosition;
+        ballX = Float.intBitsToFloat((int) (position >>> 32));
+        ballY = Float.intBitsToFloat((int) position);
+        frameCount++;
         invalidate();
     }
 
+    /**
+     * Returns how many sensor samples updated the ball position.
+     *
+     * @return the number of samples
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Returns how many frames were scheduled for the ball.
+     *
+     * @return the number of frame callbacks
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns how many times the view was drawn.
+     *
+     * @return the number of {@code onDraw} calls
+     */
+    public long getDrawCount() {
+        return drawCount;
+    }
+
+    private static long pack(float x, float y) {
+        return ((long) Float.floatToRawIntBits(x) << 32) | (Float.floatToRawIntBits(y) & 0xFFFFFFFFL);
+    }
+
     /**
      * Displays a visual indication of gesture detection by animating the background color
      * and stroke of the view.
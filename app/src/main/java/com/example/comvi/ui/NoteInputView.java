@@ -1,16 +1,36 @@
 package com.example.comvi.ui;
 
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.widget.EditText;
 
 /**
  * The {@code NoteInputView} class manages the note input field,
  * providing methods to retrieve and clear the text content.
+ * A {@link TextWatcher} keeps track of whether the field holds text, so that
+ * the sensor path can check a flag instead of reading the text.
  *
  * @author gxstxxv
  * @version 1.0
  */
-public class NoteInputView {
+public class NoteInputView implements TextWatcher {
+
+    /**
+     * Listener notified when the input field changes between empty and non-empty.
+     */
+    public interface OnArmedChangeListener {
+
+        /**
+         * Called on the UI thread when the armed state changes.
+         *
+         * @param armed {@code true} if the input field holds text that can be dropped
+         */
+        void onArmedChanged(boolean armed);
+    }
+
     private final EditText editText;
+    private volatile boolean armed;
+    private OnArmedChangeListener listener;
 
     /**
      * Constructs a new {@code NoteInputView} with the specified {@link EditText}.
@@ -19,6 +39,26 @@ public class NoteInputView {
      */
     public NoteInputView(EditText editText) {
         this.editText = editText;
+        editText.addTextChangedListener(this);
+        armed = editText.length() > 0;
+    }
+
+    /**
+     * Sets the listener notified when the armed state changes.
+     *
+     * @param listener the listener, or {@code null} to remove it
+     */
+    public void setOnArmedChangeListener(OnArmedChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns whether the input field holds text. Safe to call from any thread.
+     *
+     * @return {@code true} if there is a note to drop
+     */
+    public boolean isArmed() {
+        return armed;
     }
 
     /**
@@ -36,4 +76,27 @@ public class NoteInputView {
     public String getNoteText() {
         return editText.getText().toString();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void beforeTextChanged(CharSequence text, int start, int count, int after) {
+        // Not needed for this implementation
+    }
+
+    @Override
+    public void onTextChanged(CharSequence text, int start, int before, int count) {
+        // Not needed for this implementation
+    }
+
+    /**
+     * Updates the armed state after the text has changed and notifies the listener if it changed.
+     *
+     * @param editable the new text
+     */
+    @Override
+    public void afterTextChanged(Editable editable) {
+        boolean nowArmed = editable.length() > 0;
+        if (nowArmed == armed) return;
+        armed = nowArmed;
+        if (listener != null) listener.onArmedChanged(nowArmed);
+    }
+}
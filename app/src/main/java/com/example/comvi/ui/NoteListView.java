@@ -104,5 +104,12 @@ public class NoteListView {
         dialog.show();
     }
 
+    /**
+     * Hides the alert dialog with the notes if it is showing.
+     */
+    public void dismissNotes() {
+        dialog.dismiss();
+    }
+
 }
 
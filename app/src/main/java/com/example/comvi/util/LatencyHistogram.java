@@ -0,0 +1,116 @@
+package com.example.comvi.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code LatencyHistogram} class counts durations in buckets of powers of two, so that
+ * recording costs a few atomic operations and no allocation, and can stay enabled in
+ * production. Bucket {@code i} holds durations from {@code 2^(i-1)} to {@code 2^i - 1}
+ * nanoseconds, so percentiles are reported as the upper bound of their bucket, at most
+ * twice the true value.
+ * Durations may be recorded from any thread without locks while another thread reads them.
+ *
+ * @author gxstxxv
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a duration. Negative durations, caused by clocks of different sources, are
+     * recorded as 0.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) max = maxNanos.get();
+    }
+
+    /**
+     * Returns the number of recorded durations.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean of the recorded durations.
+     *
+     * @return the mean in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n;
+    }
+
+    /**
+     * Returns the longest recorded duration.
+     *
+     * @return the maximum in nanoseconds
+     */
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns an upper bound of the given percentile of the recorded durations.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the upper bound of the bucket holding the percentile in nanoseconds, at most
+     * the maximum, or 0 if nothing was recorded
+     * @throws IllegalArgumentException if the percentile is out of range
+     */
+    public long getPercentileNanos(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += buckets.get(i);
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Forgets all recorded durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    /**
+     * Returns a summary of the count, mean, median, 99th percentile and maximum.
+     *
+     * @return a human readable summary
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d, mean %.1f ms, p50 <=%.1f ms, p99 <=%.1f ms, max %.1f ms", getCount(),
+                getMeanNanos() / 1e6, getPercentileNanos(50) / 1e6, getPercentileNanos(99) / 1e6, getMaxNanos() / 1e6);
+    }
+}
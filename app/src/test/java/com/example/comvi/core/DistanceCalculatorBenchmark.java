@@ -0,0 +1,97 @@
+package com.example.comvi.core;
+
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.location.Location;
+
+import com.example.comvi.data.Note;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark for {@link DistanceCalculator#getNotesInRadius(Location, List)}, reporting the
+ * number of exact distance evaluations and the latency per query for notes spread over a
+ * city, next to a full scan evaluating the exact distance of every note. The query
+ * locations are created before the clock starts, so that stubbing them is not measured.
+ * Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+public class DistanceCalculatorBenchmark {
+
+    private static final int NOTE_COUNT = 100_000;
+    private static final int QUERIES = 1_000;
+    private static final int ROUNDS = 5;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures distance evaluations and latency per query of the bounding box prefilter
+     * and of the full scan.
+     */
+    @Test
+    public void benchmarkRadiusQuery() {
+        Random random = new Random(42);
+        List<Note> notes = new ArrayList<>(NOTE_COUNT);
+        for (int i = 0; i < NOTE_COUNT; i++) {
+            notes.add(new Note("Note " + i, 52.4 + random.nextDouble() * 0.2, 13.3 + random.nextDouble() * 0.2));
+        }
+        Location[] locations = new Location[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            locations[i] = mock(Location.class);
+            when(locations[i].getLatitude()).thenReturn(52.4 + random.nextDouble() * 0.2);
+            when(locations[i].getLongitude()).thenReturn(13.3 + random.nextDouble() * 0.2);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            DistanceCalculator distanceCalculator = new DistanceCalculator();
+            long found = 0;
+            long start = System.nanoTime();
+            for (Location location : locations) {
+                found += distanceCalculator.getNotesInRadius(location, notes).size();
+            }
+            double micros = (System.nanoTime() - start) / 1000.0 / QUERIES;
+
+            DistanceCalculator fullScanCalculator = new DistanceCalculator();
+            long fullScanFound = 0;
+            start = System.nanoTime();
+            for (Location location : locations) {
+                fullScanFound += fullScan(fullScanCalculator, location, notes).size();
+            }
+            double fullScanMicros = (System.nanoTime() - start) / 1000.0 / QUERIES;
+
+            System.out.printf("%,d notes: prefiltered %.1f distance evaluations and %.1f results per query, %.1f us per query; "
+                            + "full scan %.1f distance evaluations and %.1f results per query, %.1f us per query%n",
+                    NOTE_COUNT, (double) distanceCalculator.getDistanceEvaluations() / QUERIES, (double) found / QUERIES, micros,
+                    (double) fullScanCalculator.getDistanceEvaluations() / QUERIES, (double) fullScanFound / QUERIES, fullScanMicros);
+        }
+    }
+
+    /**
+     * Returns the notes within the radius by evaluating the exact distance of every note.
+     */
+    private static List<Note> fullScan(DistanceCalculator distanceCalculator, Location location, List<Note> notes) {
+        double latitude = location.getLatitude();
+        double longitude = location.getLongitude();
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        List<Note> notesInRadius = new ArrayList<>();
+        for (Note note : notes) {
+            if (distanceCalculator.isWithinRadius(latitude, longitude, cosLatitude, note)) notesInRadius.add(note);
+        }
+        return notesInRadius;
+    }
+
+}
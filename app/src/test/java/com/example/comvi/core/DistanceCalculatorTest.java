@@ -96,4 +96,75 @@ public class DistanceCalculatorTest {
         assertTrue(resultEmpty.isEmpty());
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that notes sharing only the latitude or the longitude of the location are excluded.
+     * Scenario: Given a mock location at (1.0, 1.0), notes on the same latitude or longitude
+     * band far away must not be returned.
+     */
+    @Test
+    public void testSameLatitudeOrLongitudeBandExcluded() {
+        when(mockLocation.getLatitude()).thenReturn(1.0);
+        when(mockLocation.getLongitude()).thenReturn(1.0);
+
+        Note noteInRadius = new Note("Inside", 1.0001, 1.0001);
+        Note sameLatitude = new Note("Same latitude", 1.0, 120.0);
+        Note sameLongitude = new Note("Same longitude", -40.0, 1.0);
+
+        List<Note> notesInRadius = distanceCalculator.getNotesInRadius(mockLocation, Arrays.asList(noteInRadius, sameLatitude, sameLongitude));
+
+        assertEquals(1, notesInRadius.size());
+        assertTrue(notesInRadius.contains(noteInRadius));
+    }
+
+    /**
+     * Tests that the radius is configurable and measured in meters, also far from the equator.
+     * Scenario: Given a location at 60 degrees latitude, a note roughly 150 meters to the east
+     * is only included with a radius larger than 150 meters.
+     */
+    @Test
+    public void testConfigurableRadius() {
+        when(mockLocation.getLatitude()).thenReturn(60.0);
+        when(mockLocation.getLongitude()).thenReturn(10.0);
+
+        Note note = new Note("East", 60.0, 10.0027);
+        List<Note> notes = Arrays.asList(note);
+
+        assertTrue(new DistanceCalculator(100).getNotesInRadius(mockLocation, notes).isEmpty());
+        assertTrue(new DistanceCalculator(200).getNotesInRadius(mockLocation, notes).contains(note));
+    }
+
+    /**
+     * Tests that notes across the antimeridian are found.
+     */
+    @Test
+    public void testAntimeridian() {
+        when(mockLocation.getLatitude()).thenReturn(0.0);
+        when(mockLocation.getLongitude()).thenReturn(179.9999);
+
+        Note note = new Note("West of the antimeridian", 0.0, -179.9999);
+        List<Note> notesInRadius = distanceCalculator.getNotesInRadius(mockLocation, Arrays.asList(note));
+
+        assertEquals(1, notesInRadius.size());
+    }
+
+    /**
+     * Tests that the bounding box rejects distant notes before the exact distance is computed.
+     */
+    @Test
+    public void testBoundingBoxAvoidsDistanceEvaluations() {
+        when(mockLocation.getLatitude()).thenReturn(0.0);
+        when(mockLocation.getLongitude()).thenReturn(0.0);
+
+        List<Note> notes = new ArrayList<>();
+        notes.add(new Note("Inside", 0.0001, 0.0001));
+        for (int i = 1; i <= 100; i++) {
+            notes.add(new Note("Far " + i, i * 0.01, i * 0.01));
+        }
+
+        List<Note> notesInRadius = distanceCalculator.getNotesInRadius(mockLocation, notes);
+
+        assertEquals(1, notesInRadius.size());
+        assertEquals(1, distanceCalculator.getDistanceEvaluations());
+    }
+
+}
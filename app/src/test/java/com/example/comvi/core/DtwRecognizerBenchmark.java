@@ -0,0 +1,110 @@
+package com.example.comvi.core;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark measuring the throughput of the {@link DtwRecognizer} in samples per second
+ * for a growing number of templates of one second each at 100 Hz. The trace is noise
+ * with a performed gesture every few seconds, and the share of comparisons pruned by the
+ * lower bound or abandoned early is reported alongside.
+ * Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+public class DtwRecognizerBenchmark {
+
+    private static final int SAMPLES = 200_000;
+    private static final int TEMPLATE_LENGTH = 100;
+    private static final int[] TEMPLATE_COUNTS = {1, 4, 16, 32, 64};
+    private static final int ROUNDS = 3;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures samples per second, matches and pruning for each number of templates.
+     */
+    @Test
+    public void benchmarkTemplateCount() {
+        Random random = new Random(42);
+        List<float[]> shapes = new ArrayList<>();
+        for (int i = 0; i < TEMPLATE_COUNTS[TEMPLATE_COUNTS.length - 1]; i++) shapes.add(createShape(random));
+        float[] trace = createTrace(shapes, random);
+
+        for (int templateCount : TEMPLATE_COUNTS) {
+            List<DtwRecognizer.Template> templates = new ArrayList<>();
+            for (int i = 0; i < templateCount; i++) {
+                templates.add(new DtwRecognizer.Template(i % 2 == 0 ? MotionType.SHAKE : MotionType.PICKUP, shapes.get(i), 4f));
+            }
+            for (int round = 0; round < ROUNDS; round++) {
+                DtwRecognizer recognizer = new DtwRecognizer(templates);
+                long start = System.nanoTime();
+                int matches = 0;
+                for (int i = 0; i < trace.length; i += 3) {
+                    if (recognizer.recognize(trace[i], trace[i + 1], trace[i + 2]) != MotionType.NONE) matches++;
+                }
+                long nanos = System.nanoTime() - start;
+
+                System.out.printf("%2d templates, round %d: %8.0f k samples/s, %d matches, %.1f%% pruned by bound, %.1f%% abandoned%n",
+                        templateCount, round, SAMPLES * 1e6 / nanos, matches,
+                        100.0 * recognizer.getPrunedByBound() / recognizer.getComparisons(),
+                        100.0 * recognizer.getAbandonedDtw() / recognizer.getComparisons());
+            }
+        }
+    }
+
+    /**
+     * Creates a smooth random gesture as a sum of a few sines per axis.
+     *
+     * @param random the source of randomness
+     * @return the samples as consecutive x, y and z values
+     */
+    private static float[] createShape(Random random) {
+        float[] shape = new float[TEMPLATE_LENGTH * 3];
+        for (int axis = 0; axis < 3; axis++) {
+            for (int harmonic = 1; harmonic <= 3; harmonic++) {
+                double amplitude = 8 * random.nextGaussian() / harmonic;
+                double phase = 2 * Math.PI * random.nextDouble();
+                for (int i = 0; i < TEMPLATE_LENGTH; i++) {
+                    shape[i * 3 + axis] += (float) (amplitude * Math.sin(phase + 2 * Math.PI * harmonic * i / TEMPLATE_LENGTH));
+                }
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * Creates a trace of noise with one of the shapes performed, slightly faster or slower,
+     * every few seconds.
+     *
+     * @param shapes the shapes to perform
+     * @param random the source of randomness
+     * @return the samples of the trace as consecutive x, y and z values
+     */
+    private static float[] createTrace(List<float[]> shapes, Random random) {
+        float[] trace = new float[SAMPLES * 3];
+        for (int i = 0; i < trace.length; i++) trace[i] = (float) random.nextGaussian();
+        for (int start = 300; start < SAMPLES - 2 * TEMPLATE_LENGTH; start += 300 + random.nextInt(500)) {
+            float[] shape = shapes.get(random.nextInt(shapes.size()));
+            float speed = 0.9f + 0.2f * random.nextFloat();
+            int length = Math.round(TEMPLATE_LENGTH / speed);
+            for (int i = 0; i < length; i++) {
+                int source = Math.min(TEMPLATE_LENGTH - 1, Math.round(i * speed));
+                for (int axis = 0; axis < 3; axis++) trace[(start + i) * 3 + axis] += shape[source * 3 + axis];
+            }
+        }
+        return trace;
+    }
+}
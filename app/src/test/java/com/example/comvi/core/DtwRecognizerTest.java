@@ -0,0 +1,320 @@
+package com.example.comvi.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test class for the {@link DtwRecognizer} class, verifying matching of exact and warped
+ * gestures, that pruning does not change the result and reading templates from JSON.
+ *
+ * @author gxstxxv
+ */
+public class DtwRecognizerTest {
+
+    private static final int LENGTH = 40;
+
+    /**
+     * Tests that a template in the stream is reported once, with a distance close to zero.
+     */
+    @Test
+    public void testRecognizesTemplate() {
+        float[] shake = wave(LENGTH, 1f);
+        DtwRecognizer recognizer = new DtwRecognizer(Collections.singletonList(new DtwRecognizer.Template(MotionType.SHAKE, shake, 2f)));
+
+        List<MotionType> reported = new ArrayList<>();
+        feed(recognizer, rest(50), reported);
+        feed(recognizer, shake, reported);
+        feed(recognizer, rest(50), reported);
+
+        assertEquals(Collections.singletonList(MotionType.SHAKE), reported);
+    }
+
+    /**
+     * Tests that the distance of a match is reported with the match.
+     */
+    @Test
+    public void testReportsDistance() {
+        float[] shake = wave(LENGTH, 1f);
+        DtwRecognizer recognizer = new DtwRecognizer(Collections.singletonList(new DtwRecognizer.Template(MotionType.SHAKE, shake, 2f)));
+
+        feed(recognizer, shake, new ArrayList<>());
+        float[] rest = rest(1);
+        MotionType motion = recognizer.recognize(rest[0], rest[1], rest[2]);
+
+        assertEquals(MotionType.SHAKE, motion);
+        assertEquals(0f, recognizer.getDistance(), 1e-4f);
+        assertEquals(MotionType.NONE, recognizer.recognize(0f, 0f, 0f));
+        assertEquals(0f, recognizer.getDistance(), 0f);
+    }
+
+    /**
+     * Tests that a gesture performed slightly slower than the template is matched by warping,
+     * but not without the band.
+     */
+    @Test
+    public void testWarping() {
+        float[] template = wave(LENGTH, 1f);
+        float[] slower = wave(LENGTH, 0.85f);
+
+        List<MotionType> warped = new ArrayList<>();
+        DtwRecognizer recognizer = new DtwRecognizer(Collections.singletonList(new DtwRecognizer.Template(MotionType.SHAKE, template, 5f)));
+        feed(recognizer, slower, warped);
+        feed(recognizer, rest(10), warped);
+
+        List<MotionType> rigid = new ArrayList<>();
+        DtwRecognizer euclidean = new DtwRecognizer(Collections.singletonList(new DtwRecognizer.Template(MotionType.SHAKE, template, 5f)), 0f);
+        feed(euclidean, slower, rigid);
+        feed(euclidean, rest(10), rigid);
+
+        assertEquals(Collections.singletonList(MotionType.SHAKE), warped);
+        assertTrue(rigid.isEmpty());
+    }
+
+    /**
+     * Tests that noise at rest is not matched.
+     */
+    @Test
+    public void testIgnoresNoise() {
+        DtwRecognizer recognizer = new DtwRecognizer(Collections.singletonList(new DtwRecognizer.Template(MotionType.SHAKE, wave(LENGTH, 1f), 2f)));
+        Random random = new Random(3);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(MotionType.NONE, recognizer.recognize((float) random.nextGaussian(), (float) random.nextGaussian(), (float) random.nextGaussian()));
+        }
+        assertTrue(recognizer.getPrunedByBound() > recognizer.getComparisons() / 2);
+    }
+
+    /**
+     * Tests that the closest of several templates is reported.
+     */
+    @Test
+    public void testClosestTemplate() {
+        float[] shake = wave(LENGTH, 1f);
+        float[] drop = new float[LENGTH * 3];
+        for (int i = 0; i < LENGTH; i++) drop[i * 3 + 2] = i < LENGTH / 2 ? 12f : -12f;
+        DtwRecognizer recognizer = new DtwRecognizer(Arrays.asList(
+                new DtwRecognizer.Template(MotionType.DROP, drop, 100f),
+                new DtwRecognizer.Template(MotionType.SHAKE, shake, 100f)));
+
+        List<MotionType> reported = new ArrayList<>();
+        feed(recognizer, shake, reported);
+        feed(recognizer, rest(10), reported);
+
+        assertEquals(Collections.singletonList(MotionType.SHAKE), reported);
+    }
+
+    /**
+     * Tests that templates of a disabled motion type are not matched.
+     */
+    @Test
+    public void testDisabledMotion() {
+        float[] shake = wave(LENGTH, 1f);
+        DtwRecognizer recognizer = new DtwRecognizer(Collections.singletonList(new DtwRecognizer.Template(MotionType.SHAKE, shake, 2f)));
+        recognizer.setEnabled(MotionType.SHAKE, false);
+
+        List<MotionType> reported = new ArrayList<>();
+        feed(recognizer, shake, reported);
+        feed(recognizer, rest(10), reported);
+
+        assertFalse(recognizer.isEnabled(MotionType.SHAKE));
+        assertTrue(reported.isEmpty());
+    }
+
+    /**
+     * Tests that pruning by the lower bound and early abandoning report the same matches
+     * and distances as computing the full DTW for every template on every sample.
+     */
+    @Test
+    public void testPruningMatchesFullDtw() {
+        Random random = new Random(11);
+        List<DtwRecognizer.Template> templates = new ArrayList<>();
+        List<float[]> samples = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            samples.add(wave(20 + 5 * i, 1f));
+            templates.add(new DtwRecognizer.Template(i % 2 == 0 ? MotionType.SHAKE : MotionType.PICKUP, samples.get(i), 3f + i));
+        }
+        DtwRecognizer recognizer = new DtwRecognizer(templates, 0.15f);
+        FullDtw reference = new FullDtw(templates, samples, 0.15f);
+
+        int matches = 0;
+        for (int i = 0; i < 30_000; i++) {
+            if (random.nextInt(300) == 0) {
+                float[] gesture = wave(20 + 5 * random.nextInt(6), 0.7f + 0.4f * random.nextFloat());
+                for (int j = 0; j < gesture.length; j += 3) {
+                    float noise = (float) random.nextGaussian() * 0.5f;
+                    MotionType expected = reference.recognize(gesture[j] + noise, gesture[j + 1] + noise, gesture[j + 2]);
+                    assertEquals(expected, recognizer.recognize(gesture[j] + noise, gesture[j + 1] + noise, gesture[j + 2]));
+                    assertEquals(reference.distance, recognizer.getDistance(), 1e-3f);
+                    if (expected != MotionType.NONE) matches++;
+                }
+                continue;
+            }
+            float x = (float) random.nextGaussian();
+            float y = (float) random.nextGaussian();
+            float z = (float) random.nextGaussian();
+            MotionType expected = reference.recognize(x, y, z);
+            assertEquals(expected, recognizer.recognize(x, y, z));
+            assertEquals(reference.distance, recognizer.getDistance(), 1e-3f);
+            if (expected != MotionType.NONE) matches++;
+        }
+
+        assertTrue("Only " + matches + " matches", matches > 20);
+        assertTrue(recognizer.getPrunedByBound() + recognizer.getAbandonedDtw() > recognizer.getComparisons() * 9 / 10);
+    }
+
+    /**
+     * Tests reading templates from JSON.
+     *
+     * @throws IOException if the document cannot be read
+     */
+    @Test
+    public void testParse() throws IOException {
+        List<DtwRecognizer.Template> templates = DtwRecognizer.parse(new StringReader(
+                "{\"templates\": [{\"motion\": \"SHAKE\", \"maxDistance\": 20, \"samples\": [[1, 2, 3], [4, 5, 6]]}]}"));
+
+        assertEquals(1, templates.size());
+        assertEquals(MotionType.SHAKE, templates.get(0).getMotionType());
+        assertEquals(2, templates.get(0).getLength());
+        assertEquals(20f, templates.get(0).getMaxDistance(), 0f);
+    }
+
+    /**
+     * Tests that invalid templates are reported as {@link IOException}.
+     */
+    @Test
+    public void testParseInvalid() {
+        String[] documents = {
+                "{\"templates\": [{\"motion\": \"SHAKE\", \"maxDistance\": 20, \"samples\": [[1, 2]]}]}",
+                "{\"templates\": [{\"motion\": \"NONE\", \"maxDistance\": 20, \"samples\": [[1, 2, 3]]}]}",
+                "{\"templates\": [{\"motion\": \"SHAKE\", \"samples\": [[1, 2, 3]]}]}",
+                "{\"templates\": [{\"motion\": \"SHAKE\", \"maxDistance\": 20}]}",
+                "{\"templates\": [",
+                "{}"
+        };
+        for (String document : documents) {
+            try {
+                DtwRecognizer.parse(new StringReader(document));
+                throw new AssertionError("Accepted " + document);
+            } catch (IOException expected) {
+                // expected
+            }
+        }
+    }
+
+    /**
+     * Tests that a recognizer needs templates.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRequiresTemplates() {
+        new DtwRecognizer(Collections.emptyList());
+    }
+
+    private static void feed(DtwRecognizer recognizer, float[] samples, List<MotionType> reported) {
+        for (int i = 0; i < samples.length; i += 3) {
+            MotionType motion = recognizer.recognize(samples[i], samples[i + 1], samples[i + 2]);
+            if (motion != MotionType.NONE) reported.add(motion);
+        }
+    }
+
+    /**
+     * Creates a shake along the X-axis with a little movement on the other axes.
+     *
+     * @param length the number of samples of the template the shake is compared with
+     * @param speed  the speed relative to the template, below 1 for a slower and longer shake
+     * @return the samples as consecutive x, y and z values
+     */
+    static float[] wave(int length, float speed) {
+        int samples = Math.round(length / speed);
+        float[] values = new float[samples * 3];
+        for (int i = 0; i < samples; i++) {
+            double phase = 2 * Math.PI * 2 * i * speed / length;
+            values[i * 3] = (float) (12 * Math.sin(phase));
+            values[i * 3 + 1] = (float) (3 * Math.sin(phase / 2));
+            values[i * 3 + 2] = (float) (2 * Math.cos(phase));
+        }
+        return values;
+    }
+
+    private static float[] rest(int samples) {
+        return new float[samples * 3];
+    }
+
+    /**
+     * Recognition without any pruning, computing the full DTW within the band for every
+     * template on every sample.
+     */
+    private static final class FullDtw {
+
+        private final List<DtwRecognizer.Template> templates;
+        private final List<float[]> samples;
+        private final float bandRatio;
+        private final List<float[]> history = new ArrayList<>();
+        private MotionType pendingMotion = MotionType.NONE;
+        private float pendingDistance = Float.POSITIVE_INFINITY;
+        private float distance;
+
+        FullDtw(List<DtwRecognizer.Template> templates, List<float[]> samples, float bandRatio) {
+            this.templates = templates;
+            this.samples = samples;
+            this.bandRatio = bandRatio;
+        }
+
+        MotionType recognize(float x, float y, float z) {
+            history.add(new float[]{x, y, z});
+            distance = 0;
+            MotionType bestMotion = MotionType.NONE;
+            float best = pendingDistance;
+            for (int t = 0; t < templates.size(); t++) {
+                DtwRecognizer.Template template = templates.get(t);
+                int length = template.getLength();
+                if (length > history.size()) continue;
+                float candidate = dtw(history.subList(history.size() - length, history.size()), samples.get(t)) / length;
+                if (candidate < template.getMaxDistance() && candidate < best) {
+                    best = candidate;
+                    bestMotion = template.getMotionType();
+                }
+            }
+            if (bestMotion != MotionType.NONE) {
+                pendingMotion = bestMotion;
+                pendingDistance = best;
+                return MotionType.NONE;
+            }
+            if (pendingMotion == MotionType.NONE) return MotionType.NONE;
+
+            MotionType detected = pendingMotion;
+            distance = pendingDistance;
+            pendingMotion = MotionType.NONE;
+            pendingDistance = Float.POSITIVE_INFINITY;
+            history.clear();
+            return detected;
+        }
+
+        private float dtw(List<float[]> query, float[] template) {
+            int length = query.size();
+            int radius = (int) Math.ceil(bandRatio * length);
+            float[][] cost = new float[length + 1][length + 1];
+            for (float[] row : cost) Arrays.fill(row, Float.POSITIVE_INFINITY);
+            cost[0][0] = 0;
+            for (int i = 0; i < length; i++) {
+                for (int j = Math.max(0, i - radius); j <= Math.min(length - 1, i + radius); j++) {
+                    float dx = query.get(i)[0] - template[j * 3];
+                    float dy = query.get(i)[1] - template[j * 3 + 1];
+                    float dz = query.get(i)[2] - template[j * 3 + 2];
+                    cost[i + 1][j + 1] = dx * dx + dy * dy + dz * dz + Math.min(cost[i + 1][j], Math.min(cost[i][j], cost[i][j + 1]));
+                }
+            }
+            return cost[length][length];
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.comvi.core;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Benchmark comparing the throughput of the streaming {@link GestureDetector} with the
+ * previous implementation, which rescanned a ring buffer of ten samples on every sample,
+ * the per-sample API with the batch API, and detection with and without collecting
+ * {@link GestureMetrics}.
+ * All detectors process the same generated accelerometer trace with drops injected at
+ * random positions. Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+public class GestureDetectorBenchmark {
+
+    private static final int SAMPLES = 2_000_000;
+    private static final int ROUNDS = 5;
+    private static final int BATCH_SIZE = 256;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures samples per second and reported drops of both detectors.
+     */
+    @Test
+    public void benchmarkDetectMotion() {
+        float[][] trace = createTrace();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            GestureDetector streaming = new GestureDetector();
+            long start = System.nanoTime();
+            int streamingDrops = 0;
+            for (float[] values : trace) {
+                if (streaming.detectMotion(values) == MotionType.DROP) streamingDrops++;
+            }
+            long streamingNanos = System.nanoTime() - start;
+
+            LegacyGestureDetector legacy = new LegacyGestureDetector();
+            start = System.nanoTime();
+            int legacyDrops = 0;
+            for (float[] values : trace) {
+                if (legacy.detectMotion(values) == MotionType.DROP) legacyDrops++;
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: streaming %6.1f M samples/s (%d drops), legacy %6.1f M samples/s (%d drops)%n",
+                    round, SAMPLES * 1e3 / streamingNanos, streamingDrops, SAMPLES * 1e3 / legacyNanos, legacyDrops);
+        }
+    }
+
+    /**
+     * Measures samples per second and reported gestures of the per-sample API and of the
+     * batch API on separate and interleaved axes, in batches of the size a sensor hub FIFO delivers.
+     */
+    @Test
+    public void benchmarkDetectMotions() {
+        float[][] trace = createTrace();
+        float[] x = new float[SAMPLES];
+        float[] y = new float[SAMPLES];
+        float[] z = new float[SAMPLES];
+        float[] interleaved = new float[SAMPLES * 3];
+        for (int i = 0; i < SAMPLES; i++) {
+            x[i] = interleaved[i * 3] = trace[i][0];
+            y[i] = interleaved[i * 3 + 1] = trace[i][1];
+            z[i] = interleaved[i * 3 + 2] = trace[i][2];
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            GestureDetector single = new GestureDetector();
+            long start = System.nanoTime();
+            int singleDetections = 0;
+            for (int i = 0; i < SAMPLES; i++) {
+                if (single.detectMotion(x[i], y[i], z[i]) != MotionType.NONE) singleDetections++;
+            }
+            long singleNanos = System.nanoTime() - start;
+
+            GestureDetector separate = new GestureDetector();
+            int[] indices = new int[separate.getMaxDetections(BATCH_SIZE)];
+            MotionType[] motions = new MotionType[indices.length];
+            start = System.nanoTime();
+            int separateDetections = 0;
+            for (int offset = 0; offset < SAMPLES; offset += BATCH_SIZE) {
+                separateDetections += separate.detectMotions(x, y, z, offset, Math.min(BATCH_SIZE, SAMPLES - offset), indices, motions);
+            }
+            long separateNanos = System.nanoTime() - start;
+
+            GestureDetector packed = new GestureDetector();
+            start = System.nanoTime();
+            int packedDetections = 0;
+            for (int offset = 0; offset < SAMPLES; offset += BATCH_SIZE) {
+                packedDetections += packed.detectMotions(interleaved, offset, Math.min(BATCH_SIZE, SAMPLES - offset), indices, motions);
+            }
+            long packedNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: per sample %6.1f M samples/s (%d), batch %6.1f M samples/s (%d), interleaved batch %6.1f M samples/s (%d)%n",
+                    round, SAMPLES * 1e3 / singleNanos, singleDetections, SAMPLES * 1e3 / separateNanos, separateDetections,
+                    SAMPLES * 1e3 / packedNanos, packedDetections);
+        }
+    }
+
+    /**
+     * Measures samples per second of the timestamped per-sample API without a listener and
+     * with {@link GestureMetrics} collecting every event.
+     */
+    @Test
+    public void benchmarkEventListener() {
+        float[][] trace = createTrace();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            GestureDetector plain = new GestureDetector();
+            long start = System.nanoTime();
+            for (int i = 0; i < SAMPLES; i++) {
+                plain.detectMotion(trace[i][0], trace[i][1], trace[i][2], start + i * GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+            }
+            long plainNanos = System.nanoTime() - start;
+
+            GestureDetector measured = new GestureDetector();
+            GestureMetrics metrics = new GestureMetrics(System::nanoTime);
+            measured.setEventListener(metrics);
+            start = System.nanoTime();
+            for (int i = 0; i < SAMPLES; i++) {
+                measured.detectMotion(trace[i][0], trace[i][1], trace[i][2], start + i * GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+            }
+            long measuredNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: without listener %6.1f M samples/s, with metrics %6.1f M samples/s (%d detected, %d missed)%n",
+                    round, SAMPLES * 1e3 / plainNanos, SAMPLES * 1e3 / measuredNanos,
+                    metrics.getDetectionCount(MotionType.DROP), metrics.getNearMissCount(MotionType.DROP));
+        }
+    }
+
+    /**
+     * Creates a trace of noisy samples around rest with a drop every few hundred samples.
+     *
+     * @return the samples of the trace
+     */
+    private static float[][] createTrace() {
+        Random random = new Random(42);
+        float[][] trace = new float[SAMPLES][];
+        for (int i = 0; i < SAMPLES; i++) {
+            trace[i] = new float[]{(float) random.nextGaussian(), (float) random.nextGaussian(), (float) random.nextGaussian() * 2};
+        }
+        for (int i = 100; i < SAMPLES - 3; i += 200 + random.nextInt(400)) {
+            trace[i + 1] = new float[]{0f, -8f, 18f};
+            trace[i + 2] = new float[]{0f, -8f, -14f};
+        }
+        return trace;
+    }
+
+    /**
+     * The detector as it was before the streaming implementation.
+     */
+    private static final class LegacyGestureDetector {
+
+        private static final int BUFFER_SIZE = 10;
+        private final float[] zBuffer = new float[BUFFER_SIZE];
+        private final float[] yBuffer = new float[BUFFER_SIZE];
+        private int bufferIndex = 0;
+
+        MotionType detectMotion(float[] values) {
+            zBuffer[bufferIndex] = values[2];
+            yBuffer[bufferIndex] = values[1];
+            bufferIndex = (bufferIndex + 1) % BUFFER_SIZE;
+
+            for (int i = 0; i < BUFFER_SIZE - 2; i++) {
+                if (zBuffer[i] < 15.0f && zBuffer[i + 1] > 15.0f && zBuffer[i + 2] < -10.0f && yBuffer[i + 1] < -6.0f)
+                    return MotionType.DROP;
+            }
+            return MotionType.NONE;
+        }
+    }
+
+}
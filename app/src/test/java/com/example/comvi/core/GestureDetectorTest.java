@@ -1,10 +1,17 @@
 package com.example.comvi.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
 /**
  * Test class for the {@link GestureDetector} class, which detects
  * motions based on accelerometer values.
@@ -93,4 +100,485 @@ public class GestureDetectorTest {
         assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f}));
         assertEquals(MotionType.DROP, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, -15.0f}));
     }
+
+    /**
+     * Tests that a drop spanning the end of a previous ring buffer is detected in sample order.
+     */
+    @Test
+    public void testDropAcrossBufferBoundary() {
+        float[] stableValues = new float[]{0.0f, -7.0f, 10.0f};
+        for (int i = 0; i < 9; i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(stableValues));
+        }
+
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f}));
+        assertEquals(MotionType.DROP, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, -15.0f}));
+    }
+
+    /**
+     * Tests that an old fall followed by a later rise is not detected as a drop, even if
+     * the two samples end up next to each other in a ring buffer.
+     */
+    @Test
+    public void testFallBeforeRiseIsNoDrop() {
+        float[] stableValues = new float[]{0.0f, -7.0f, 10.0f};
+        for (int i = 0; i < 9; i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(stableValues));
+        }
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, -15.0f}));
+        for (int i = 0; i < 8; i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(stableValues));
+        }
+
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f}));
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(stableValues));
+    }
+
+    /**
+     * Tests that a drop is reported exactly once, not on every following sample.
+     */
+    @Test
+    public void testDropReportedOnce() {
+        gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 5.0f});
+        gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f});
+        assertEquals(MotionType.DROP, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, -15.0f}));
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 5.0f}));
+        }
+    }
+
+    /**
+     * Tests that a fall a few samples after the rise, within the drop window, is detected.
+     */
+    @Test
+    public void testDropWithinWindow() {
+        gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f});
+        gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f});
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -3.0f, 2.0f}));
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -3.0f, -6.0f}));
+
+        assertEquals(MotionType.DROP, gestureDetector.detectMotion(new float[]{0.0f, -3.0f, -15.0f}));
+    }
+
+    /**
+     * Tests that a fall after the drop window has passed is not detected as a drop.
+     */
+    @Test
+    public void testFallAfterWindowIsNoDrop() {
+        gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f});
+        for (int i = 0; i < gestureDetector.getDropWindowSamples(); i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 5.0f}));
+        }
+
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, -15.0f}));
+    }
+
+    /**
+     * Tests that the drop window covers the same time at different sample periods.
+     */
+    @Test
+    public void testDropWindowScalesWithSamplePeriod() {
+        assertEquals(5, new GestureDetector(10_000_000L).getDropWindowSamples());
+        assertEquals(10, new GestureDetector(5_000_000L).getDropWindowSamples());
+        assertEquals(3, new GestureDetector(20_000_000L).getDropWindowSamples());
+        assertEquals(1, new GestureDetector(1_000_000_000L).getDropWindowSamples());
+    }
+
+    /**
+     * Tests that a non-positive sample period is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositiveSamplePeriod() {
+        new GestureDetector(0);
+    }
+
+    /**
+     * Tests that lifting the device from rest for long enough is detected as a pickup, once.
+     */
+    @Test
+    public void testPickupDetected() {
+        rest();
+        assertEquals(1, lift(50));
+    }
+
+    /**
+     * Tests that a pickup is reported again only after the device came to rest.
+     */
+    @Test
+    public void testPickupRearmsAtRest() {
+        rest();
+        lift(50);
+        assertEquals(0, lift(50));
+
+        rest();
+        assertEquals(1, lift(50));
+    }
+
+    /**
+     * Tests that a device that never rested is not picked up.
+     */
+    @Test
+    public void testNoPickupWithoutRest() {
+        assertEquals(0, lift(50));
+    }
+
+    /**
+     * Tests that a short lift, such as the rise of a drop, is no pickup.
+     */
+    @Test
+    public void testShortLiftIsNoPickup() {
+        rest();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 19.0f}));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 0.0f}));
+        }
+    }
+
+    /**
+     * Tests that alternating swings of the X-axis are detected as a shake.
+     */
+    @Test
+    public void testShakeDetected() {
+        assertEquals(MotionType.NONE, shake(GestureDetector.SHAKE_SWINGS - 1, 10, 18.0f));
+
+        assertEquals(MotionType.SHAKE, shake(1, 10, -18.0f));
+        assertEquals(0.75f, gestureDetector.getConfidence(), 1e-6f);
+    }
+
+    /**
+     * Tests that swings spread over more than the shake window are no shake.
+     */
+    @Test
+    public void testSlowSwingsAreNoShake() {
+        assertEquals(MotionType.NONE, shake(GestureDetector.SHAKE_SWINGS * 2, 30, 18.0f));
+    }
+
+    /**
+     * Tests that swings in the same direction are no shake.
+     */
+    @Test
+    public void testSwingsInOneDirectionAreNoShake() {
+        for (int i = 0; i < 50; i++) {
+            float x = i % 5 == 0 ? 18.0f : 0.0f;
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{x, 0.0f, 0.0f}));
+        }
+    }
+
+    /**
+     * Tests that disabled gestures are not detected and forget their progress.
+     */
+    @Test
+    public void testDisabledGesture() {
+        gestureDetector.setEnabled(MotionType.DROP, false);
+        assertFalse(gestureDetector.isEnabled(MotionType.DROP));
+        assertTrue(gestureDetector.isEnabled(MotionType.SHAKE));
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f}));
+
+        gestureDetector.setEnabled(MotionType.DROP, true);
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, -7.0f, -15.0f}));
+    }
+
+    /**
+     * Tests that NONE cannot be enabled.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoneIsNoGesture() {
+        gestureDetector.setEnabled(MotionType.NONE, true);
+    }
+
+    /**
+     * Tests that the most confident gesture wins if several complete on the same sample.
+     */
+    @Test
+    public void testMostConfidentGestureReported() {
+        shake(GestureDetector.SHAKE_SWINGS - 1, 2, 13.0f);
+        gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 28.0f});
+
+        assertEquals(MotionType.DROP, gestureDetector.detectMotion(new float[]{-13.0f, -7.0f, -18.0f}));
+        assertEquals(0.92f, gestureDetector.getConfidence(), 0.01f);
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 0.0f}));
+        assertEquals(0.0f, gestureDetector.getConfidence(), 0.0f);
+    }
+
+    /**
+     * Tests that a second drop within the refractory period is suppressed, and that a drop
+     * after it is reported again.
+     */
+    @Test
+    public void testRefractoryPeriod() {
+        assertEquals(MotionType.DROP, drop());
+        assertEquals(MotionType.NONE, drop());
+        assertEquals(0.0f, gestureDetector.getConfidence(), 0.0f);
+
+        for (int i = 0; i < gestureDetector.getRefractorySamples(); i++) {
+            gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 0.0f});
+        }
+        assertEquals(MotionType.DROP, drop());
+    }
+
+    /**
+     * Tests that the refractory period covers the same time at different sample periods,
+     * and that it can be turned off.
+     */
+    @Test
+    public void testRefractoryPeriodConfigurable() {
+        assertEquals(50, new GestureDetector(10_000_000L).getRefractorySamples());
+        assertEquals(20, new GestureDetector(5_000_000L, 100).getRefractorySamples());
+
+        gestureDetector = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0);
+        assertEquals(MotionType.DROP, drop());
+        assertEquals(MotionType.DROP, drop());
+    }
+
+    /**
+     * Tests that a negative refractory period is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNegativeRefractoryPeriod() {
+        new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, -1);
+    }
+
+    /**
+     * Tests that detecting a batch reports the same gestures on the same samples as
+     * detecting its samples one by one, for separate and interleaved axes.
+     */
+    @Test
+    public void testBatchMatchesSamples() {
+        Random random = new Random(9);
+        int samples = 50_000;
+        float[] x = new float[samples];
+        float[] y = new float[samples];
+        float[] z = new float[samples];
+        float[] interleaved = new float[samples * 3];
+        for (int i = 0; i < samples; i++) {
+            int phase = i % 700;
+            x[i] = phase >= 400 && phase < 480 ? (phase / 8 % 2 == 0 ? 14f : -14f) : (float) random.nextGaussian();
+            y[i] = phase == 100 || phase == 101 ? -8f : (float) random.nextGaussian();
+            z[i] = phase == 100 ? 18f : phase == 101 ? -14f : phase >= 200 && phase < 260 ? 4f : (float) random.nextGaussian() * 0.3f;
+            interleaved[i * 3] = x[i];
+            interleaved[i * 3 + 1] = y[i];
+            interleaved[i * 3 + 2] = z[i];
+        }
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < samples; i++) {
+            MotionType motion = gestureDetector.detectMotion(x[i], y[i], z[i]);
+            if (motion != MotionType.NONE) expected.append(i).append(motion).append(' ');
+        }
+
+        GestureDetector separate = new GestureDetector();
+        GestureDetector packed = new GestureDetector();
+        StringBuilder separateDetections = new StringBuilder();
+        StringBuilder packedDetections = new StringBuilder();
+        int[] indices = new int[separate.getMaxDetections(333)];
+        MotionType[] motions = new MotionType[indices.length];
+        for (int offset = 0; offset < samples; offset += 333) {
+            int count = Math.min(333, samples - offset);
+            int detections = separate.detectMotions(x, y, z, offset, count, indices, motions);
+            for (int i = 0; i < detections; i++) separateDetections.append(offset + indices[i]).append(motions[i]).append(' ');
+            detections = packed.detectMotions(interleaved, offset, count, indices, motions);
+            for (int i = 0; i < detections; i++) packedDetections.append(offset + indices[i]).append(motions[i]).append(' ');
+        }
+
+        assertTrue(expected.toString().contains("DROP") && expected.toString().contains("PICKUP") && expected.toString().contains("SHAKE"));
+        assertEquals(expected.toString(), separateDetections.toString());
+        assertEquals(expected.toString(), packedDetections.toString());
+    }
+
+    /**
+     * Tests that a batch needs room for one detection per refractory period.
+     */
+    @Test
+    public void testBatchOutputSize() {
+        assertEquals(2, gestureDetector.getMaxDetections(gestureDetector.getRefractorySamples() + 2));
+        assertEquals(10, new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0).getMaxDetections(10));
+        assertEquals(0, gestureDetector.getMaxDetections(0));
+    }
+
+    /**
+     * Tests that output arrays too short for a batch are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchRejectsShortOutput() {
+        float[] values = new float[3000];
+        gestureDetector.detectMotions(values, 0, 1000, new int[1], new MotionType[1]);
+    }
+
+    /**
+     * Tests that a drop is passed to the listener with the times of its rise and fall, the
+     * peak of its rise and its margin, and only if it is reported.
+     */
+    @Test
+    public void testDropEvent() {
+        List<GestureEvent> events = new ArrayList<>();
+        gestureDetector.setEventListener(events::add);
+        gestureDetector.detectMotion(0.0f, 0.0f, 5.0f, 1_000_000_000L);
+        gestureDetector.detectMotion(0.0f, -7.0f, 18.0f, 1_010_000_000L);
+        gestureDetector.detectMotion(0.0f, -7.0f, 24.0f, 1_020_000_000L);
+        gestureDetector.detectMotion(0.0f, 0.0f, 5.0f, 1_030_000_000L);
+        assertEquals(MotionType.DROP, gestureDetector.detectMotion(0.0f, -7.0f, -16.0f, 1_040_000_000L));
+        float confidence = gestureDetector.getConfidence();
+        gestureDetector.detectMotion(0.0f, -7.0f, 20.0f, 1_050_000_000L);
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(0.0f, -7.0f, -15.0f, 1_060_000_000L));
+
+        assertEquals(1, events.size());
+        GestureEvent event = events.get(0);
+        assertEquals(MotionType.DROP, event.getMotionType());
+        assertTrue(event.isDetected());
+        assertEquals(1_010_000_000L, event.getOnsetNanos());
+        assertEquals(1_040_000_000L, event.getDetectionNanos());
+        assertEquals(30_000_000L, event.getDurationNanos());
+        assertEquals(24.0f, event.getPeak(), 0f);
+        assertEquals((24.0f / 15 + 16.0f / 10) / 2 - 1, event.getMargin(), 1e-6f);
+        assertEquals(confidence, event.getConfidence(), 0f);
+    }
+
+    /**
+     * Tests that a match of the recognizer is subject to the refractory period of the
+     * threshold gestures, so one movement is not reported twice, and that a match outside
+     * of it is reported with an event.
+     */
+    @Test
+    public void testRecognizerSharesRefractoryPeriod() {
+        float[] template = DtwRecognizerTest.wave(40, 1f);
+        for (int i = 0; i < template.length; i += 3) template[i] /= 2;
+        gestureDetector.setRecognizer(new DtwRecognizer(Collections.singletonList(new DtwRecognizer.Template(MotionType.DROP, template, 2f))));
+        gestureDetector.setEnabled(MotionType.PICKUP, false);
+        gestureDetector.setEnabled(MotionType.SHAKE, false);
+        List<GestureEvent> events = new ArrayList<>();
+        gestureDetector.setEventListener(events::add);
+
+        gestureDetector.detectMotion(0.0f, -7.0f, 20.0f);
+        assertEquals(MotionType.DROP, gestureDetector.detectMotion(0.0f, 0.0f, -12.0f));
+        assertEquals(0, feed(template));
+        assertEquals(0, feed(new float[3 * gestureDetector.getRefractorySamples()]));
+        assertEquals(1, feed(template) + feed(new float[3]));
+
+        assertEquals(2, events.size());
+        GestureEvent event = events.get(1);
+        assertEquals(MotionType.DROP, event.getMotionType());
+        assertTrue(event.isDetected());
+        assertEquals(40 * GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, event.getDurationNanos());
+        assertEquals(1f, event.getConfidence(), 1e-3f);
+        assertEquals(1f, event.getMargin(), 1e-3f);
+    }
+
+    /**
+     * Tests that a rise whose fall stays above the threshold until the window ends is
+     * passed to the listener as a near miss, telling how close the fall came.
+     */
+    @Test
+    public void testDropNearMiss() {
+        List<GestureEvent> events = new ArrayList<>();
+        gestureDetector.setEventListener(events::add);
+        gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f});
+        gestureDetector.detectMotion(new float[]{0.0f, 0.0f, -8.0f});
+        for (int i = 1; i < gestureDetector.getDropWindowSamples(); i++) {
+            gestureDetector.detectMotion(new float[]{0.0f, 0.0f, -2.0f});
+        }
+        assertTrue(events.isEmpty());
+        gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 0.0f});
+
+        assertEquals(1, events.size());
+        GestureEvent event = events.get(0);
+        assertEquals(MotionType.DROP, event.getMotionType());
+        assertFalse(event.isDetected());
+        assertEquals(20.0f, event.getPeak(), 0f);
+        assertEquals(0f, event.getConfidence(), 0f);
+        assertEquals(-0.2f, event.getMargin(), 1e-6f);
+        assertEquals((gestureDetector.getDropWindowSamples() + 1) * GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, event.getDurationNanos());
+    }
+
+    /**
+     * Tests that pickups and shakes are passed to the listener with their onsets.
+     */
+    @Test
+    public void testPickupAndShakeEvents() {
+        List<GestureEvent> events = new ArrayList<>();
+        gestureDetector.setEventListener(events::add);
+        rest();
+        assertEquals(1, lift(50));
+        rest();
+        assertEquals(MotionType.SHAKE, shake(4, 5, 14.0f));
+
+        assertEquals(2, events.size());
+        assertEquals(MotionType.PICKUP, events.get(0).getMotionType());
+        assertEquals(4.0f, events.get(0).getPeak(), 0.5f);
+        assertTrue(events.get(0).getDurationNanos() > 0);
+        assertEquals(MotionType.SHAKE, events.get(1).getMotionType());
+        assertEquals(14.0f, events.get(1).getPeak(), 0f);
+        assertEquals(15 * GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, events.get(1).getDurationNanos());
+    }
+
+    /**
+     * Feeds the rise and the fall of a drop.
+     *
+     * @return the motion type detected on the fall
+     */
+    private MotionType drop() {
+        gestureDetector.detectMotion(new float[]{0.0f, -7.0f, 20.0f});
+        return gestureDetector.detectMotion(new float[]{0.0f, -7.0f, -15.0f});
+    }
+
+    /**
+     * Lets the device rest long enough to be picked up.
+     */
+    private void rest() {
+        for (int i = 0; i < 30; i++) {
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 0.0f}));
+        }
+    }
+
+    /**
+     * Lifts the device and checks the confidence of every reported pickup.
+     *
+     * @param samples the number of samples to lift the device for
+     * @return the number of reported pickups
+     */
+    private int lift(int samples) {
+        int pickups = 0;
+        for (int i = 0; i < samples; i++) {
+            if (gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 4.0f}) == MotionType.PICKUP) {
+                assertEquals(0.78f, gestureDetector.getConfidence(), 0.02f);
+                pickups++;
+            }
+        }
+        return pickups;
+    }
+
+    /**
+     * Swings the X-axis back and forth, starting in the direction of the given peak.
+     *
+     * @param swings the number of swings
+     * @param period the number of samples per swing
+     * @param peak   the X-axis value at the start of the first swing
+     * @return the motion type detected on the last sample
+     */
+    private MotionType shake(int swings, int period, float peak) {
+        MotionType detected = MotionType.NONE;
+        for (int swing = 0; swing < swings; swing++) {
+            float x = swing % 2 == 0 ? peak : -peak;
+            detected = gestureDetector.detectMotion(new float[]{x, 0.0f, 0.0f});
+            for (int i = 1; i < period && detected == MotionType.NONE; i++) {
+                detected = gestureDetector.detectMotion(new float[]{0.0f, 0.0f, 0.0f});
+            }
+        }
+        return detected;
+    }
+
+    /**
+     * Passes samples stored as consecutive x, y and z values to the detector.
+     *
+     * @return the number of drops detected
+     */
+    private int feed(float[] values) {
+        int drops = 0;
+        for (int i = 0; i < values.length; i += 3) {
+            if (gestureDetector.detectMotion(values[i], values[i + 1], values[i + 2]) == MotionType.DROP) drops++;
+        }
+        return drops;
+    }
 }
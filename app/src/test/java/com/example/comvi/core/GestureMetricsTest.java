@@ -0,0 +1,66 @@
+package com.example.comvi.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for the {@link GestureMetrics} class, verifying the counts, the closest near
+ * miss and both latencies.
+ *
+ * @author gxstxxv
+ */
+public class GestureMetricsTest {
+
+    private final long[] now = {0};
+    private final GestureMetrics gestureMetrics = new GestureMetrics(() -> now[0]);
+
+    /**
+     * Tests that the sensor to detection latency is measured from the sample completing the
+     * gesture and the detection to feedback latency from the detection.
+     */
+    @Test
+    public void testLatencies() {
+        now[0] = 1_004_000_000L;
+        gestureMetrics.onGestureEvent(event(MotionType.DROP, true, 0.3f));
+        now[0] = 1_020_000_000L;
+        gestureMetrics.onFeedback(MotionType.DROP);
+        gestureMetrics.onFeedback(MotionType.DROP);
+        gestureMetrics.onFeedback(MotionType.PICKUP);
+
+        assertEquals(1, gestureMetrics.getSensorToDetection().getCount());
+        assertEquals(4_000_000L, gestureMetrics.getSensorToDetection().getMaxNanos());
+        assertEquals(1, gestureMetrics.getDetectionToFeedback().getCount());
+        assertEquals(16_000_000L, gestureMetrics.getDetectionToFeedback().getMaxNanos());
+    }
+
+    /**
+     * Tests that detections and near misses are counted per type and the closest near miss
+     * is kept.
+     */
+    @Test
+    public void testCounts() {
+        now[0] = 1_000_000_000L;
+        gestureMetrics.onGestureEvent(event(MotionType.DROP, true, 0.3f));
+        gestureMetrics.onGestureEvent(event(MotionType.DROP, false, -0.4f));
+        gestureMetrics.onGestureEvent(event(MotionType.DROP, false, -0.1f));
+        gestureMetrics.onGestureEvent(event(MotionType.SHAKE, true, 0.5f));
+        GestureEvent last = event(MotionType.DROP, false, -0.7f);
+        gestureMetrics.onGestureEvent(last);
+
+        assertEquals(1, gestureMetrics.getDetectionCount(MotionType.DROP));
+        assertEquals(3, gestureMetrics.getNearMissCount(MotionType.DROP));
+        assertEquals(-0.1f, gestureMetrics.getClosestNearMissMargin(MotionType.DROP), 0f);
+        assertEquals(1, gestureMetrics.getDetectionCount(MotionType.SHAKE));
+        assertTrue(Float.isNaN(gestureMetrics.getClosestNearMissMargin(MotionType.SHAKE)));
+        assertEquals(0, gestureMetrics.getDetectionCount(MotionType.PICKUP));
+        assertSame(last, gestureMetrics.getLastEvent());
+        assertTrue(gestureMetrics.toString().startsWith("DROP: 1 detected, 3 missed (closest margin -0.10), SHAKE: 1 detected, 0 missed"));
+    }
+
+    private static GestureEvent event(MotionType motionType, boolean detected, float margin) {
+        return new GestureEvent(motionType, detected, 960_000_000L, 1_000_000_000L, 20f, detected ? 0.6f : 0f, margin);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.comvi.core;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the drop declared as a {@link GestureSpec} with the built-in drop of
+ * the {@link GestureDetector}. The declared drop has the shape of the built-in one, as
+ * written by the threshold tuner, so the detector sets the built-in drop to its thresholds
+ * and should run at the same speed. For reference, the same drop is also evaluated by the
+ * {@link GestureRuleEngine}, which a second DROP spec that never starts forces.
+ * All detectors only have the drop enabled and process the same generated trace. The
+ * best round of each is reported as well, since single rounds vary with the load of the machine.
+ * Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+public class GestureRuleEngineBenchmark {
+
+    private static final int SAMPLES = 2_000_000;
+    private static final int ROUNDS = 20;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures samples per second and reported drops of the three detectors.
+     */
+    @Test
+    public void benchmarkDeclaredDrop() {
+        float[] trace = createTrace();
+        GestureSpec drop = new GestureSpec.Builder(MotionType.DROP)
+                .step(0).above(GestureSpec.Signal.Z, 15f).below(GestureSpec.Signal.Y, -6f)
+                .step(GestureDetector.DROP_WINDOW_MILLIS).below(GestureSpec.Signal.Z, -10f)
+                .build();
+        GestureSpec never = new GestureSpec.Builder(MotionType.DROP)
+                .step(0).above(GestureSpec.Signal.Z, Float.MAX_VALUE)
+                .build();
+
+        long bestBuiltInNanos = Long.MAX_VALUE;
+        long bestDeclaredNanos = Long.MAX_VALUE;
+        long bestEngineNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            GestureDetector builtIn = dropOnly(new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0));
+            long start = System.nanoTime();
+            int builtInDrops = run(builtIn, trace);
+            long builtInNanos = System.nanoTime() - start;
+
+            GestureDetector declared = dropOnly(new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0, Collections.singletonList(drop)));
+            start = System.nanoTime();
+            int declaredDrops = run(declared, trace);
+            long declaredNanos = System.nanoTime() - start;
+
+            GestureDetector engine = dropOnly(new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0, Arrays.asList(drop, never)));
+            start = System.nanoTime();
+            int engineDrops = run(engine, trace);
+            long engineNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: built-in %6.1f M samples/s (%d drops), declared %6.1f M samples/s (%d drops), engine %6.1f M samples/s (%d drops)%n",
+                    round, SAMPLES * 1e3 / builtInNanos, builtInDrops, SAMPLES * 1e3 / declaredNanos, declaredDrops,
+                    SAMPLES * 1e3 / engineNanos, engineDrops);
+            bestBuiltInNanos = Math.min(bestBuiltInNanos, builtInNanos);
+            bestDeclaredNanos = Math.min(bestDeclaredNanos, declaredNanos);
+            bestEngineNanos = Math.min(bestEngineNanos, engineNanos);
+        }
+        System.out.printf("best: built-in %6.1f M samples/s, declared %6.1f M samples/s (%.2f times the time), engine %6.1f M samples/s (%.2f times the time)%n",
+                SAMPLES * 1e3 / bestBuiltInNanos, SAMPLES * 1e3 / bestDeclaredNanos, (double) bestDeclaredNanos / bestBuiltInNanos,
+                SAMPLES * 1e3 / bestEngineNanos, (double) bestEngineNanos / bestBuiltInNanos);
+    }
+
+    private static GestureDetector dropOnly(GestureDetector detector) {
+        detector.setEnabled(MotionType.PICKUP, false);
+        detector.setEnabled(MotionType.SHAKE, false);
+        return detector;
+    }
+
+    private static int run(GestureDetector detector, float[] trace) {
+        int drops = 0;
+        for (int i = 0; i < trace.length; i += 3) {
+            if (detector.detectMotion(trace[i], trace[i + 1], trace[i + 2]) == MotionType.DROP) drops++;
+        }
+        return drops;
+    }
+
+    /**
+     * Creates a trace of noisy samples around rest with a drop every few hundred samples.
+     *
+     * @return the samples of the trace as consecutive x, y and z values
+     */
+    private static float[] createTrace() {
+        Random random = new Random(42);
+        float[] trace = new float[SAMPLES * 3];
+        for (int i = 0; i < trace.length; i++) {
+            trace[i] = (float) random.nextGaussian() * (i % 3 == 2 ? 2 : 1);
+        }
+        for (int i = 100; i < SAMPLES - 3; i += 200 + random.nextInt(400)) {
+            trace[(i + 1) * 3 + 1] = -8f;
+            trace[(i + 1) * 3 + 2] = 18f;
+            trace[(i + 2) * 3 + 1] = -8f;
+            trace[(i + 2) * 3 + 2] = -14f;
+        }
+        return trace;
+    }
+}
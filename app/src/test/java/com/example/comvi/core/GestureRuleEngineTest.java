@@ -0,0 +1,281 @@
+package com.example.comvi.core;
+
+import static com.example.comvi.util.AllocationAssert.assertAllocatesLessThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test class for the {@link GestureRuleEngine} class, verifying that compiled specs
+ * behave like the built-in gestures, and the hold, window and anchoring rules.
+ *
+ * @author gxstxxv
+ */
+public class GestureRuleEngineTest {
+
+    private static final int ALL = ~0;
+
+    private static final GestureSpec DROP = new GestureSpec.Builder(MotionType.DROP)
+            .step(0).above(GestureSpec.Signal.Z, 15f).below(GestureSpec.Signal.Y, -6f)
+            .step(GestureDetector.DROP_WINDOW_MILLIS).below(GestureSpec.Signal.Z, -10f)
+            .build();
+
+    /**
+     * The drop evaluated by the engine. The second spec never starts, but keeps the detector
+     * from detecting the first one with the built-in drop.
+     */
+    private static final List<GestureSpec> ENGINE_DROP = Arrays.asList(DROP, new GestureSpec.Builder(MotionType.DROP)
+            .step(0).above(GestureSpec.Signal.Z, Float.MAX_VALUE)
+            .build());
+
+    private long sampleIndex;
+
+    /**
+     * Tests that the drop declared as a spec reports the same drops with the same
+     * confidence as the built-in drop on a noisy trace.
+     */
+    @Test
+    public void testDropSpecMatchesBuiltIn() {
+        GestureDetector builtIn = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0);
+        GestureDetector declared = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0, ENGINE_DROP);
+        for (GestureDetector detector : new GestureDetector[]{builtIn, declared}) {
+            detector.setEnabled(MotionType.PICKUP, false);
+            detector.setEnabled(MotionType.SHAKE, false);
+        }
+
+        Random random = new Random(7);
+        int drops = 0;
+        for (int i = 0; i < 200_000; i++) {
+            float x = (float) random.nextGaussian() * 4;
+            float y = (float) random.nextGaussian() * 6;
+            float z = (float) random.nextGaussian() * 12;
+            MotionType expected = builtIn.detectMotion(x, y, z);
+            assertEquals("Sample " + i, expected, declared.detectMotion(x, y, z));
+            assertEquals("Sample " + i, builtIn.getConfidence(), declared.getConfidence(), 1e-5f);
+            if (expected == MotionType.DROP) drops++;
+        }
+        assertTrue("Only " + drops + " drops", drops > 100);
+    }
+
+    /**
+     * Tests that the drop declared as a spec passes the same events, near misses included,
+     * as the built-in drop on a noisy trace.
+     */
+    @Test
+    public void testDropSpecEventsMatchBuiltIn() {
+        GestureDetector builtIn = new GestureDetector();
+        GestureDetector declared = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS,
+                GestureDetector.DEFAULT_REFRACTORY_MILLIS, ENGINE_DROP);
+        List<GestureEvent> expected = new ArrayList<>();
+        List<GestureEvent> actual = new ArrayList<>();
+        builtIn.setEventListener(expected::add);
+        declared.setEventListener(actual::add);
+        for (GestureDetector detector : new GestureDetector[]{builtIn, declared}) {
+            detector.setEnabled(MotionType.PICKUP, false);
+            detector.setEnabled(MotionType.SHAKE, false);
+        }
+
+        Random random = new Random(11);
+        for (int i = 0; i < 100_000; i++) {
+            float x = (float) random.nextGaussian() * 4;
+            float y = (float) random.nextGaussian() * 6;
+            float z = (float) random.nextGaussian() * 12;
+            builtIn.detectMotion(x, y, z, i * 7_000_000L);
+            declared.detectMotion(x, y, z, i * 7_000_000L);
+        }
+
+        int missed = 0;
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            GestureEvent event = expected.get(i);
+            assertEquals("Event " + i, event.isDetected(), actual.get(i).isDetected());
+            assertEquals("Event " + i, event.getOnsetNanos(), actual.get(i).getOnsetNanos());
+            assertEquals("Event " + i, event.getDetectionNanos(), actual.get(i).getDetectionNanos());
+            assertEquals("Event " + i, event.getPeak(), actual.get(i).getPeak(), 0f);
+            assertEquals("Event " + i, event.getMargin(), actual.get(i).getMargin(), 1e-5f);
+            if (!event.isDetected()) missed++;
+        }
+        assertTrue("Only " + missed + " near misses", missed > 100);
+        assertTrue("Only " + (expected.size() - missed) + " drops", expected.size() - missed > 100);
+    }
+
+    /**
+     * Tests that a single DROP spec with the shape of the built-in drop sets the thresholds
+     * and the window of the built-in drop, which then reports the same drops with the same
+     * confidence as the engine evaluating the spec.
+     */
+    @Test
+    public void testDropSpecTunesBuiltIn() {
+        GestureSpec tuned = new GestureSpec.Builder(MotionType.DROP)
+                .step(0).above(GestureSpec.Signal.Z, 12f).below(GestureSpec.Signal.Y, -4f)
+                .step(80).below(GestureSpec.Signal.Z, -8f)
+                .build();
+        GestureDetector builtIn = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0, Collections.singletonList(tuned));
+        GestureDetector declared = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0,
+                Arrays.asList(tuned, ENGINE_DROP.get(1)));
+        assertTrue(builtIn.isBuiltIn(MotionType.DROP));
+        assertFalse(declared.isBuiltIn(MotionType.DROP));
+        assertEquals(8, builtIn.getDropWindowSamples());
+        for (GestureDetector detector : new GestureDetector[]{builtIn, declared}) {
+            detector.setEnabled(MotionType.PICKUP, false);
+            detector.setEnabled(MotionType.SHAKE, false);
+        }
+
+        Random random = new Random(13);
+        int drops = 0;
+        for (int i = 0; i < 200_000; i++) {
+            float x = (float) random.nextGaussian() * 4;
+            float y = (float) random.nextGaussian() * 6;
+            float z = (float) random.nextGaussian() * 12;
+            MotionType expected = declared.detectMotion(x, y, z);
+            assertEquals("Sample " + i, expected, builtIn.detectMotion(x, y, z));
+            assertEquals("Sample " + i, declared.getConfidence(), builtIn.getConfidence(), 1e-5f);
+            if (expected == MotionType.DROP) drops++;
+        }
+        assertTrue("Only " + drops + " drops", drops > 100);
+    }
+
+    /**
+     * Tests that a gesture whose window runs out is reported as a near miss with its onset,
+     * the peak of its first step and how close the awaited step came.
+     */
+    @Test
+    public void testNearMiss() {
+        GestureRuleEngine engine = new GestureRuleEngine(Collections.singletonList(DROP), GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+
+        evaluate(engine, 0f, -7f, 18f);
+        long onset = sampleIndex;
+        evaluate(engine, 0f, -7f, 25f);
+        evaluate(engine, 0f, 0f, -9f);
+        for (int i = 0; i < 4; i++) evaluate(engine, 0f, 0f, -6f);
+        assertEquals(0, engine.getNearMissCount());
+        evaluate(engine, 0f, 0f, 0f);
+
+        assertEquals(1, engine.getNearMissCount());
+        assertEquals(MotionType.DROP.ordinal(), engine.getNearMissMotion(0));
+        assertEquals(onset, engine.getNearMissOnsetIndex(0));
+        assertEquals(25f, engine.getNearMissPeak(0), 0f);
+        assertEquals(0.9f, engine.getNearMissRatio(0), 1e-6f);
+        evaluate(engine, 0f, 0f, 0f);
+        assertEquals(0, engine.getNearMissCount());
+    }
+
+    /**
+     * Tests that a spec replaces the built-in gesture of the same motion type.
+     */
+    @Test
+    public void testSpecReplacesBuiltIn() {
+        GestureSpec strictDrop = new GestureSpec.Builder(MotionType.DROP)
+                .step(0).above(GestureSpec.Signal.Z, 25f)
+                .step(50).below(GestureSpec.Signal.Z, -10f)
+                .build();
+        GestureDetector detector = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, 0, Collections.singletonList(strictDrop));
+        assertFalse(detector.isBuiltIn(MotionType.DROP));
+
+        detector.detectMotion(0f, -7f, 20f);
+        assertEquals(MotionType.NONE, detector.detectMotion(0f, -7f, -15f));
+        detector.detectMotion(0f, 0f, 30f);
+        assertEquals(MotionType.DROP, detector.detectMotion(0f, 0f, -15f));
+    }
+
+    /**
+     * Tests that a later step must be reached within its window after the previous step.
+     */
+    @Test
+    public void testWindow() {
+        GestureRuleEngine engine = new GestureRuleEngine(Collections.singletonList(DROP), GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+
+        evaluate(engine, 0f, -7f, 20f);
+        for (int i = 0; i < 5; i++) evaluate(engine, 0f, 0f, 0f);
+        assertEquals(-1, evaluate(engine, 0f, 0f, -15f));
+
+        evaluate(engine, 0f, -7f, 20f);
+        for (int i = 0; i < 4; i++) evaluate(engine, 0f, 0f, 0f);
+        assertEquals(MotionType.DROP.ordinal(), evaluate(engine, 0f, 0f, -15f));
+    }
+
+    /**
+     * Tests that the previous step holding again restarts the window and raises its rating.
+     */
+    @Test
+    public void testPreviousStepMovesAnchor() {
+        GestureRuleEngine engine = new GestureRuleEngine(Collections.singletonList(DROP), GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+
+        evaluate(engine, 0f, -7f, 16f);
+        for (int i = 0; i < 4; i++) evaluate(engine, 0f, 0f, 0f);
+        evaluate(engine, 0f, -7f, 30f);
+        for (int i = 0; i < 4; i++) evaluate(engine, 0f, 0f, 0f);
+
+        assertEquals(MotionType.DROP.ordinal(), evaluate(engine, 0f, 0f, -10.5f));
+        assertEquals(0.5f * (2f + 1.05f) / 2, engine.getConfidence(), 1e-5f);
+    }
+
+    /**
+     * Tests that a step with a hold time is reached only after its conditions held long enough.
+     */
+    @Test
+    public void testHold() {
+        GestureSpec pickup = new GestureSpec.Builder(MotionType.PICKUP)
+                .step(0).hold(100).above(GestureSpec.Signal.SMOOTHED_Z, 2.5f)
+                .build();
+        GestureRuleEngine engine = new GestureRuleEngine(Collections.singletonList(pickup), GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+
+        for (int i = 0; i < 9; i++) assertEquals(-1, engine.evaluate(++sampleIndex, 0f, 0f, 0f, 3f, ALL));
+        assertEquals(-1, engine.evaluate(++sampleIndex, 0f, 0f, 0f, 0f, ALL));
+        for (int i = 0; i < 9; i++) assertEquals(-1, engine.evaluate(++sampleIndex, 0f, 0f, 0f, 3f, ALL));
+
+        assertEquals(MotionType.PICKUP.ordinal(), engine.evaluate(++sampleIndex, 0f, 0f, 0f, 5f, ALL));
+        assertEquals(1f, engine.getConfidence(), 0f);
+    }
+
+    /**
+     * Tests that disabled gestures are skipped and forget their progress.
+     */
+    @Test
+    public void testDisabledGesture() {
+        GestureRuleEngine engine = new GestureRuleEngine(Collections.singletonList(DROP), GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+
+        evaluate(engine, 0f, -7f, 20f);
+        assertEquals(-1, engine.evaluate(++sampleIndex, 0f, 0f, -15f, 0f, 0));
+        assertEquals(-1, evaluate(engine, 0f, 0f, -15f));
+        assertEquals(1 << MotionType.DROP.ordinal(), engine.getDefinedMotions());
+    }
+
+    /**
+     * Tests that the most confident of several completed gestures is reported.
+     */
+    @Test
+    public void testMostConfidentGesture() {
+        GestureSpec weakShake = new GestureSpec.Builder(MotionType.SHAKE)
+                .step(0).below(GestureSpec.Signal.Z, -10f)
+                .build();
+        List<GestureSpec> specs = java.util.Arrays.asList(weakShake, DROP);
+        GestureRuleEngine engine = new GestureRuleEngine(specs, GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+
+        evaluate(engine, 0f, -7f, 30f);
+        assertEquals(MotionType.DROP.ordinal(), evaluate(engine, 0f, 0f, -12f));
+    }
+
+    /**
+     * Tests that, after warm-up, evaluating allocates nothing.
+     */
+    @Test
+    public void testDoesNotAllocate() {
+        GestureRuleEngine engine = new GestureRuleEngine(Collections.singletonList(DROP), GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS);
+
+        assertAllocatesLessThan(100_000, 20_000, 100_000,
+                i -> evaluate(engine, 0f, i % 2 == 0 ? -7f : 0f, i % 2 == 0 ? 20f : -15f));
+    }
+
+    private int evaluate(GestureRuleEngine engine, float x, float y, float z) {
+        return engine.evaluate(++sampleIndex, x, y, z, 0f, ALL);
+    }
+}
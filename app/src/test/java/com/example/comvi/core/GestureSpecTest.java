@@ -0,0 +1,146 @@
+package com.example.comvi.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Test class for the {@link GestureSpec} class, verifying the builder, its validation
+ * and reading specs from JSON.
+ *
+ * @author gxstxxv
+ */
+public class GestureSpecTest {
+
+    private static final String DROP_JSON = "{\"gestures\": [{\"motion\": \"DROP\", \"steps\": ["
+            + "{\"conditions\": [{\"signal\": \"Z\", \"above\": 15}, {\"signal\": \"Y\", \"below\": -6}]},"
+            + "{\"withinMillis\": 50, \"holdMillis\": 20, \"conditions\": [{\"signal\": \"Z\", \"below\": -10}]}]}]}";
+
+    /**
+     * Tests that the builder creates the declared steps and conditions.
+     */
+    @Test
+    public void testBuilder() {
+        GestureSpec spec = new GestureSpec.Builder(MotionType.SHAKE)
+                .step(100).above(GestureSpec.Signal.X, 12f)
+                .step(300).hold(20).below(GestureSpec.Signal.X, -12f).above(GestureSpec.Signal.SMOOTHED_Z, -1f)
+                .build();
+
+        assertEquals(MotionType.SHAKE, spec.getMotionType());
+        assertEquals(2, spec.getSteps().size());
+        assertEquals(0, spec.getSteps().get(0).getWithinMillis());
+        assertEquals(300, spec.getSteps().get(1).getWithinMillis());
+        assertEquals(20, spec.getSteps().get(1).getHoldMillis());
+        GestureSpec.Condition condition = spec.getSteps().get(1).getConditions().get(1);
+        assertEquals(GestureSpec.Signal.SMOOTHED_Z, condition.getSignal());
+        assertTrue(condition.isAbove());
+        assertEquals(-1f, condition.getThreshold(), 0f);
+    }
+
+    /**
+     * Tests that a gesture must report a motion type.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNone() {
+        new GestureSpec.Builder(MotionType.NONE);
+    }
+
+    /**
+     * Tests that a gesture must have steps.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsNoSteps() {
+        new GestureSpec.Builder(MotionType.DROP).build();
+    }
+
+    /**
+     * Tests that every step must have conditions.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsEmptyStep() {
+        new GestureSpec.Builder(MotionType.DROP).step(0).above(GestureSpec.Signal.Z, 15f).step(50).build();
+    }
+
+    /**
+     * Tests that conditions must belong to a step.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsConditionBeforeStep() {
+        new GestureSpec.Builder(MotionType.DROP).above(GestureSpec.Signal.Z, 15f);
+    }
+
+    /**
+     * Tests that negative windows are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNegativeWindow() {
+        new GestureSpec.Builder(MotionType.DROP).step(-1);
+    }
+
+    /**
+     * Tests reading specs from JSON.
+     */
+    @Test
+    public void testParse() throws IOException {
+        List<GestureSpec> specs = GestureSpec.parse(new StringReader(DROP_JSON));
+
+        assertEquals(1, specs.size());
+        GestureSpec spec = specs.get(0);
+        assertEquals(MotionType.DROP, spec.getMotionType());
+        assertEquals(2, spec.getSteps().get(0).getConditions().size());
+        assertFalse(spec.getSteps().get(0).getConditions().get(1).isAbove());
+        assertEquals(-6f, spec.getSteps().get(0).getConditions().get(1).getThreshold(), 0f);
+        assertEquals(50, spec.getSteps().get(1).getWithinMillis());
+        assertEquals(20, spec.getSteps().get(1).getHoldMillis());
+    }
+
+    /**
+     * Tests that invalid documents are rejected with an IOException.
+     */
+    @Test
+    public void testParseRejectsInvalidDocuments() {
+        String[] invalid = {
+                "{",
+                "{}",
+                "{\"gestures\": [{\"motion\": \"WAVE\", \"steps\": [{\"conditions\": [{\"signal\": \"Z\", \"above\": 1}]}]}]}",
+                "{\"gestures\": [{\"motion\": \"DROP\"}]}",
+                "{\"gestures\": [{\"motion\": \"DROP\", \"steps\": [{\"conditions\": [{\"signal\": \"W\", \"above\": 1}]}]}]}",
+                "{\"gestures\": [{\"motion\": \"DROP\", \"steps\": [{\"conditions\": [{\"signal\": \"Z\", \"above\": 1, \"below\": 2}]}]}]}",
+                "{\"gestures\": [{\"motion\": \"DROP\", \"steps\": [{\"conditions\": [{\"signal\": \"Z\"}]}]}]}",
+                "{\"gestures\": [{\"steps\": [{\"conditions\": [{\"signal\": \"Z\", \"above\": 1}]}]}]}"
+        };
+        for (String json : invalid) {
+            try {
+                GestureSpec.parse(new StringReader(json));
+                throw new AssertionError("Accepted " + json);
+            } catch (IOException expected) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Tests that the specs bundled with the app are valid and that their drop, like the one
+     * written by the threshold tuner, is detected by the built-in drop.
+     */
+    @Test
+    public void testBundledSpecs() throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream("src/main/assets/gestures.json"), StandardCharsets.UTF_8)) {
+            List<GestureSpec> specs = GestureSpec.parse(reader);
+            GestureDetector detector = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS,
+                    GestureDetector.DEFAULT_REFRACTORY_MILLIS, specs);
+            assertEquals(MotionType.DROP, specs.get(0).getMotionType());
+            assertTrue(detector.isBuiltIn(MotionType.DROP));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.comvi.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.comvi.data.Note;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Unit test class for testing the functionality of the ProximityTracker.
+ *
+ * @author gxstxxv
+ */
+public class ProximityTrackerTest {
+
+    private final ProximityTracker proximityTracker = new ProximityTracker();
+    private final Note first = new Note("First", 1.0, 1.0);
+    private final Note second = new Note("Second", 1.0001, 1.0001);
+    private final Note third = new Note("Third", 1.0002, 1.0002);
+
+    /**
+     * Tests that the first update reports all nearby notes as entered.
+     */
+    @Test
+    public void testFirstUpdateEntersAllNotes() {
+        assertTrue(proximityTracker.update(Arrays.asList(first, second)));
+
+        assertEquals(Arrays.asList(first, second), proximityTracker.getEntered());
+        assertTrue(proximityTracker.getExited().isEmpty());
+        assertEquals(Arrays.asList(first, second), proximityTracker.getNotesInRadius());
+    }
+
+    /**
+     * Tests that an unchanged nearby set is reported as no change, regardless of order.
+     */
+    @Test
+    public void testUnchangedSetReportsNoChange() {
+        proximityTracker.update(Arrays.asList(first, second));
+
+        assertFalse(proximityTracker.update(Arrays.asList(second, first)));
+        assertTrue(proximityTracker.getEntered().isEmpty());
+        assertTrue(proximityTracker.getExited().isEmpty());
+    }
+
+    /**
+     * Tests that moving reports exactly the entered and exited notes.
+     */
+    @Test
+    public void testReportsEnteredAndExitedNotes() {
+        proximityTracker.update(Arrays.asList(first, second));
+
+        assertTrue(proximityTracker.update(Arrays.asList(second, third)));
+        assertEquals(Collections.singletonList(third), proximityTracker.getEntered());
+        assertEquals(Collections.singletonList(first), proximityTracker.getExited());
+        assertEquals(Arrays.asList(second, third), proximityTracker.getNotesInRadius());
+    }
+
+    /**
+     * Tests that a stored note read again as a new object is recognized, while stored notes
+     * with the same content and location but different ids are tracked separately.
+     */
+    @Test
+    public void testTracksNotesById() {
+        Note stored = new Note(1, "First", 1.0, 1.0);
+        Note twin = new Note(2, "First", 1.0, 1.0);
+        proximityTracker.update(Collections.singletonList(stored));
+
+        assertFalse(proximityTracker.update(Collections.singletonList(new Note(1, "First", 1.0, 1.0))));
+
+        assertTrue(proximityTracker.update(Arrays.asList(stored, twin)));
+        assertEquals(Collections.singletonList(twin), proximityTracker.getEntered());
+
+        assertTrue(proximityTracker.update(Collections.emptyList()));
+        assertEquals(Arrays.asList(stored, twin), proximityTracker.getExited());
+    }
+
+}
@@ -0,0 +1,712 @@
+package com.example.comvi.core;
+
+import com.example.comvi.sensor.GravityFilter;
+import com.example.comvi.sensor.Resampler;
+import com.example.comvi.sensor.SensorTrace;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@code ThresholdTuner} class searches the thresholds and the window of the drop
+ * gesture for the best detection on a corpus of labeled traces. It runs on the JVM,
+ * offline, and writes its result as a {@link GestureSpec} to a gestures file, which can
+ * be bundled as the gestures asset the app loads at startup.
+ * Every trace is preprocessed once as the app does, resampled to the detection rate and
+ * with gravity removed, and the Y and Z values of all traces are concatenated into two
+ * primitive arrays. Each combination of the {@link Grid} is then evaluated by one tight
+ * loop replaying the drop detection of the {@link GestureDetector}, including its
+ * refractory period, over these arrays. Combinations are evaluated in parallel with a
+ * {@link ForkJoinPool}. The spec written has the shape of the built-in drop, so the
+ * detector loading it sets its built-in drop to the tuned thresholds instead of evaluating
+ * the spec with a {@link GestureRuleEngine}. The replay stays separate from the detector
+ * nonetheless, because the detector, which also keeps the state of the other gestures and
+ * of events, evaluates a combination about six times slower. Instead, the best combination
+ * is scored again by a {@link GestureDetector} loading its spec, via
+ * {@link GestureDetector#detectMotions}, and the search fails if the two disagree.
+ * A trace is labeled with the time of each of its drops. A detection within the tolerance
+ * of a drop not matched yet counts as a true positive, any other detection as a false
+ * positive and every drop left unmatched as a false negative. The best combination has
+ * the highest F1 score, then the highest precision, and of equally good combinations the
+ * one closest to the {@link Parameters#DEFAULT built-in thresholds}.
+ * <p>
+ * Usage: {@code ThresholdTuner <drop-times.txt> <gestures.json>}, where every line of the
+ * listing names a trace relative to the listing, followed by the time of each of its
+ * drops in milliseconds since the first sample of the trace. The DROP spec in the
+ * gestures file is replaced by the tuned one, other specs are kept.
+ *
+ * @author gxstxxv
+ */
+public class ThresholdTuner {
+
+    /**
+     * The default largest distance in time between a drop and its detection.
+     */
+    public static final long DEFAULT_TOLERANCE_MILLIS = 200;
+
+    private static final int NEVER = Integer.MIN_VALUE / 2;
+    private static final int MIN_COMBINATIONS_PER_TASK = 64;
+
+    private final long samplePeriodNanos;
+    private final long refractoryMillis;
+    private final int refractorySamples;
+    private final int toleranceSamples;
+    private final List<float[]> pendingY = new ArrayList<>();
+    private final List<float[]> pendingZ = new ArrayList<>();
+    private final List<int[]> pendingDrops = new ArrayList<>();
+    private float[] y;
+    private float[] z;
+    private int[] traceStart;
+    private int[] drops;
+    private int[] dropStart;
+    private int sampleCount;
+
+    /**
+     * Constructs a new {@code ThresholdTuner} for the default detection rate, refractory
+     * period and tolerance.
+     */
+    public ThresholdTuner() {
+        this(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, GestureDetector.DEFAULT_REFRACTORY_MILLIS, DEFAULT_TOLERANCE_MILLIS);
+    }
+
+    /**
+     * Constructs a new {@code ThresholdTuner}.
+     *
+     * @param samplePeriodNanos the time between two samples of the detection in nanoseconds
+     * @param refractoryMillis  the refractory period of the detector in milliseconds
+     * @param toleranceMillis   the largest distance in time between a drop and its detection
+     * @throws IllegalArgumentException if the period is not positive or the refractory period or tolerance is negative
+     */
+    public ThresholdTuner(long samplePeriodNanos, long refractoryMillis, long toleranceMillis) {
+        if (samplePeriodNanos <= 0) throw new IllegalArgumentException("Sample period must be positive: " + samplePeriodNanos);
+        if (refractoryMillis < 0) throw new IllegalArgumentException("Refractory period must not be negative: " + refractoryMillis);
+        if (toleranceMillis < 0) throw new IllegalArgumentException("Tolerance must not be negative: " + toleranceMillis);
+        this.samplePeriodNanos = samplePeriodNanos;
+        this.refractoryMillis = refractoryMillis;
+        this.refractorySamples = refractoryMillis == 0 ? 0 : toSamples(refractoryMillis, samplePeriodNanos);
+        this.toleranceSamples = (int) (toleranceMillis * 1_000_000L / samplePeriodNanos);
+    }
+
+    /**
+     * Adds the traces of a listing, each followed by the times of its drops.
+     *
+     * @param listing the listing, naming every trace relative to the listing
+     * @throws IOException if the listing or a trace cannot be read
+     */
+    public void addTraces(File listing) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(listing), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] entry = line.split("\\s+");
+                long[] dropMillis = new long[entry.length - 1];
+                for (int i = 0; i < dropMillis.length; i++) dropMillis[i] = Long.parseLong(entry[i + 1]);
+                try (InputStream in = new FileInputStream(new File(listing.getParentFile(), entry[0]))) {
+                    addTrace(SensorTrace.read(in), dropMillis);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a recorded trace, preprocessed as the app does before detection.
+     *
+     * @param trace      the recorded trace
+     * @param dropMillis the time of every drop performed in the trace, in milliseconds
+     *                   since its first sample and in ascending order
+     */
+    public void addTrace(SensorTrace trace, long... dropMillis) {
+        List<float[]> samples = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        GravityFilter gravityFilter = new GravityFilter();
+        float[] linearAcceleration = new float[3];
+        Resampler resampler = new Resampler(samplePeriodNanos, (x, y, z, timestampNanos) -> {
+            linearAcceleration[0] = x;
+            linearAcceleration[1] = y;
+            linearAcceleration[2] = z;
+            gravityFilter.apply(linearAcceleration, timestampNanos);
+            samples.add(linearAcceleration.clone());
+            timestamps.add(timestampNanos);
+        });
+        trace.replay(resampler);
+
+        float[] traceY = new float[samples.size()];
+        float[] traceZ = new float[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            traceY[i] = samples.get(i)[1];
+            traceZ[i] = samples.get(i)[2];
+        }
+        int[] dropIndices = new int[dropMillis.length];
+        int index = 0;
+        for (int i = 0; i < dropMillis.length; i++) {
+            long dropNanos = trace.getTimestamp(0) + dropMillis[i] * 1_000_000L;
+            while (index < timestamps.size() - 1 && timestamps.get(index) < dropNanos) index++;
+            dropIndices[i] = index;
+        }
+        addTrace(traceY, traceZ, dropIndices);
+    }
+
+    /**
+     * Adds a trace already at the detection rate and with gravity removed.
+     *
+     * @param y           the acceleration along the Y-axis of every sample
+     * @param z           the acceleration along the Z-axis of every sample
+     * @param dropIndices the index of the sample of every drop performed in the trace, in ascending order
+     * @throws IllegalArgumentException if the axes differ in length or a drop is not within the trace or out of order
+     */
+    public void addTrace(float[] y, float[] z, int... dropIndices) {
+        if (y.length != z.length) throw new IllegalArgumentException("Axes differ in length: " + y.length + " and " + z.length);
+        for (int i = 0; i < dropIndices.length; i++) {
+            if (dropIndices[i] < 0 || dropIndices[i] >= y.length || (i > 0 && dropIndices[i] < dropIndices[i - 1])) {
+                throw new IllegalArgumentException("Drop not within the trace or out of order: " + dropIndices[i]);
+            }
+        }
+        pendingY.add(y.clone());
+        pendingZ.add(z.clone());
+        pendingDrops.add(dropIndices.clone());
+        this.y = null;
+    }
+
+    /**
+     * Returns the number of samples of all traces.
+     *
+     * @return the number of samples
+     */
+    public int getSampleCount() {
+        pack();
+        return sampleCount;
+    }
+
+    /**
+     * Evaluates one combination of parameters on all traces.
+     *
+     * @param parameters the parameters
+     * @return the detection quality
+     */
+    public Result evaluate(Parameters parameters) {
+        pack();
+        int[] counts = new int[3];
+        evaluate(parameters, counts, 0);
+        return new Result(parameters, counts[0], counts[1], counts[2]);
+    }
+
+    /**
+     * Evaluates one combination of parameters on all traces with a {@link GestureDetector}
+     * loading the drop spec of the parameters, as the app does.
+     *
+     * @param parameters the parameters
+     * @return the detection quality
+     */
+    public Result evaluateWithDetector(Parameters parameters) {
+        pack();
+        float[] x = new float[sampleCount];
+        int truePositives = 0;
+        int falsePositives = 0;
+        for (int trace = 0; trace < traceStart.length - 1; trace++) {
+            GestureDetector detector = new GestureDetector(samplePeriodNanos, refractoryMillis,
+                    Collections.singletonList(parameters.toSpec()));
+            detector.setEnabled(MotionType.PICKUP, false);
+            detector.setEnabled(MotionType.SHAKE, false);
+            int count = traceStart[trace + 1] - traceStart[trace];
+            int[] indices = new int[detector.getMaxDetections(count)];
+            MotionType[] motions = new MotionType[indices.length];
+            int detections = detector.detectMotions(x, y, z, traceStart[trace], count, indices, motions);
+
+            int drop = dropStart[trace];
+            for (int i = 0; i < detections; i++) {
+                int index = traceStart[trace] + indices[i];
+                while (drop < dropStart[trace + 1] && drops[drop] < index - toleranceSamples) drop++;
+                if (drop < dropStart[trace + 1] && drops[drop] <= index + toleranceSamples) {
+                    truePositives++;
+                    drop++;
+                } else {
+                    falsePositives++;
+                }
+            }
+        }
+        return new Result(parameters, truePositives, falsePositives, drops.length - truePositives);
+    }
+
+    /**
+     * Evaluates all combinations of the grid in parallel on the common pool.
+     *
+     * @param grid the combinations
+     * @return the best combination
+     */
+    public Result tune(Grid grid) {
+        return tune(grid, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates all combinations of the grid in parallel.
+     *
+     * @param grid the combinations
+     * @param pool the pool evaluating the combinations
+     * @return the best combination
+     * @throws IllegalStateException if the detector scores the best combination differently than the replay
+     */
+    public Result tune(Grid grid, ForkJoinPool pool) {
+        pack();
+        int[] counts = new int[grid.size() * 3];
+        pool.invoke(new EvaluateTask(grid, counts, 0, grid.size()));
+
+        Result best = null;
+        for (int i = 0; i < grid.size(); i++) {
+            Result result = new Result(grid.get(i), counts[i * 3], counts[i * 3 + 1], counts[i * 3 + 2]);
+            if (best == null || result.isBetterThan(best)) best = result;
+        }
+        Result checked = evaluateWithDetector(best.getParameters());
+        if (!checked.hasSameCounts(best)) {
+            throw new IllegalStateException("Replay scored " + best + ", but the detector scored " + checked);
+        }
+        return best;
+    }
+
+    /**
+     * Replays the drop detection with the given parameters on all traces and adds the true
+     * positives, false positives and false negatives to the counts.
+     */
+    private void evaluate(Parameters parameters, int[] counts, int offset) {
+        int windowSamples = toSamples(parameters.windowMillis, samplePeriodNanos);
+        for (int trace = 0; trace < traceStart.length - 1; trace++) {
+            matchDrops(trace, parameters.zRise, parameters.zFall, parameters.yFall, windowSamples, counts, offset);
+        }
+    }
+
+    /**
+     * Matches the drops reported by the drop detection of the {@link GestureDetector} on the
+     * samples of one trace to its labeled drops, in order of time.
+     */
+    private void matchDrops(int trace, float zRise, float zFall, float yFall, int windowSamples, int[] counts, int offset) {
+        float[] y = this.y;
+        float[] z = this.z;
+        int[] drops = this.drops;
+        int refractorySamples = this.refractorySamples;
+        int toleranceSamples = this.toleranceSamples;
+        int drop = dropStart[trace];
+        int lastDrop = dropStart[trace + 1];
+        int riseIndex = NEVER;
+        int reportIndex = NEVER;
+        int truePositives = 0;
+        int falsePositives = 0;
+        for (int i = traceStart[trace], to = traceStart[trace + 1]; i < to; i++) {
+            float sampleZ = z[i];
+            if (sampleZ > zRise && y[i] < yFall) {
+                riseIndex = i;
+                continue;
+            }
+            if (i - riseIndex > windowSamples || sampleZ >= zFall) continue;
+
+            riseIndex = NEVER;
+            if (i - reportIndex <= refractorySamples) continue;
+            reportIndex = i;
+            while (drop < lastDrop && drops[drop] < i - toleranceSamples) drop++;
+            if (drop < lastDrop && drops[drop] <= i + toleranceSamples) {
+                truePositives++;
+                drop++;
+            } else {
+                falsePositives++;
+            }
+        }
+        counts[offset] += truePositives;
+        counts[offset + 1] += falsePositives;
+        counts[offset + 2] += dropStart[trace + 1] - dropStart[trace] - truePositives;
+    }
+
+    /**
+     * Concatenates the traces added since the last evaluation.
+     */
+    private void pack() {
+        if (y != null) return;
+        sampleCount = 0;
+        int dropCount = 0;
+        for (int trace = 0; trace < pendingY.size(); trace++) {
+            sampleCount += pendingY.get(trace).length;
+            dropCount += pendingDrops.get(trace).length;
+        }
+        y = new float[sampleCount];
+        z = new float[sampleCount];
+        drops = new int[dropCount];
+        traceStart = new int[pendingY.size() + 1];
+        dropStart = new int[pendingY.size() + 1];
+        int start = 0;
+        int dropIndex = 0;
+        for (int trace = 0; trace < pendingY.size(); trace++) {
+            traceStart[trace] = start;
+            dropStart[trace] = dropIndex;
+            for (int drop : pendingDrops.get(trace)) drops[dropIndex++] = start + drop;
+            System.arraycopy(pendingY.get(trace), 0, y, start, pendingY.get(trace).length);
+            System.arraycopy(pendingZ.get(trace), 0, z, start, pendingZ.get(trace).length);
+            start += pendingY.get(trace).length;
+        }
+        traceStart[pendingY.size()] = start;
+        dropStart[pendingY.size()] = dropIndex;
+    }
+
+    private static int toSamples(long millis, long samplePeriodNanos) {
+        return (int) Math.max(1, (millis * 1_000_000L + samplePeriodNanos - 1) / samplePeriodNanos);
+    }
+
+    /**
+     * Tunes the drop on a listing of labeled traces and replaces the DROP spec in a gestures file.
+     *
+     * @param args the listing of the traces and the gestures file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: ThresholdTuner <drop-times.txt> <gestures.json>");
+            return;
+        }
+        File gestures = new File(args[1]);
+        ThresholdTuner tuner = new ThresholdTuner();
+        tuner.addTraces(new File(args[0]));
+
+        Grid grid = Grid.DEFAULT;
+        long start = System.nanoTime();
+        Result best = tuner.tune(grid);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%d combinations on %d samples in %.2f s: %s%n", grid.size(), tuner.getSampleCount(), nanos / 1e9, best);
+        System.out.println("Baseline: " + tuner.evaluate(Parameters.DEFAULT));
+
+        List<GestureSpec> specs = new ArrayList<>();
+        if (gestures.exists()) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(gestures), StandardCharsets.UTF_8)) {
+                for (GestureSpec spec : GestureSpec.parse(reader)) {
+                    if (spec.getMotionType() != MotionType.DROP) specs.add(spec);
+                }
+            }
+        }
+        specs.add(0, best.getParameters().toSpec());
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(gestures), StandardCharsets.UTF_8)) {
+            GestureSpec.write(specs, writer);
+        }
+    }
+
+    /**
+     * Evaluates a range of combinations, splitting it while it is large.
+     */
+    private final class EvaluateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Grid grid;
+        private final int[] counts;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(Grid grid, int[] counts, int from, int to) {
+            this.grid = grid;
+            this.counts = counts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_COMBINATIONS_PER_TASK) {
+                for (int i = from; i < to; i++) evaluate(grid.get(i), counts, i * 3);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(grid, counts, from, middle), new EvaluateTask(grid, counts, middle, to));
+        }
+    }
+
+    /**
+     * The {@code Parameters} class is one combination of drop thresholds and window.
+     */
+    public static final class Parameters {
+
+        /**
+         * The thresholds and window of the built-in drop of the {@link GestureDetector}.
+         */
+        public static final Parameters DEFAULT = new Parameters(GestureDetector.Z_RISE_THRESHOLD,
+                GestureDetector.Z_FALL_THRESHOLD, GestureDetector.Y_FALL_THRESHOLD, GestureDetector.DROP_WINDOW_MILLIS);
+
+        private final float zRise;
+        private final float zFall;
+        private final float yFall;
+        private final long windowMillis;
+
+        /**
+         * Constructs a new {@code Parameters}.
+         *
+         * @param zRise        the Z acceleration to be exceeded when the device is swung up
+         * @param zFall        the Z acceleration to be fallen below when it is stopped
+         * @param yFall        the Y acceleration to be fallen below while it is swung up
+         * @param windowMillis the longest time between swinging up and stopping
+         */
+        public Parameters(float zRise, float zFall, float yFall, long windowMillis) {
+            this.zRise = zRise;
+            this.zFall = zFall;
+            this.yFall = yFall;
+            this.windowMillis = windowMillis;
+        }
+
+        /**
+         * Returns the Z acceleration to be exceeded when the device is swung up.
+         *
+         * @return the threshold
+         */
+        public float getZRise() {
+            return zRise;
+        }
+
+        /**
+         * Returns the Z acceleration to be fallen below when the device is stopped.
+         *
+         * @return the threshold
+         */
+        public float getZFall() {
+            return zFall;
+        }
+
+        /**
+         * Returns the Y acceleration to be fallen below while the device is swung up.
+         *
+         * @return the threshold
+         */
+        public float getYFall() {
+            return yFall;
+        }
+
+        /**
+         * Returns the longest time between swinging up and stopping.
+         *
+         * @return the window in milliseconds
+         */
+        public long getWindowMillis() {
+            return windowMillis;
+        }
+
+        /**
+         * Declares the drop with these parameters.
+         *
+         * @return the spec of the drop
+         */
+        public GestureSpec toSpec() {
+            return new GestureSpec.Builder(MotionType.DROP)
+                    .step(0).above(GestureSpec.Signal.Z, zRise).below(GestureSpec.Signal.Y, yFall)
+                    .step(windowMillis).below(GestureSpec.Signal.Z, zFall)
+                    .build();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("zRise=%.1f zFall=%.1f yFall=%.1f window=%d ms", zRise, zFall, yFall, windowMillis);
+        }
+    }
+
+    /**
+     * The {@code Grid} class is the set of combinations searched: every combination of the
+     * given values of each parameter.
+     */
+    public static final class Grid {
+
+        /**
+         * A grid around the built-in thresholds with 23,814 combinations.
+         */
+        public static final Grid DEFAULT = new Grid(range(10f, 20f, 0.5f), range(-16f, -6f, 0.5f), range(-10f, -2f, 1f), new long[]{30, 40, 50, 60, 80, 100});
+
+        private final float[] zRise;
+        private final float[] zFall;
+        private final float[] yFall;
+        private final long[] windowMillis;
+
+        /**
+         * Constructs a new {@code Grid}.
+         *
+         * @param zRise        the values of the Z rise threshold
+         * @param zFall        the values of the Z fall threshold
+         * @param yFall        the values of the Y fall threshold
+         * @param windowMillis the values of the window in milliseconds
+         * @throws IllegalArgumentException if a parameter has no values or a window is not positive
+         */
+        public Grid(float[] zRise, float[] zFall, float[] yFall, long[] windowMillis) {
+            if (zRise.length == 0 || zFall.length == 0 || yFall.length == 0 || windowMillis.length == 0) {
+                throw new IllegalArgumentException("Every parameter needs at least one value");
+            }
+            for (long window : windowMillis) {
+                if (window <= 0) throw new IllegalArgumentException("Window must be positive: " + window);
+            }
+            this.zRise = zRise.clone();
+            this.zFall = zFall.clone();
+            this.yFall = yFall.clone();
+            this.windowMillis = windowMillis.clone();
+        }
+
+        /**
+         * Creates the values from {@code from} to {@code to}, inclusive, in steps of {@code step}.
+         *
+         * @param from the first value
+         * @param to   the last value
+         * @param step the positive distance between two values
+         * @return the values
+         * @throws IllegalArgumentException if the step is not positive
+         */
+        public static float[] range(float from, float to, float step) {
+            if (!(step > 0)) throw new IllegalArgumentException("Step must be positive: " + step);
+            int count = (int) Math.floor((to - from) / step + 1e-3) + 1;
+            float[] values = new float[Math.max(0, count)];
+            for (int i = 0; i < values.length; i++) values[i] = from + i * step;
+            return values;
+        }
+
+        /**
+         * Returns the number of combinations.
+         *
+         * @return the number of combinations
+         */
+        public int size() {
+            return zRise.length * zFall.length * yFall.length * windowMillis.length;
+        }
+
+        /**
+         * Returns a combination.
+         *
+         * @param index the index of the combination, less than {@link #size()}
+         * @return the combination
+         */
+        public Parameters get(int index) {
+            int window = index % windowMillis.length;
+            index /= windowMillis.length;
+            int y = index % yFall.length;
+            index /= yFall.length;
+            int fall = index % zFall.length;
+            int rise = index / zFall.length;
+            return new Parameters(zRise[rise], zFall[fall], yFall[y], windowMillis[window]);
+        }
+
+        @Override
+        public String toString() {
+            return "Grid" + Arrays.toString(new int[]{zRise.length, zFall.length, yFall.length, windowMillis.length});
+        }
+    }
+
+    /**
+     * The {@code Result} class is the detection quality of one combination on the corpus.
+     */
+    public static final class Result {
+
+        private final Parameters parameters;
+        private final int truePositives;
+        private final int falsePositives;
+        private final int falseNegatives;
+
+        private Result(Parameters parameters, int truePositives, int falsePositives, int falseNegatives) {
+            this.parameters = parameters;
+            this.truePositives = truePositives;
+            this.falsePositives = falsePositives;
+            this.falseNegatives = falseNegatives;
+        }
+
+        /**
+         * Returns the evaluated combination.
+         *
+         * @return the parameters
+         */
+        public Parameters getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Returns the number of performed drops that were detected.
+         *
+         * @return the true positives
+         */
+        public int getTruePositives() {
+            return truePositives;
+        }
+
+        /**
+         * Returns the number of detected drops that were not performed.
+         *
+         * @return the false positives
+         */
+        public int getFalsePositives() {
+            return falsePositives;
+        }
+
+        /**
+         * Returns the number of performed drops that were not detected.
+         *
+         * @return the false negatives
+         */
+        public int getFalseNegatives() {
+            return falseNegatives;
+        }
+
+        /**
+         * Returns the share of detected drops that were performed.
+         *
+         * @return the precision, 1 if nothing was detected
+         */
+        public double getPrecision() {
+            int detected = truePositives + falsePositives;
+            return detected == 0 ? 1 : (double) truePositives / detected;
+        }
+
+        /**
+         * Returns the share of performed drops that were detected.
+         *
+         * @return the recall, 1 if no drops were performed
+         */
+        public double getRecall() {
+            int performed = truePositives + falseNegatives;
+            return performed == 0 ? 1 : (double) truePositives / performed;
+        }
+
+        /**
+         * Returns the harmonic mean of precision and recall.
+         *
+         * @return the F1 score
+         */
+        public double getF1() {
+            int errors = falsePositives + falseNegatives;
+            return truePositives == 0 && errors == 0 ? 1 : 2.0 * truePositives / (2 * truePositives + errors);
+        }
+
+        private boolean hasSameCounts(Result other) {
+            return truePositives == other.truePositives && falsePositives == other.falsePositives
+                    && falseNegatives == other.falseNegatives;
+        }
+
+        private boolean isBetterThan(Result other) {
+            if (getF1() != other.getF1()) return getF1() > other.getF1();
+            if (getPrecision() != other.getPrecision()) return getPrecision() > other.getPrecision();
+            return distanceToDefault() < other.distanceToDefault();
+        }
+
+        /**
+         * Measures how far the parameters are from the built-in ones, relative to each value.
+         */
+        private double distanceToDefault() {
+            Parameters d = Parameters.DEFAULT;
+            return Math.abs(parameters.zRise / d.zRise - 1) + Math.abs(parameters.zFall / d.zFall - 1)
+                    + Math.abs(parameters.yFall / d.yFall - 1) + Math.abs((double) parameters.windowMillis / d.windowMillis - 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: precision %.3f, recall %.3f, F1 %.3f (%d TP, %d FP, %d FN)",
+                    parameters, getPrecision(), getRecall(), getF1(), truePositives, falsePositives, falseNegatives);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.comvi.core;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark measuring how fast the {@link ThresholdTuner} searches the default grid on a
+ * generated corpus of an hour of samples at 100 Hz, on one thread and on all cores.
+ * Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+public class ThresholdTunerBenchmark {
+
+    private static final int TRACES = 60;
+    private static final int SAMPLES_PER_TRACE = 6_000;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures combinations and replayed samples per second with one and with all cores.
+     */
+    @Test
+    public void benchmarkTune() {
+        Random random = new Random(42);
+        ThresholdTuner tuner = new ThresholdTuner();
+        for (int i = 0; i < TRACES; i++) {
+            float[][] trace = ThresholdTunerTest.createTrace(random, SAMPLES_PER_TRACE, i % 2 == 0 ? 12f + random.nextFloat() * 8 : 0f);
+            tuner.addTrace(trace[0], trace[1], ThresholdTunerTest.injectedDrops(trace));
+        }
+        ThresholdTuner.Grid grid = ThresholdTuner.Grid.DEFAULT;
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                measure("1 thread", tuner, grid, single);
+                measure(ForkJoinPool.commonPool().getParallelism() + " threads", tuner, grid, ForkJoinPool.commonPool());
+            }
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    private static void measure(String label, ThresholdTuner tuner, ThresholdTuner.Grid grid, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        ThresholdTuner.Result best = tuner.tune(grid, pool);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-10s %,d combinations in %.2f s, %,.0f combinations/s, %.0f M samples/s: %s%n",
+                label, grid.size(), nanos / 1e9, grid.size() * 1e9 / nanos,
+                (double) grid.size() * tuner.getSampleCount() * 1e3 / nanos, best);
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.comvi.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test class for the {@link ThresholdTuner} class, verifying that its replay matches the
+ * {@link GestureDetector}, that detections are matched to labeled drops by time, that it
+ * finds thresholds detecting labeled drops and that the tuned spec is written as the app
+ * reads it.
+ *
+ * @author gxstxxv
+ */
+public class ThresholdTunerTest {
+
+    /**
+     * Tests that the replay with the built-in parameters reports the same drops as the
+     * built-in drop detection, refractory period included.
+     */
+    @Test
+    public void testReplayMatchesDetector() {
+        float[][] trace = createTrace(new Random(5), 200_000, 18f);
+        GestureDetector detector = new GestureDetector();
+        detector.setEnabled(MotionType.PICKUP, false);
+        detector.setEnabled(MotionType.SHAKE, false);
+        int[] drops = new int[trace[0].length];
+        int count = 0;
+        for (int i = 0; i < trace[0].length; i++) {
+            if (detector.detectMotion(0f, trace[0][i], trace[1][i]) == MotionType.DROP) drops[count++] = i;
+        }
+
+        ThresholdTuner tuner = new ThresholdTuner();
+        tuner.addTrace(trace[0], trace[1], Arrays.copyOf(drops, count));
+        ThresholdTuner.Result result = tuner.evaluate(ThresholdTuner.Parameters.DEFAULT);
+
+        assertTrue(count > 100);
+        assertEquals(count, result.getTruePositives());
+        assertEquals(0, result.getFalsePositives());
+        assertEquals(0, result.getFalseNegatives());
+    }
+
+    /**
+     * Tests that the replay with other parameters counts the same drops as a detector
+     * loading the tuned spec, as the app does.
+     */
+    @Test
+    public void testReplayMatchesSpec() {
+        float[][] trace = createTrace(new Random(6), 100_000, 13f);
+        ThresholdTuner.Parameters parameters = new ThresholdTuner.Parameters(12f, -8f, -4f, 80);
+        GestureDetector detector = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS,
+                GestureDetector.DEFAULT_REFRACTORY_MILLIS, Collections.singletonList(parameters.toSpec()));
+        detector.setEnabled(MotionType.PICKUP, false);
+        detector.setEnabled(MotionType.SHAKE, false);
+        int drops = 0;
+        for (int i = 0; i < trace[0].length; i++) {
+            if (detector.detectMotion(0f, trace[0][i], trace[1][i]) == MotionType.DROP) drops++;
+        }
+
+        ThresholdTuner tuner = new ThresholdTuner();
+        tuner.addTrace(trace[0], trace[1]);
+
+        assertTrue(drops > 100);
+        assertEquals(drops, tuner.evaluate(parameters).getFalsePositives());
+    }
+
+    /**
+     * Tests that the replay scores combinations of the grid as the batch detection of a
+     * {@link GestureDetector} loading their specs.
+     */
+    @Test
+    public void testReplayMatchesBatchDetection() {
+        Random random = new Random(9);
+        ThresholdTuner tuner = new ThresholdTuner();
+        for (int i = 0; i < 3; i++) {
+            float[][] trace = createTrace(random, 20_000, 11f + 2 * i);
+            tuner.addTrace(trace[0], trace[1], injectedDrops(trace));
+        }
+        ThresholdTuner.Grid grid = new ThresholdTuner.Grid(ThresholdTuner.Grid.range(10f, 16f, 2f),
+                ThresholdTuner.Grid.range(-14f, -8f, 3f), ThresholdTuner.Grid.range(-8f, -4f, 4f), new long[]{30, 100});
+
+        for (int i = 0; i < grid.size(); i++) {
+            ThresholdTuner.Parameters parameters = grid.get(i);
+            assertEquals(tuner.evaluate(parameters).toString(), tuner.evaluateWithDetector(parameters).toString());
+        }
+    }
+
+    /**
+     * Tests that drops too weak for the built-in thresholds lower the rise threshold,
+     * but not so far that bumps in traces without drops are detected.
+     */
+    @Test
+    public void testTunesWeakDrops() {
+        Random random = new Random(7);
+        ThresholdTuner tuner = new ThresholdTuner();
+        for (int i = 0; i < 4; i++) {
+            float[][] drops = createTrace(random, 5_000, 13f);
+            tuner.addTrace(drops[0], drops[1], injectedDrops(drops));
+            float[][] bumps = createTrace(random, 5_000, 0f);
+            for (int j = 200; j < 5_000; j += 400) {
+                bumps[0][j] = -7f;
+                bumps[1][j] = 11f;
+                bumps[1][j + 1] = -12f;
+            }
+            tuner.addTrace(bumps[0], bumps[1]);
+        }
+
+        ThresholdTuner.Result baseline = tuner.evaluate(ThresholdTuner.Parameters.DEFAULT);
+        ThresholdTuner.Result best = tuner.tune(ThresholdTuner.Grid.DEFAULT);
+
+        assertTrue(baseline.getRecall() < 0.1);
+        assertEquals(1.0, best.getF1(), 0);
+        assertTrue(best.getParameters().getZRise() >= 11f && best.getParameters().getZRise() < 13f);
+    }
+
+    /**
+     * Tests that a detection counts only for a labeled drop within the tolerance, so that a
+     * detection elsewhere in the trace does not make up for a missed drop.
+     */
+    @Test
+    public void testMatchesDropsByTime() {
+        float[] y = new float[2_000];
+        float[] z = new float[2_000];
+        y[500] = -8f;
+        z[500] = 18f;
+        y[501] = -8f;
+        z[501] = -14f;
+
+        ThresholdTuner tuner = new ThresholdTuner();
+        tuner.addTrace(y, z, 495);
+        tuner.addTrace(y, z, 1_500);
+        ThresholdTuner.Result result = tuner.evaluate(ThresholdTuner.Parameters.DEFAULT);
+
+        assertEquals(1, result.getTruePositives());
+        assertEquals(1, result.getFalsePositives());
+        assertEquals(1, result.getFalseNegatives());
+    }
+
+    /**
+     * Tests that the search finds the same combination regardless of parallelism.
+     */
+    @Test
+    public void testParallelismDoesNotChangeResult() {
+        Random random = new Random(8);
+        ThresholdTuner tuner = new ThresholdTuner();
+        for (int i = 0; i < 3; i++) {
+            float[][] trace = createTrace(random, 3_000, 12f + i);
+            int[] drops = injectedDrops(trace);
+            tuner.addTrace(trace[0], trace[1], Arrays.copyOf(drops, drops.length - i));
+        }
+        ThresholdTuner.Grid grid = new ThresholdTuner.Grid(ThresholdTuner.Grid.range(10f, 16f, 1f),
+                ThresholdTuner.Grid.range(-12f, -8f, 1f), ThresholdTuner.Grid.range(-8f, -4f, 2f), new long[]{30, 50});
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            assertEquals(tuner.tune(grid, single).toString(), tuner.tune(grid, parallel).toString());
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Tests that the grid enumerates every combination once.
+     */
+    @Test
+    public void testGrid() {
+        ThresholdTuner.Grid grid = new ThresholdTuner.Grid(new float[]{1, 2}, new float[]{3, 4, 5}, new float[]{6}, new long[]{10, 20});
+
+        assertEquals(12, grid.size());
+        assertEquals("zRise=2.0 zFall=5.0 yFall=6.0 window=20 ms", grid.get(11).toString());
+        assertEquals("zRise=1.0 zFall=4.0 yFall=6.0 window=10 ms", grid.get(2).toString());
+        assertEquals(21, ThresholdTuner.Grid.range(10f, 20f, 0.5f).length);
+        assertEquals(23_814, ThresholdTuner.Grid.DEFAULT.size());
+    }
+
+    /**
+     * Tests that the tuned spec is written in the form the app reads.
+     *
+     * @throws IOException if the spec cannot be written or read
+     */
+    @Test
+    public void testWritesSpec() throws IOException {
+        ThresholdTuner.Parameters parameters = new ThresholdTuner.Parameters(12.5f, -8f, -4f, 60);
+        StringWriter writer = new StringWriter();
+        GestureSpec.write(Collections.singletonList(parameters.toSpec()), writer);
+
+        List<GestureSpec> specs = GestureSpec.parse(new StringReader(writer.toString()));
+
+        assertEquals(1, specs.size());
+        assertEquals(MotionType.DROP, specs.get(0).getMotionType());
+        assertEquals(12.5f, specs.get(0).getSteps().get(0).getConditions().get(0).getThreshold(), 0f);
+        assertEquals(-4f, specs.get(0).getSteps().get(0).getConditions().get(1).getThreshold(), 0f);
+        assertEquals(60, specs.get(0).getSteps().get(1).getWithinMillis());
+        assertEquals(-8f, specs.get(0).getSteps().get(1).getConditions().get(0).getThreshold(), 0f);
+    }
+
+    /**
+     * Tests that the built-in thresholds detect every drop of the recorded corpus at its labeled time.
+     *
+     * @throws IOException if a trace cannot be read
+     */
+    @Test
+    public void testRecordedCorpus() throws IOException, URISyntaxException {
+        URL listing = ThresholdTunerTest.class.getResource("/traces/drop-times.txt");
+        assertNotNull("Missing drop times", listing);
+        ThresholdTuner tuner = new ThresholdTuner();
+        tuner.addTraces(new File(listing.toURI()));
+
+        ThresholdTuner.Result baseline = tuner.evaluate(ThresholdTuner.Parameters.DEFAULT);
+        assertEquals(12, baseline.getTruePositives());
+        assertEquals(1.0, baseline.getF1(), 0);
+        assertEquals(1.0, tuner.tune(ThresholdTuner.Grid.DEFAULT).getF1(), 0);
+    }
+
+    /**
+     * Creates a trace of noise with a drop of the given strength every few hundred samples.
+     *
+     * @return the Y and Z values of the trace
+     */
+    static float[][] createTrace(Random random, int samples, float rise) {
+        float[][] trace = new float[2][samples];
+        for (int i = 0; i < samples; i++) {
+            trace[0][i] = (float) random.nextGaussian();
+            trace[1][i] = (float) random.nextGaussian() * 2;
+        }
+        if (rise <= 0) return trace;
+        for (int i = 100; i < samples - 3; i += 200 + random.nextInt(400)) {
+            trace[0][i + 1] = -8f;
+            trace[1][i + 1] = rise;
+            trace[0][i + 2] = -8f;
+            trace[1][i + 2] = -14f;
+        }
+        return trace;
+    }
+
+    /**
+     * Returns the index of the falling sample of every drop injected by {@link #createTrace}.
+     *
+     * @return the indices of the drops
+     */
+    static int[] injectedDrops(float[][] trace) {
+        int[] drops = new int[trace[0].length];
+        int count = 0;
+        for (int i = 0; i < trace[0].length; i++) {
+            if (trace[0][i] == -8f && trace[1][i] == -14f) drops[count++] = i;
+        }
+        return Arrays.copyOf(drops, count);
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.comvi.data;
 
+import com.google.gson.Gson;
+
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -43,4 +45,20 @@ public class NoteTest {
         assertTrue(toString.contains("1.0"));
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that notes are equal if their id, content and location are equal, and that the
+     * id is not part of the JSON form stored by earlier versions.
+     */
+    @Test
+    public void testNoteEquality() {
+        Note note = new Note(7, "Test", 1.0, 2.0);
+
+        assertEquals(note, new Note(7, "Test", 1.0, 2.0));
+        assertEquals(note.hashCode(), new Note(7, "Test", 1.0, 2.0).hashCode());
+        assertNotEquals(note, new Note(8, "Test", 1.0, 2.0));
+        assertNotEquals(note, new Note(7, "Test", 1.0, 3.0));
+        assertEquals(0, new Note("Test", 1.0, 2.0).getId());
+        assertFalse(new Gson().toJson(note).contains("id"));
+    }
+
+}
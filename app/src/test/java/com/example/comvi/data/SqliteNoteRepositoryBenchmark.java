@@ -0,0 +1,80 @@
+package com.example.comvi.data;
+
+import static org.junit.Assume.assumeTrue;
+
+import android.location.Location;
+
+import com.example.comvi.core.DistanceCalculator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the indexed radius query of {@link SqliteNoteRepository} with a full
+ * scan of all notes by the {@link DistanceCalculator}. Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SqliteNoteRepositoryBenchmark {
+
+    private static final int[] STORE_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int QUERIES = 200;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures the average query latency of the indexed lookup and the full scan for
+     * notes spread over a city-sized area.
+     */
+    @Test
+    public void benchmarkRadiusQuery() {
+        DistanceCalculator distanceCalculator = new DistanceCalculator();
+        Random random = new Random(42);
+        List<Note> notes = new ArrayList<>();
+        SqliteNoteRepository repository = new SqliteNoteRepository(RuntimeEnvironment.getApplication(), distanceCalculator);
+
+        for (int storeSize : STORE_SIZES) {
+            List<Note> batch = new ArrayList<>();
+            while (notes.size() + batch.size() < storeSize) {
+                batch.add(new Note("Note", 52.4 + random.nextDouble() * 0.2, 13.3 + random.nextDouble() * 0.2));
+            }
+            repository.saveNotes(batch);
+            notes.addAll(batch);
+
+            Location[] locations = new Location[QUERIES];
+            for (int i = 0; i < QUERIES; i++) {
+                locations[i] = new Location("benchmark");
+                locations[i].setLatitude(52.4 + random.nextDouble() * 0.2);
+                locations[i].setLongitude(13.3 + random.nextDouble() * 0.2);
+            }
+
+            long start = System.nanoTime();
+            for (Location location : locations) repository.getNotesInRadius(location);
+            double indexedMicros = (System.nanoTime() - start) / 1000.0 / QUERIES;
+
+            start = System.nanoTime();
+            for (Location location : locations) distanceCalculator.getNotesInRadius(location, notes);
+            double scanMicros = (System.nanoTime() - start) / 1000.0 / QUERIES;
+
+            System.out.printf("%,9d notes: indexed %10.1f us, full scan %10.1f us%n", storeSize, indexedMicros, scanMicros);
+        }
+        repository.close();
+    }
+
+}
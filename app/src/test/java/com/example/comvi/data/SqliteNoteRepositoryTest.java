@@ -0,0 +1,199 @@
+package com.example.comvi.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.location.Location;
+
+import com.example.comvi.core.DistanceCalculator;
+import com.example.comvi.core.ProximityTracker;
+import com.google.gson.Gson;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+/**
+ * Robolectric test class for {@link SqliteNoteRepository}, verifying storage, stable note
+ * identity across lookups as seen by the {@link ProximityTracker}, indexed radius lookups
+ * and the migration of notes stored in SharedPreferences.
+ *
+ * @author gxstxxv
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SqliteNoteRepositoryTest {
+
+    private Context context;
+    private SqliteNoteRepository repository;
+
+    /**
+     * Resolves the application context before each test.
+     */
+    @Before
+    public void setup() {
+        context = RuntimeEnvironment.getApplication();
+    }
+
+    /**
+     * Closes the repository after each test.
+     */
+    @After
+    public void tearDown() {
+        if (repository != null) repository.close();
+    }
+
+    /**
+     * Tests that saved notes are returned in insertion order.
+     */
+    @Test
+    public void testSaveAndGetNotes() {
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+        repository.saveNote(new Note("First", 1.0, 2.0));
+        repository.saveNote(new Note("Second", 3.0, 4.0));
+
+        List<Note> notes = repository.getNotes();
+
+        assertEquals(2, notes.size());
+        assertEquals("First", notes.get(0).getContent());
+        assertEquals(2.0, notes.get(0).getLongitude(), 0.0);
+        assertEquals("Second", notes.get(1).getContent());
+    }
+
+    /**
+     * Tests that a note read by two queries compares equal, while two saved notes with the
+     * same content and location do not.
+     */
+    @Test
+    public void testNotesKeepTheirIdentity() {
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+        repository.saveNote(new Note("Twin", 1.0, 1.0));
+        repository.saveNote(new Note("Twin", 1.0, 1.0));
+
+        List<Note> first = repository.getNotesInRadius(location(1.0, 1.0));
+        List<Note> second = repository.getNotesInRadius(location(1.0, 1.0));
+
+        assertEquals(2, first.size());
+        assertEquals(first, second);
+        assertEquals(first.get(0).hashCode(), second.get(0).hashCode());
+        assertNotEquals(first.get(0), first.get(1));
+    }
+
+    /**
+     * Tests that two lookups at the same location leave the {@link ProximityTracker}
+     * unchanged, so the note list is not updated again.
+     */
+    @Test
+    public void testRepeatedLookupReportsNoChange() {
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+        repository.saveNote(new Note("First", 1.0, 1.0));
+        repository.saveNote(new Note("Second", 1.0001, 1.0001));
+        ProximityTracker proximityTracker = new ProximityTracker();
+
+        assertTrue(proximityTracker.update(repository.getNotesInRadius(location(1.0, 1.0))));
+        assertFalse(proximityTracker.update(repository.getNotesInRadius(location(1.0, 1.0))));
+        assertTrue(proximityTracker.getEntered().isEmpty());
+        assertTrue(proximityTracker.getExited().isEmpty());
+        assertEquals(2, proximityTracker.getNotesInRadius().size());
+    }
+
+    /**
+     * Tests that the radius lookup returns nearby notes only, and excludes notes that merely
+     * share the latitude or longitude of the location.
+     */
+    @Test
+    public void testGetNotesInRadius() {
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+        repository.saveNote(new Note("Inside", 1.0003, 1.0003));
+        repository.saveNote(new Note("Outside", 1.001, 1.001));
+        repository.saveNote(new Note("Same latitude", 1.0, 45.0));
+
+        List<Note> notesInRadius = repository.getNotesInRadius(location(1.0, 1.0));
+
+        assertEquals(1, notesInRadius.size());
+        assertEquals("Inside", notesInRadius.get(0).getContent());
+    }
+
+    /**
+     * Tests that notes stored as JSON in SharedPreferences are migrated into the database
+     * exactly once and that the JSON is removed afterwards.
+     */
+    @Test
+    public void testMigratesLegacyNotes() {
+        storeLegacyNotes();
+
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+        repository.close();
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+
+        List<Note> notes = repository.getNotes();
+        assertEquals(2, notes.size());
+        assertEquals("Legacy 1", notes.get(0).getContent());
+        assertEquals("Legacy 2", notes.get(1).getContent());
+        assertNull(preferences().getString(SqliteNoteRepository.KEY_LOCATIONS, null));
+    }
+
+    /**
+     * Tests that a JSON string left behind by a migration interrupted after its transaction
+     * committed is removed without being imported again.
+     */
+    @Test
+    public void testInterruptedMigrationDoesNotDuplicateNotes() {
+        storeLegacyNotes();
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+        repository.close();
+
+        storeLegacyNotes();
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+
+        assertEquals(2, repository.getNotes().size());
+        assertNull(preferences().getString(SqliteNoteRepository.KEY_LOCATIONS, null));
+    }
+
+    /**
+     * Tests that a malformed legacy string is left in place and does not insert partial data.
+     */
+    @Test
+    public void testMalformedLegacyNotesAreNotMigrated() {
+        preferences().edit().putString(SqliteNoteRepository.KEY_LOCATIONS, "[{\"content\":\"Broken\",").commit();
+
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+
+        assertTrue(repository.getNotes().isEmpty());
+        repository.close();
+        repository = new SqliteNoteRepository(context, new DistanceCalculator());
+        assertTrue(repository.getNotes().isEmpty());
+        assertFalse(preferences().getString(SqliteNoteRepository.KEY_LOCATIONS, "").isEmpty());
+    }
+
+    private void storeLegacyNotes() {
+        String json = new Gson().toJson(List.of(
+                new Note("Legacy 1", 1.0, 1.0),
+                new Note("Legacy 2", 2.0, 2.0)
+        ));
+        preferences().edit().putString(SqliteNoteRepository.KEY_LOCATIONS, json).commit();
+    }
+
+    private SharedPreferences preferences() {
+        return context.getSharedPreferences(SqliteNoteRepository.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private static Location location(double latitude, double longitude) {
+        Location location = new Location("test");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.example.comvi.location;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.Manifest;
+import android.app.Application;
+import android.location.Location;
+import android.widget.Button;
+
+import com.google.android.gms.location.CurrentLocationRequest;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.tasks.CancellationToken;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Robolectric test class for {@link LocationService}, verifying that requests for the
+ * current location are coalesced and that a request that fails, times out or is cancelled
+ * does not block the next one.
+ *
+ * @author gxstxxv
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class LocationServiceTest {
+
+    private FusedLocationProviderClient fusedLocationClient;
+    private final List<Task<Location>> tasks = new ArrayList<>();
+    private final List<CancellationToken> tokens = new ArrayList<>();
+    private LocationService locationService;
+
+    /**
+     * Grants the location permission and creates a service whose client returns a new
+     * unfinished task for every request.
+     */
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        Application application = RuntimeEnvironment.getApplication();
+        shadowOf(application).grantPermissions(Manifest.permission.ACCESS_FINE_LOCATION);
+        fusedLocationClient = mock(FusedLocationProviderClient.class);
+        when(fusedLocationClient.getCurrentLocation(any(CurrentLocationRequest.class), any(CancellationToken.class)))
+                .thenAnswer(invocation -> {
+                    Task<Location> task = mock(Task.class);
+                    when(task.addOnCompleteListener(any(OnCompleteListener.class))).thenReturn(task);
+                    tasks.add(task);
+                    tokens.add(invocation.getArgument(1));
+                    return task;
+                });
+        locationService = new LocationService(application, new Button(application), fusedLocationClient);
+    }
+
+    /**
+     * Tests that requests arriving while a request is in flight share its fix, and that a
+     * callback attached twice receives it once.
+     */
+    @Test
+    public void testCoalescesRequests() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        locationService.requestLocation(first);
+        locationService.requestLocation(second);
+        locationService.requestLocation(first);
+
+        Location location = new Location("test");
+        complete(0, location);
+
+        verify(fusedLocationClient, times(1)).getCurrentLocation(any(CurrentLocationRequest.class), any(CancellationToken.class));
+        assertEquals(List.of(location), first.locations);
+        assertEquals(List.of(location), second.locations);
+        assertFalse(locationService.isRequestPending());
+    }
+
+    /**
+     * Tests that a failed request and a request that timed out without a fix clear the
+     * waiting callbacks, so the next request asks for a new fix.
+     */
+    @Test
+    public void testRecoversAfterFailure() {
+        RecordingCallback callback = new RecordingCallback();
+        locationService.requestLocation(callback);
+        complete(0, null, false);
+        assertFalse(locationService.isRequestPending());
+
+        locationService.requestLocation(callback);
+        complete(1, null);
+        assertFalse(locationService.isRequestPending());
+
+        Location location = new Location("test");
+        locationService.requestLocation(callback);
+        complete(2, location);
+
+        assertEquals(3, tasks.size());
+        assertEquals(List.of(location), callback.locations);
+    }
+
+    /**
+     * Tests that cancelling drops the waiting callbacks and cancels the request, and that
+     * a late result of the cancelled request is ignored.
+     */
+    @Test
+    public void testCancelDropsPendingCallbacks() {
+        RecordingCallback cancelled = new RecordingCallback();
+        locationService.requestLocation(cancelled);
+        locationService.cancelLocationRequest();
+        assertTrue(tokens.get(0).isCancellationRequested());
+        assertFalse(locationService.isRequestPending());
+
+        RecordingCallback callback = new RecordingCallback();
+        locationService.requestLocation(callback);
+        complete(0, new Location("late"));
+        assertTrue(locationService.isRequestPending());
+
+        Location location = new Location("test");
+        complete(1, location);
+
+        assertTrue(cancelled.locations.isEmpty());
+        assertEquals(List.of(location), callback.locations);
+    }
+
+    private void complete(int request, Location location) {
+        complete(request, location, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete(int request, Location location, boolean successful) {
+        Task<Location> task = tasks.get(request);
+        when(task.isSuccessful()).thenReturn(successful);
+        when(task.getResult()).thenReturn(location);
+        ArgumentCaptor<OnCompleteListener<Location>> listener = ArgumentCaptor.forClass(OnCompleteListener.class);
+        verify(task).addOnCompleteListener(listener.capture());
+        listener.getValue().onComplete(task);
+    }
+
+    private static final class RecordingCallback implements LocationAPI.LocationResultCallback {
+
+        private final List<Location> locations = new ArrayList<>();
+
+        @Override
+        public void onLocationResult(Location location) {
+            locations.add(location);
+        }
+
+        @Override
+        public void onLocationUpdate(Location location) {
+        }
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.example.comvi.sensor;
+
+import static com.example.comvi.util.AllocationAssert.assertAllocatesLessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import android.content.Context;
+
+import com.example.comvi.core.GestureDetector;
+import com.example.comvi.core.MotionType;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Test class for the {@link AccelerometerHandler} class, verifying calibration,
+ * event statistics and that delivering events does not allocate.
+ *
+ * @author gxstxxv
+ */
+public class AccelerometerHandlerTest {
+
+    private static final int WARM_UP_EVENTS = 20_000;
+    private static final int MEASURED_EVENTS = 100_000;
+
+    private final long[] now = {0};
+    private final SamplingStats samplingStats = new SamplingStats(() -> now[0]);
+    private AccelerometerHandler accelerometerHandler;
+
+    /**
+     * Creates a handler without a sensor manager before each test.
+     */
+    @Before
+    public void setup() {
+        accelerometerHandler = new AccelerometerHandler(mock(Context.class), samplingStats);
+    }
+
+    /**
+     * Tests that the first event sets the baseline and later events are delivered
+     * relative to it, in the same reused array.
+     */
+    @Test
+    public void testCalibratesAgainstFirstEvent() {
+        float[][] received = new float[2][];
+        float[][] copies = new float[2][];
+        int[] count = {0};
+        accelerometerHandler.setListener((sensor, values, accuracy, timestamp) -> {
+            received[count[0]] = values;
+            copies[count[0]++] = values.clone();
+        });
+
+        accelerometerHandler.deliver(null, new float[]{1f, 2f, 9.81f}, 3, 1L);
+        accelerometerHandler.deliver(null, new float[]{2f, 4f, 10.81f}, 3, 2L);
+
+        assertArrayEquals(new float[]{0f, 0f, 0f}, copies[0], 0f);
+        assertArrayEquals(new float[]{1f, 2f, 1f}, copies[1], 0f);
+        assertSame(received[0], received[1]);
+    }
+
+    /**
+     * Tests that, after warm-up, delivering events to a gesture detector allocates nothing.
+     */
+    @Test
+    public void testDeliveryDoesNotAllocate() {
+        GestureDetector gestureDetector = new GestureDetector();
+        accelerometerHandler.setListener((sensor, values, accuracy, timestamp) -> gestureDetector.detectMotion(values));
+        float[] raw = new float[3];
+
+        assertAllocatesLessThan(MEASURED_EVENTS, WARM_UP_EVENTS, MEASURED_EVENTS, i -> deliver(raw, i));
+    }
+
+    /**
+     * Tests that delivered events and the time spent in the listener are counted.
+     */
+    @Test
+    public void testCountsEventsAndProcessingTime() {
+        accelerometerHandler.setListener((sensor, values, accuracy, timestamp) -> {
+            long end = System.nanoTime() + 100_000;
+            while (System.nanoTime() < end) Thread.onSpinWait();
+        });
+
+        for (int i = 0; i < 10; i++) deliver(new float[3], i);
+
+        assertEquals(10, accelerometerHandler.getEventCount());
+        assertTrue(accelerometerHandler.getTotalProcessingNanos() >= 1_000_000);
+        assertEquals(0, accelerometerHandler.getMaxQueueDelayNanos());
+    }
+
+    /**
+     * Tests that switching sampling modes keeps the calibration, that events are attributed
+     * to the mode in which they were delivered and that only the idle mode batches samples.
+     */
+    @Test
+    public void testSamplingModesKeepCalibration() {
+        float[] copy = new float[3];
+        accelerometerHandler.setListener((sensor, values, accuracy, timestamp) -> System.arraycopy(values, 0, copy, 0, 3));
+
+        accelerometerHandler.setSamplingMode(SamplingMode.ARMED);
+        assertEquals(0, accelerometerHandler.getMaxReportLatency());
+        accelerometerHandler.deliver(null, new float[]{1f, 2f, 3f}, 3, 1L);
+        accelerometerHandler.setSamplingMode(SamplingMode.BACKGROUND);
+        accelerometerHandler.setSamplingMode(SamplingMode.IDLE);
+        accelerometerHandler.deliver(null, new float[]{2f, 2f, 3f}, 3, 2L);
+        accelerometerHandler.deliver(null, new float[]{3f, 2f, 3f}, 3, 3L);
+
+        assertArrayEquals(new float[]{2f, 0f, 0f}, copy, 0f);
+        assertEquals(SamplingMode.IDLE, accelerometerHandler.getSamplingMode());
+        assertTrue(accelerometerHandler.getMaxReportLatency() > 0);
+        assertEquals(1, samplingStats.getEvents(SamplingMode.ARMED));
+        assertEquals(2, samplingStats.getEvents(SamplingMode.IDLE));
+    }
+
+    /**
+     * Tests that a drop split over a batch that arrives out of order is detected exactly
+     * once when the batch is replayed.
+     */
+    @Test
+    public void testDetectsDropFromBatch() {
+        GestureDetector gestureDetector = new GestureDetector();
+        int[] drops = {0};
+        accelerometerHandler.setListener((sensor, values, accuracy, timestamp) -> {
+            if (gestureDetector.detectMotion(values) == MotionType.DROP) drops[0]++;
+        });
+        float[][] burst = {
+                {0f, 0f, 9.81f}, {0f, 0f, 9.81f}, {0f, -8f, 27.81f}, {0f, -8f, -4.19f}, {0f, 0f, 9.81f}
+        };
+        int[] arrival = {0, 1, 3, 2, 4};
+
+        for (int i = 0; i < arrival.length; i++) {
+            int sample = arrival[i];
+            boolean first = accelerometerHandler.enqueue(null, burst[sample], 3, sample * 5_000_000L);
+            assertEquals(i == 0, first);
+        }
+        assertEquals(0, drops[0]);
+
+        accelerometerHandler.flushBatch();
+
+        assertEquals(1, drops[0]);
+        assertEquals(5, accelerometerHandler.getEventCount());
+    }
+
+    /**
+     * Tests that a batch started after the sensor thread quit is flushed right away instead
+     * of being posted to the cleared handler.
+     */
+    @Test
+    public void testFlushesBatchWithoutSensorThread() {
+        int[] count = {0};
+        accelerometerHandler.setListener((sensor, values, accuracy, timestamp) -> count[0]++);
+        accelerometerHandler.setSamplingMode(SamplingMode.IDLE);
+        accelerometerHandler.setSamplingMode(SamplingMode.BACKGROUND);
+
+        assertTrue(accelerometerHandler.enqueue(null, new float[]{0f, 0f, 9.81f}, 3, 1L));
+        accelerometerHandler.scheduleFlush();
+        assertEquals(1, count[0]);
+        assertTrue(accelerometerHandler.enqueue(null, new float[]{0f, 0f, 9.81f}, 3, 2L));
+    }
+
+    private void deliver(float[] raw, int i) {
+        raw[0] = (i % 7) * 0.1f;
+        raw[1] = (i % 11) * -0.5f;
+        raw[2] = 9.81f + (i % 13);
+        accelerometerHandler.deliver(null, raw, 3, i * 5_000_000L);
+    }
+
+}
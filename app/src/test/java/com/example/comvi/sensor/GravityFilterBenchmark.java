@@ -0,0 +1,56 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Benchmark for the {@link GravityFilter}, measuring the time per sample.
+ * Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+public class GravityFilterBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+    private static final int ROUNDS = 200;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures nanoseconds per filtered sample.
+     */
+    @Test
+    public void benchmarkApply() {
+        Random random = new Random(42);
+        float[] samples = new float[SAMPLES * 3];
+        for (int i = 0; i < samples.length; i++) samples[i] = (float) random.nextGaussian() * 2 + (i % 3 == 2 ? 9.81f : 0);
+        GravityFilter gravityFilter = new GravityFilter();
+        float[] values = new float[3];
+        long timestamp = 0;
+        float checksum = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < SAMPLES; i++) {
+                System.arraycopy(samples, i * 3, values, 0, 3);
+                gravityFilter.apply(values, timestamp += 5_000_000L);
+                checksum += values[2];
+            }
+            if (round % 50 == 49) {
+                System.out.printf("round %d: %.1f ns/sample%n", round + 1, (double) (System.nanoTime() - start) / SAMPLES);
+            }
+        }
+        System.out.println("checksum " + checksum);
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.example.comvi.sensor;
+
+import static com.example.comvi.util.AllocationAssert.assertAllocatesLessThan;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import com.example.comvi.core.GestureDetector;
+import com.example.comvi.core.MotionType;
+
+import org.junit.Test;
+
+
+/**
+ * Test class for the {@link GravityFilter} class, verifying that gravity is tracked across
+ * tilts while short gestures pass through, and that filtering does not allocate.
+ *
+ * @author gxstxxv
+ */
+public class GravityFilterTest {
+
+    private static final long PERIOD_NANOS = 5_000_000L;
+
+    private final GravityFilter gravityFilter = new GravityFilter();
+    private final float[] values = new float[3];
+    private long timestamp;
+
+    /**
+     * Tests that the first sample is taken as gravity.
+     */
+    @Test
+    public void testFirstSampleInitializesGravity() {
+        apply(0.5f, 1f, 9.81f);
+
+        assertArrayEquals(new float[]{0f, 0f, 0f}, values, 0f);
+        assertEquals(9.81f, gravityFilter.getGravity(2), 0f);
+    }
+
+    /**
+     * Tests that the estimate follows a tilt of the device within a few time constants.
+     */
+    @Test
+    public void testFollowsTilt() {
+        apply(0f, 0f, 9.81f);
+        for (int i = 0; i < 1000; i++) apply(0f, 6.94f, 6.94f);
+
+        assertEquals(6.94f, gravityFilter.getGravity(1), 0.05f);
+        assertEquals(6.94f, gravityFilter.getGravity(2), 0.05f);
+        assertEquals(0f, values[1], 0.05f);
+    }
+
+    /**
+     * Tests that a drop is detected after the device was tilted, without recalibration.
+     */
+    @Test
+    public void testDropDetectedAfterTilt() {
+        GestureDetector gestureDetector = new GestureDetector();
+        apply(0f, 0f, 9.81f);
+        for (int i = 0; i < 1000; i++) {
+            apply(0f, 4f, 8.96f);
+            assertEquals(MotionType.NONE, gestureDetector.detectMotion(values));
+        }
+
+        apply(0f, 4f - 8.5f, 8.96f + 19f);
+        assertEquals(MotionType.NONE, gestureDetector.detectMotion(values));
+        apply(0f, 4f, 8.96f - 16f);
+        assertEquals(MotionType.DROP, gestureDetector.detectMotion(values));
+    }
+
+    /**
+     * Tests that, after warm-up, filtering allocates nothing.
+     */
+    @Test
+    public void testDoesNotAllocate() {
+        assertAllocatesLessThan(100_000, 20_000, 100_000, i -> apply(i % 3, i % 5, 9.81f));
+    }
+
+    private void apply(float x, float y, float z) {
+        values[0] = x;
+        values[1] = y;
+        values[2] = z;
+        gravityFilter.apply(values, timestamp);
+        timestamp += PERIOD_NANOS;
+    }
+
+}
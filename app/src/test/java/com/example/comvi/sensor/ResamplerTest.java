@@ -0,0 +1,194 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the {@link Resampler} class, verifying the output grid, the linear
+ * interpolation, the peaks kept from faster input and the restart after gaps.
+ *
+ * @author gxstxxv
+ */
+public class ResamplerTest {
+
+    private static final long PERIOD = 10_000_000L;
+
+    private final List<float[]> samples = new ArrayList<>();
+    private final List<Long> timestamps = new ArrayList<>();
+    private Resampler resampler;
+
+    /**
+     * Initializes a new {@link Resampler} at 100 Hz that records its output.
+     */
+    @Before
+    public void setup() {
+        resampler = new Resampler(PERIOD, (x, y, z, t) -> {
+            samples.add(new float[]{x, y, z});
+            timestamps.add(t);
+        });
+    }
+
+    /**
+     * Tests that the first sample is passed on and starts the grid.
+     */
+    @Test
+    public void testFirstSamplePassedOn() {
+        resampler.onSample(1f, 2f, 3f, 5_000_000L);
+
+        assertEquals(1, samples.size());
+        assertEquals(5_000_000L, (long) timestamps.get(0));
+        assertEquals(3f, samples.get(0)[2], 0f);
+    }
+
+    /**
+     * Tests that a faster input is reduced to the nominal rate.
+     */
+    @Test
+    public void testDownsamplesFasterInput() {
+        for (long t = 0; t <= 1_000_000_000L; t += 2_500_000L) resampler.onSample(0f, 0f, 1f, t);
+
+        assertEquals(101, samples.size());
+        assertEquals(101, resampler.getOutputCount());
+        for (int i = 0; i < timestamps.size(); i++) assertEquals(i * PERIOD, (long) timestamps.get(i));
+    }
+
+    /**
+     * Tests that a slower input is interpolated linearly onto the grid.
+     */
+    @Test
+    public void testInterpolatesSlowerInput() {
+        resampler.onSample(0f, 0f, 0f, 0);
+        resampler.onSample(4f, -4f, 8f, 40_000_000L);
+
+        assertEquals(5, samples.size());
+        assertEquals(1f, samples.get(1)[0], 1e-6f);
+        assertEquals(-2f, samples.get(2)[1], 1e-6f);
+        assertEquals(6f, samples.get(3)[2], 1e-6f);
+        assertEquals(40_000_000L, (long) timestamps.get(4));
+    }
+
+    /**
+     * Tests that grid points between irregular input samples are interpolated by their timestamps.
+     */
+    @Test
+    public void testIrregularInput() {
+        resampler.onSample(0f, 0f, 0f, 0);
+        resampler.onSample(0f, 0f, 7f, 7_000_000L);
+        resampler.onSample(0f, 0f, 11f, 11_000_000L);
+
+        assertEquals(2, samples.size());
+        assertEquals(10f, samples.get(1)[2], 1e-5f);
+    }
+
+    /**
+     * Tests that a rise and a fall of one input sample each at 200 Hz, falling between the
+     * same two grid points, are both passed on in order instead of being interpolated away.
+     */
+    @Test
+    public void testKeepsShortPeaks() {
+        feedSpike(resampler);
+
+        int rise = indexOfZ(samples, 19f);
+        int fall = indexOfZ(samples, -16f);
+        assertTrue(rise >= 0);
+        assertEquals(rise + 1, fall);
+        assertEquals(-8.5f, samples.get(rise)[1], 0f);
+        assertEquals(26, samples.size());
+    }
+
+    /**
+     * Tests that without a peak threshold the same peaks are interpolated away.
+     */
+    @Test
+    public void testInterpolationAloneLosesShortPeaks() {
+        List<float[]> interpolated = new ArrayList<>();
+        feedSpike(new Resampler(PERIOD, Resampler.DEFAULT_MAX_GAP_NANOS, Float.POSITIVE_INFINITY,
+                (x, y, z, t) -> interpolated.add(new float[]{x, y, z})));
+
+        assertEquals(-1, indexOfZ(interpolated, 19f));
+        assertEquals(-1, indexOfZ(interpolated, -16f));
+    }
+
+    /**
+     * Tests that a non-positive peak threshold is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositivePeakThreshold() {
+        new Resampler(PERIOD, Resampler.DEFAULT_MAX_GAP_NANOS, 0f, (x, y, z, t) -> { });
+    }
+
+    /**
+     * Tests that a long gap restarts the grid instead of interpolating across it.
+     */
+    @Test
+    public void testGapRestartsGrid() {
+        resampler.onSample(0f, 0f, 0f, 0);
+        resampler.onSample(0f, 0f, 9f, Resampler.DEFAULT_MAX_GAP_NANOS + 3_000_000L);
+
+        assertEquals(2, samples.size());
+        assertEquals(Resampler.DEFAULT_MAX_GAP_NANOS + 3_000_000L, (long) timestamps.get(1));
+        assertEquals(9f, samples.get(1)[2], 0f);
+    }
+
+    /**
+     * Tests that a timestamp going backwards restarts the grid.
+     */
+    @Test
+    public void testTimestampGoingBackwardsRestartsGrid() {
+        resampler.onSample(0f, 0f, 0f, 50_000_000L);
+        resampler.onSample(0f, 0f, 2f, 20_000_000L);
+        resampler.onSample(0f, 0f, 4f, 30_000_000L);
+
+        assertEquals(3, samples.size());
+        assertEquals(30_000_000L, (long) timestamps.get(2));
+    }
+
+    /**
+     * Tests that a reset restarts the grid at the next sample.
+     */
+    @Test
+    public void testReset() {
+        resampler.onSample(0f, 0f, 0f, 0);
+        resampler.reset();
+        resampler.onSample(0f, 0f, 1f, 3_000_000L);
+
+        assertEquals(2, samples.size());
+        assertEquals(3_000_000L, (long) timestamps.get(1));
+    }
+
+    /**
+     * Tests that a non-positive period is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNonPositivePeriod() {
+        new Resampler(0, (x, y, z, t) -> { });
+    }
+
+    /**
+     * Feeds 250 ms of samples every 5 ms with a rise at 102 ms and a fall at 107 ms,
+     * between the grid points at 100 ms and 110 ms.
+     */
+    private static void feedSpike(Resampler resampler) {
+        for (long t = 0; t <= 250_000_000L; t += 5_000_000L) {
+            if (t == 100_000_000L) {
+                resampler.onSample(0f, -8.5f, 19f, 102_000_000L);
+                resampler.onSample(0f, -4f, -16f, 107_000_000L);
+            } else if (t != 105_000_000L) {
+                resampler.onSample(0f, 0f, 0f, t);
+            }
+        }
+    }
+
+    private static int indexOfZ(List<float[]> samples, float z) {
+        for (int i = 0; i < samples.size(); i++) {
+            if (samples.get(i)[2] == z) return i;
+        }
+        return -1;
+    }
+}
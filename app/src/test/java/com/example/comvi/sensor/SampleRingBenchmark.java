@@ -0,0 +1,119 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Benchmark for the {@link SampleRing}, measuring the throughput of one producer with
+ * three consumers, and the overruns of consumers draining a 1 kHz stream in batches.
+ * Runs only with {@code -Pbenchmark=true}.
+ *
+ * @author gxstxxv
+ */
+public class SampleRingBenchmark {
+
+    private static final int CAPACITY = 1024;
+    private static final int SAMPLES = 20_000_000;
+    private static final int CONSUMERS = 3;
+    private static final int PACED_RATE_HZ = 1_000;
+    private static final int PACED_SECONDS = 3;
+
+    /**
+     * Skips the benchmark unless it was requested explicitly.
+     */
+    @Before
+    public void setup() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /**
+     * Measures how many samples per second the producer publishes while consumers drain.
+     */
+    @Test
+    public void benchmarkThroughput() throws InterruptedException {
+        SampleRing ring = new SampleRing(CAPACITY);
+        Consumer[] consumers = startConsumers(ring, 0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < SAMPLES; i++) ring.publish(i, i, i, i);
+        long nanos = System.nanoTime() - start;
+        stopConsumers(consumers);
+
+        System.out.printf("unpaced: %.1f M samples/s%n", SAMPLES * 1e3 / nanos);
+        report(consumers);
+    }
+
+    /**
+     * Feeds the ring at 1 kHz while consumers wake up every 20 ms to drain a batch.
+     */
+    @Test
+    public void benchmarkPacedInput() throws InterruptedException {
+        SampleRing ring = new SampleRing(CAPACITY);
+        Consumer[] consumers = startConsumers(ring, 20_000_000);
+
+        long period = 1_000_000_000L / PACED_RATE_HZ;
+        long next = System.nanoTime();
+        for (int i = 0; i < PACED_RATE_HZ * PACED_SECONDS; i++) {
+            ring.publish(i, i, i, next);
+            next += period;
+            LockSupport.parkNanos(next - System.nanoTime());
+        }
+        stopConsumers(consumers);
+
+        System.out.printf("paced at %d Hz:%n", PACED_RATE_HZ);
+        report(consumers);
+    }
+
+    private static Consumer[] startConsumers(SampleRing ring, long sleepNanos) {
+        Consumer[] consumers = new Consumer[CONSUMERS];
+        for (int i = 0; i < CONSUMERS; i++) {
+            consumers[i] = new Consumer(ring.newCursor(), sleepNanos);
+            consumers[i].start();
+        }
+        return consumers;
+    }
+
+    private static void stopConsumers(Consumer[] consumers) throws InterruptedException {
+        for (Consumer consumer : consumers) consumer.running = false;
+        for (Consumer consumer : consumers) consumer.join();
+    }
+
+    private static void report(Consumer[] consumers) {
+        for (int i = 0; i < consumers.length; i++) {
+            System.out.printf("  consumer %d: %,d received, %,d overruns%n", i, consumers[i].received, consumers[i].cursor.getOverruns());
+        }
+    }
+
+    /**
+     * A consumer thread draining its cursor in batches of up to 256 samples.
+     */
+    private static final class Consumer extends Thread implements SensorAPI.SampleConsumer {
+
+        private final SampleRing.Cursor cursor;
+        private final long sleepNanos;
+        private volatile boolean running = true;
+        private long received;
+
+        Consumer(SampleRing.Cursor cursor, long sleepNanos) {
+            this.cursor = cursor;
+            this.sleepNanos = sleepNanos;
+        }
+
+        @Override
+        public void run() {
+            while (running || cursor.getPending() > 0) {
+                if (cursor.drain(this, 256) == 0 || sleepNanos > 0) LockSupport.parkNanos(Math.max(sleepNanos, 1_000));
+            }
+        }
+
+        @Override
+        public void onSample(float x, float y, float z, long timestampNanos) {
+            received++;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test class for the {@link SampleRing} class, verifying ordering, overrun accounting and
+ * consistency of samples read concurrently with the producer.
+ *
+ * @author gxstxxv
+ */
+public class SampleRingTest {
+
+    private static final int STRESS_SAMPLES = 2_000_000;
+
+    /**
+     * Tests that the capacity is rounded up to a power of two.
+     */
+    @Test
+    public void testCapacityIsPowerOfTwo() {
+        assertEquals(1, new SampleRing(1).getCapacity());
+        assertEquals(64, new SampleRing(64).getCapacity());
+        assertEquals(128, new SampleRing(65).getCapacity());
+    }
+
+    /**
+     * Tests that every cursor receives all samples in order and that drains respect the limit.
+     */
+    @Test
+    public void testCursorsReceiveSamplesInOrder() {
+        SampleRing ring = new SampleRing(8);
+        SampleRing.Cursor first = ring.newCursor();
+        SampleRing.Cursor second = ring.newCursor();
+        for (int i = 0; i < 5; i++) ring.publish(i, -i, i * 2, i * 10L);
+
+        List<Long> received = new ArrayList<>();
+        assertEquals(3, first.drain((x, y, z, t) -> received.add(t), 3));
+        assertEquals(2, first.drain((x, y, z, t) -> received.add(t), 10));
+        assertEquals(List.of(0L, 10L, 20L, 30L, 40L), received);
+
+        float[] last = new float[3];
+        assertEquals(5, second.drain((x, y, z, t) -> {
+            last[0] = x;
+            last[1] = y;
+            last[2] = z;
+        }, 10));
+        assertEquals(4f, last[0], 0f);
+        assertEquals(-4f, last[1], 0f);
+        assertEquals(8f, last[2], 0f);
+    }
+
+    /**
+     * Tests that a cursor falling more than one lap behind skips to the oldest kept sample
+     * and counts the lost samples.
+     */
+    @Test
+    public void testCountsOverruns() {
+        SampleRing ring = new SampleRing(4);
+        SampleRing.Cursor cursor = ring.newCursor();
+        for (int i = 0; i < 10; i++) ring.publish(0f, 0f, 0f, i);
+
+        List<Long> received = new ArrayList<>();
+        cursor.drain((x, y, z, t) -> received.add(t), Integer.MAX_VALUE);
+
+        assertEquals(List.of(6L, 7L, 8L, 9L), received);
+        assertEquals(6, cursor.getOverruns());
+        assertEquals(0, cursor.getPending());
+    }
+
+    /**
+     * Tests that concurrent consumers of a small ring never see torn or reordered samples,
+     * and that every published sample is either received or counted as overrun.
+     */
+    @Test
+    public void testConcurrentConsumers() throws InterruptedException {
+        SampleRing ring = new SampleRing(64);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> consumers = new ArrayList<>();
+        long[] received = new long[3];
+        long[] overruns = new long[3];
+
+        for (int c = 0; c < received.length; c++) {
+            int index = c;
+            SampleRing.Cursor cursor = ring.newCursor();
+            Thread consumer = new Thread(() -> {
+                long[] previous = {-1};
+                SensorAPI.SampleConsumer check = (x, y, z, t) -> {
+                    if (t <= previous[0] || x != (float) (t % 1000) || y != -x || z != (float) (t % 7)) {
+                        failure.compareAndSet(null, "Inconsistent sample " + t + ": " + x + ", " + y + ", " + z);
+                    }
+                    previous[0] = t;
+                    received[index]++;
+                };
+                while (!done.get() || cursor.getPending() > 0) {
+                    if (cursor.drain(check, 1 + index * 16) == 0) Thread.yield();
+                }
+                overruns[index] = cursor.getOverruns();
+            });
+            consumers.add(consumer);
+            consumer.start();
+        }
+
+        for (long t = 0; t < STRESS_SAMPLES; t++) {
+            float x = t % 1000;
+            ring.publish(x, -x, t % 7, t);
+        }
+        done.set(true);
+        for (Thread consumer : consumers) consumer.join();
+
+        assertEquals(null, failure.get());
+        for (int c = 0; c < received.length; c++) {
+            assertEquals(STRESS_SAMPLES, received[c] + overruns[c]);
+            assertTrue(received[c] > 0);
+        }
+    }
+
+}
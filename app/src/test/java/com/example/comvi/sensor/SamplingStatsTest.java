@@ -0,0 +1,50 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test class for the {@link SamplingStats} class, verifying the event rate and CPU load per mode.
+ *
+ * @author gxstxxv
+ */
+public class SamplingStatsTest {
+
+    private final long[] now = {0};
+    private final SamplingStats samplingStats = new SamplingStats(() -> now[0]);
+
+    /**
+     * Tests that events and active time are attributed to the mode active at the time.
+     */
+    @Test
+    public void testRatesPerMode() {
+        samplingStats.enter(SamplingMode.ARMED);
+        for (int i = 0; i < 400; i++) samplingStats.record(250_000);
+        now[0] = 2_000_000_000L;
+
+        samplingStats.enter(SamplingMode.IDLE);
+        for (int i = 0; i < 60; i++) samplingStats.record(250_000);
+        now[0] = 3_000_000_000L;
+
+        samplingStats.enter(SamplingMode.BACKGROUND);
+        now[0] = 10_000_000_000L;
+
+        assertEquals(200.0, samplingStats.getEventsPerSecond(SamplingMode.ARMED), 1e-9);
+        assertEquals(0.05, samplingStats.getCpuLoad(SamplingMode.ARMED), 1e-9);
+        assertEquals(60.0, samplingStats.getEventsPerSecond(SamplingMode.IDLE), 1e-9);
+        assertEquals(0.015, samplingStats.getCpuLoad(SamplingMode.IDLE), 1e-9);
+        assertEquals(7_000_000_000L, samplingStats.getActiveNanos(SamplingMode.BACKGROUND));
+        assertEquals(0.0, samplingStats.getEventsPerSecond(SamplingMode.BACKGROUND), 0.0);
+    }
+
+    /**
+     * Tests that a mode that was never entered reports no load.
+     */
+    @Test
+    public void testUnusedModeReportsZero() {
+        assertEquals(0.0, samplingStats.getEventsPerSecond(SamplingMode.ARMED), 0.0);
+        assertEquals(0.0, samplingStats.getCpuLoad(SamplingMode.ARMED), 0.0);
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the {@link SensorBatch} class, verifying that batched samples are
+ * replayed in timestamp order.
+ *
+ * @author gxstxxv
+ */
+public class SensorBatchTest {
+
+    private final List<Long> timestamps = new ArrayList<>();
+    private final List<float[]> samples = new ArrayList<>();
+    private final SensorAPI.SensorEventCallback recorder = (sensor, values, accuracy, timestamp) -> {
+        timestamps.add(timestamp);
+        samples.add(values.clone());
+    };
+
+    /**
+     * Tests that out-of-order samples are replayed sorted by timestamp, together with their values.
+     */
+    @Test
+    public void testReplaysInTimestampOrder() {
+        SensorBatch batch = new SensorBatch(4);
+        batch.add(new float[]{3f, 3f, 3f}, 3, 30L);
+        batch.add(new float[]{1f, 1f, 1f}, 3, 10L);
+        batch.add(new float[]{4f, 4f, 4f}, 3, 40L);
+        batch.add(new float[]{2f, 2f, 2f}, 3, 20L);
+
+        batch.replay(null, recorder);
+
+        assertEquals(List.of(10L, 20L, 30L, 40L), timestamps);
+        for (int i = 0; i < 4; i++) {
+            assertArrayEquals(new float[]{i + 1, i + 1, i + 1}, samples.get(i), 0f);
+        }
+        assertEquals(0, batch.size());
+    }
+
+    /**
+     * Tests that a batch larger than the initial capacity is kept completely.
+     */
+    @Test
+    public void testGrowsBeyondCapacity() {
+        SensorBatch batch = new SensorBatch(2);
+        for (int i = 9; i >= 0; i--) batch.add(new float[]{i, 0f, 0f}, 3, i);
+
+        batch.replay(null, recorder);
+
+        assertEquals(10, timestamps.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, (long) timestamps.get(i));
+            assertEquals(i, samples.get(i)[0], 0f);
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.os.Handler;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test class for the {@link SensorDispatcher} class, verifying decimation, delivery through
+ * handlers and backpressure of slow subscribers.
+ *
+ * @author gxstxxv
+ */
+public class SensorDispatcherTest {
+
+    private final List<Runnable> posted = new ArrayList<>();
+    private Handler handler;
+    private SensorDispatcher dispatcher;
+
+    /**
+     * Creates a dispatcher and a handler that collects posted runnables before each test.
+     */
+    @Before
+    public void setup() {
+        handler = mock(Handler.class);
+        when(handler.post(any(Runnable.class))).thenAnswer(invocation -> posted.add(invocation.getArgument(0)));
+        dispatcher = new SensorDispatcher(new SampleRing(16));
+    }
+
+    /**
+     * Tests that subscribers on the sensor thread receive every n-th sample immediately.
+     */
+    @Test
+    public void testDecimationOnSensorThread() {
+        List<Long> all = new ArrayList<>();
+        List<Long> everyThird = new ArrayList<>();
+        dispatcher.subscribe((x, y, z, t) -> all.add(t), 1, null);
+        dispatcher.subscribe((x, y, z, t) -> everyThird.add(t), 3, null);
+
+        for (long t = 1; t <= 9; t++) publish(t);
+
+        assertEquals(9, all.size());
+        assertEquals(List.of(3L, 6L, 9L), everyThird);
+    }
+
+    /**
+     * Tests that a subscriber with a handler gets a single queued drain for a burst of samples.
+     */
+    @Test
+    public void testHandlerSubscriberDrainsInBatches() {
+        List<Long> received = new ArrayList<>();
+        SensorDispatcher.Subscription subscription = dispatcher.subscribe((x, y, z, t) -> received.add(t), 1, handler);
+
+        for (long t = 1; t <= 5; t++) publish(t);
+        assertEquals(1, posted.size());
+        assertEquals(0, received.size());
+
+        posted.remove(0).run();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), received);
+        assertEquals(5, subscription.getDelivered());
+        assertEquals(0, posted.size());
+    }
+
+    /**
+     * Tests that a subscriber that does not keep up loses its oldest samples without
+     * affecting a subscriber on the sensor thread.
+     */
+    @Test
+    public void testSlowSubscriberOverruns() {
+        List<Long> fast = new ArrayList<>();
+        List<Long> slow = new ArrayList<>();
+        dispatcher.subscribe((x, y, z, t) -> fast.add(t), 1, null);
+        SensorDispatcher.Subscription subscription = dispatcher.subscribe((x, y, z, t) -> slow.add(t), 1, handler);
+
+        for (long t = 1; t <= 20; t++) publish(t);
+        posted.remove(0).run();
+
+        assertEquals(20, fast.size());
+        assertEquals(16, slow.size());
+        assertEquals(5L, (long) slow.get(0));
+        assertEquals(4, subscription.getOverruns());
+    }
+
+    /**
+     * Tests that unsubscribed consumers receive no further samples, even if a drain was queued.
+     */
+    @Test
+    public void testUnsubscribe() {
+        List<Long> received = new ArrayList<>();
+        SensorDispatcher.Subscription inline = dispatcher.subscribe((x, y, z, t) -> received.add(t), 1, null);
+        SensorDispatcher.Subscription queued = dispatcher.subscribe((x, y, z, t) -> received.add(t), 1, handler);
+
+        publish(1);
+        dispatcher.unsubscribe(inline);
+        dispatcher.unsubscribe(queued);
+        publish(2);
+        for (Runnable runnable : posted) runnable.run();
+
+        assertEquals(List.of(1L), received);
+    }
+
+    private void publish(long timestamp) {
+        dispatcher.onSensorChanged(null, new float[]{timestamp, 0f, 0f}, 3, timestamp);
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.example.comvi.sensor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the synthetic traces of the corpus in {@code src/test/resources/traces}.
+ * Every trace is noise around a device lying flat, drawn from a fixed seed, so the
+ * generator reproduces the committed files byte for byte. Run {@link #main} with the
+ * traces directory to rewrite them after changing a trace below.
+ * <ul>
+ *     <li>{@code rest.cvtr}, {@code tilt.cvtr} and {@code drops.cvtr} run at about 200 Hz;
+ *     the drops of {@code drops.cvtr} are one sample of rise and one sample of fall.</li>
+ *     <li>{@code drops-50hz.cvtr}, {@code drops-200hz.cvtr} and {@code drops-400hz.cvtr}
+ *     run for 20 s at their rate; each drop is a 30 ms rise followed by a 30 ms fall.</li>
+ *     <li>{@code pickups-idle.cvtr} and {@code shakes-idle.cvtr} run for 20 s at about
+ *     50 Hz, the rate of {@link SamplingMode#IDLE} in which pickups and shakes are enabled.</li>
+ * </ul>
+ *
+ * @author gxstxxv
+ */
+final class SyntheticTraces {
+
+    /**
+     * The file names of all generated traces.
+     */
+    static final List<String> NAMES = List.of("rest.cvtr", "drops.cvtr", "tilt.cvtr",
+            "drops-200hz.cvtr", "drops-50hz.cvtr", "drops-400hz.cvtr",
+            "pickups-idle.cvtr", "shakes-idle.cvtr");
+
+    private static final long START_NANOS = 1_000_000_000L;
+    private static final long DURATION_NANOS = 20_000_000_000L;
+    private static final long PHASE_NANOS = 30_000_000L;
+    private static final long IDLE_PERIOD_NANOS = 20_000_000L;
+    private static final long LIFT_NANOS = 350_000_000L;
+    private static final long SETTLE_NANOS = 250_000_000L;
+    private static final long SHAKE_NANOS = 700_000_000L;
+
+    private SyntheticTraces() {
+    }
+
+    /**
+     * Writes all traces into the given directory.
+     *
+     * @param args the traces directory
+     * @throws IOException if a trace cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: SyntheticTraces <traces directory>");
+            return;
+        }
+        for (String name : NAMES) {
+            try (OutputStream out = new FileOutputStream(new File(args[0], name))) {
+                write(name, out);
+            }
+        }
+    }
+
+    /**
+     * Writes the trace with the given file name.
+     *
+     * @param name the file name, one of {@link #NAMES}
+     * @param out  the stream the trace is written to
+     * @throws IOException if the trace cannot be written
+     */
+    static void write(String name, OutputStream out) throws IOException {
+        switch (name) {
+            case "rest.cvtr":
+                writeSamples(out, 2000, new int[0], false, 1);
+                break;
+            case "drops.cvtr":
+                writeSamples(out, 4000, new int[]{800, 1900, 3300}, false, 2);
+                break;
+            case "tilt.cvtr":
+                writeSamples(out, 3000, new int[0], true, 3);
+                break;
+            case "drops-200hz.cvtr":
+                writeTimed(out, 5_000_000L, new long[]{4, 9, 16}, 2);
+                break;
+            case "drops-50hz.cvtr":
+                writeTimed(out, 20_000_000L, new long[]{3, 8, 14}, 4);
+                break;
+            case "drops-400hz.cvtr":
+                writeTimed(out, 2_500_000L, new long[]{5, 11, 17}, 5);
+                break;
+            case "pickups-idle.cvtr":
+                writeIdle(out, new long[]{4, 10, 16}, false, 6);
+                break;
+            case "shakes-idle.cvtr":
+                writeIdle(out, new long[]{4, 10, 16}, true, 7);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown trace " + name);
+        }
+    }
+
+    /**
+     * Writes samples about 5 ms apart, with drops placed at sample indices.
+     */
+    private static void writeSamples(OutputStream out, int samples, int[] drops, boolean tilt, long seed) throws IOException {
+        Random random = new Random(seed);
+        float[] raw = new float[3];
+        float[] calibrated = new float[3];
+        float[] offset = null;
+        long t = START_NANOS;
+        TraceRecorder recorder = new TraceRecorder(out);
+        for (int i = 0; i < samples; i++) {
+            raw[0] = (float) (random.nextGaussian() * 0.15 + (tilt ? 6 * Math.sin(i / 400.0) : 0));
+            raw[1] = (float) (random.nextGaussian() * 0.15 + (tilt ? 4 * Math.cos(i / 300.0) : 0));
+            raw[2] = (float) (9.81 + random.nextGaussian() * 0.2);
+            for (int drop : drops) {
+                if (i == drop) rise(raw);
+                if (i == drop + 1) fall(raw);
+            }
+            if (offset == null) offset = raw.clone();
+            for (int axis = 0; axis < 3; axis++) calibrated[axis] = raw[axis] - offset[axis];
+            recorder.record(raw, calibrated, t);
+            t += 5_000_000L + random.nextInt(200_000);
+        }
+        recorder.close();
+    }
+
+    /**
+     * Writes 20 s of samples at the given period with up to 4 % jitter, with drops starting
+     * at the given seconds.
+     */
+    private static void writeTimed(OutputStream out, long period, long[] dropSeconds, long seed) throws IOException {
+        Random random = new Random(seed);
+        float[] raw = new float[3];
+        float[] calibrated = new float[3];
+        float[] offset = null;
+        TraceRecorder recorder = new TraceRecorder(out);
+        for (long t = START_NANOS; t < START_NANOS + DURATION_NANOS; t += period + random.nextInt((int) (period / 25))) {
+            raw[0] = (float) (random.nextGaussian() * 0.15);
+            raw[1] = (float) (random.nextGaussian() * 0.15);
+            raw[2] = (float) (9.81 + random.nextGaussian() * 0.2);
+            for (long second : dropSeconds) {
+                long since = t - START_NANOS - second * 1_000_000_000L;
+                if (since >= 0 && since < PHASE_NANOS) rise(raw);
+                else if (since >= PHASE_NANOS && since < 2 * PHASE_NANOS) fall(raw);
+            }
+            if (offset == null) offset = raw.clone();
+            for (int axis = 0; axis < 3; axis++) calibrated[axis] = raw[axis] - offset[axis];
+            recorder.record(raw, calibrated, t);
+        }
+        recorder.close();
+    }
+
+    /**
+     * Writes 20 s of samples at the idle period with up to 4 % jitter, with pickups or
+     * shakes starting at the given seconds. The device is lifted for 350 ms and then stopped,
+     * or shaken along the X-axis for 700 ms at 3, 4 and 5 Hz in turn.
+     */
+    private static void writeIdle(OutputStream out, long[] gestureSeconds, boolean shake, long seed) throws IOException {
+        Random random = new Random(seed);
+        float[] raw = new float[3];
+        float[] calibrated = new float[3];
+        float[] offset = null;
+        TraceRecorder recorder = new TraceRecorder(out);
+        for (long t = START_NANOS; t < START_NANOS + DURATION_NANOS; t += IDLE_PERIOD_NANOS + random.nextInt((int) (IDLE_PERIOD_NANOS / 25))) {
+            raw[0] = (float) (random.nextGaussian() * 0.15);
+            raw[1] = (float) (random.nextGaussian() * 0.15);
+            raw[2] = (float) (9.81 + random.nextGaussian() * 0.2);
+            for (int i = 0; i < gestureSeconds.length; i++) {
+                long since = t - START_NANOS - gestureSeconds[i] * 1_000_000_000L;
+                if (since < 0) continue;
+                if (shake && since < SHAKE_NANOS) {
+                    raw[0] += (float) (18 * Math.sin(2 * Math.PI * (3 + i) * since / 1e9));
+                } else if (!shake && since < LIFT_NANOS) {
+                    raw[2] += 4f;
+                } else if (!shake && since < LIFT_NANOS + SETTLE_NANOS) {
+                    raw[2] -= 3f;
+                }
+            }
+            if (offset == null) offset = raw.clone();
+            for (int axis = 0; axis < 3; axis++) calibrated[axis] = raw[axis] - offset[axis];
+            recorder.record(raw, calibrated, t);
+        }
+        recorder.close();
+    }
+
+    /**
+     * The device is tipped forward and pushed up.
+     */
+    private static void rise(float[] raw) {
+        raw[1] = -8.5f;
+        raw[2] = 9.81f + 19f;
+    }
+
+    /**
+     * The device falls.
+     */
+    private static void fall(float[] raw) {
+        raw[1] = -4f;
+        raw[2] = 9.81f - 16f;
+    }
+}
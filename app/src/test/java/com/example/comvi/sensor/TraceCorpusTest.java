@@ -0,0 +1,151 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import com.example.comvi.core.GestureDetector;
+import com.example.comvi.core.GestureSpec;
+import com.example.comvi.core.MotionType;
+import com.example.comvi.ui.BallPositionFilter;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replays the trace corpus in {@code src/test/resources/traces} through the resampler,
+ * the gravity filter, the gesture detection and the ball math, asserting the expected
+ * number of drops, pickups and shakes per trace and reporting detections, samples seen by the detector,
+ * processing latency per sample and samples per second. The corpus holds drops recorded
+ * at different rates, which must all be detected alike, and pickups and shakes at the
+ * rate of {@link SamplingMode#IDLE}, in which the app detects them. Gestures are declared by the
+ * specs bundled with the app.
+ * To add a recording from the field, copy the trace next to the others and list it
+ * with its expected number of drops, pickups and shakes in {@code corpus.txt}.
+ * The synthetic traces are written by {@link SyntheticTraces}.
+ *
+ * @author gxstxxv
+ */
+public class TraceCorpusTest {
+
+    private static final String CORPUS = "/traces/corpus.txt";
+    private static final String GESTURES = "src/main/assets/gestures.json";
+
+    /**
+     * Replays every trace of the corpus and checks its detections.
+     */
+    @Test
+    public void testReplayCorpus() throws IOException {
+        List<String[]> entries = readCorpus();
+        assertFalse("Corpus is empty", entries.isEmpty());
+        List<GestureSpec> specs;
+        try (Reader reader = new InputStreamReader(new FileInputStream(GESTURES), StandardCharsets.UTF_8)) {
+            specs = GestureSpec.parse(reader);
+        }
+
+        for (String[] entry : entries) {
+            SensorTrace trace;
+            try (InputStream in = TraceCorpusTest.class.getResourceAsStream("/traces/" + entry[0])) {
+                assertNotNull("Missing trace " + entry[0], in);
+                trace = SensorTrace.read(in);
+            }
+            Replay replay = new Replay(specs);
+            long start = System.nanoTime();
+            trace.replay(replay);
+            long nanos = System.nanoTime() - start;
+
+            System.out.printf("%-16s %,7d samples, %,7d resampled, %d drops at %s, %d pickups, %d shakes, %.0f ns/sample, %.1f M samples/s%n",
+                    entry[0], trace.size(), replay.resampler.getOutputCount(), replay.detections.size(), replay.detections,
+                    replay.pickups, replay.shakes, (double) nanos / trace.size(), trace.size() * 1e3 / nanos);
+            assertEquals("Drops in " + entry[0], Integer.parseInt(entry[1]), replay.detections.size());
+            assertEquals("Pickups in " + entry[0], Integer.parseInt(entry[2]), replay.pickups);
+            assertEquals("Shakes in " + entry[0], Integer.parseInt(entry[3]), replay.shakes);
+        }
+    }
+
+    /**
+     * Tests that the synthetic traces of the corpus are exactly what their generator writes.
+     */
+    @Test
+    public void testSyntheticTracesMatchGenerator() throws IOException {
+        for (String name : SyntheticTraces.NAMES) {
+            ByteArrayOutputStream generated = new ByteArrayOutputStream();
+            SyntheticTraces.write(name, generated);
+            try (InputStream in = TraceCorpusTest.class.getResourceAsStream("/traces/" + name)) {
+                assertNotNull("Missing trace " + name, in);
+                assertArrayEquals("Trace " + name, in.readAllBytes(), generated.toByteArray());
+            }
+        }
+    }
+
+    private static List<String[]> readCorpus() throws IOException {
+        List<String[]> entries = new ArrayList<>();
+        try (InputStream in = TraceCorpusTest.class.getResourceAsStream(CORPUS)) {
+            assertNotNull("Missing " + CORPUS, in);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) entries.add(line.split("\\s+"));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Feeds samples to the ball filter, and through the resampler and the gravity filter
+     * to the gesture detector, as the app does on the sensor thread.
+     */
+    private static final class Replay implements SensorAPI.SampleConsumer {
+
+        private final Resampler resampler = new Resampler(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS, this::onResampledSample);
+        private final GestureDetector gestureDetector;
+        private final GravityFilter gravityFilter = new GravityFilter();
+        private final float[] linearAcceleration = new float[3];
+        private final BallPositionFilter ballPositionFilter = new BallPositionFilter();
+        private final List<Long> detections = new ArrayList<>();
+        private int pickups;
+        private int shakes;
+        private long firstTimestamp = -1;
+
+        Replay(List<GestureSpec> specs) {
+            gestureDetector = new GestureDetector(GestureDetector.DEFAULT_SAMPLE_PERIOD_NANOS,
+                    GestureDetector.DEFAULT_REFRACTORY_MILLIS, specs);
+            ballPositionFilter.setBounds(540, 960, 540, 50);
+        }
+
+        @Override
+        public void onSample(float x, float y, float z, long timestampNanos) {
+            if (firstTimestamp < 0) firstTimestamp = timestampNanos;
+            ballPositionFilter.update(x, y);
+            resampler.onSample(x, y, z, timestampNanos);
+        }
+
+        private void onResampledSample(float x, float y, float z, long timestampNanos) {
+            linearAcceleration[0] = x;
+            linearAcceleration[1] = y;
+            linearAcceleration[2] = z;
+            gravityFilter.apply(linearAcceleration, timestampNanos);
+            MotionType detected = gestureDetector.detectMotion(linearAcceleration);
+            if (detected == MotionType.DROP) {
+                detections.add((timestampNanos - firstTimestamp) / 1_000_000);
+            } else if (detected == MotionType.PICKUP) {
+                pickups++;
+            } else if (detected == MotionType.SHAKE) {
+                shakes++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.example.comvi.sensor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import android.content.Context;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Test class for the {@link TraceRecorder} and {@link SensorTrace} classes, verifying that
+ * traces recorded by the {@link AccelerometerHandler} are read back faithfully.
+ *
+ * @author gxstxxv
+ */
+public class TraceRecorderTest {
+
+    private static final float FIXED_POINT_ERROR = 1 / 512f;
+
+    /**
+     * Tests that raw values, calibrated values and timestamps survive a round trip.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AccelerometerHandler accelerometerHandler = new AccelerometerHandler(mock(Context.class), new SamplingStats(() -> 0));
+        accelerometerHandler.setListener((sensor, values, accuracy, timestamp) -> {
+        });
+        TraceRecorder recorder = new TraceRecorder(out);
+        accelerometerHandler.setTraceRecorder(recorder);
+
+        accelerometerHandler.deliver(null, new float[]{0.5f, -0.25f, 9.81f}, 3, 1_000_000_000L);
+        accelerometerHandler.deliver(null, new float[]{1.5f, -8.5f, 28.81f}, 3, 1_005_000_000L);
+        accelerometerHandler.deliver(null, new float[]{-70f, 70f, -6.19f}, 3, 1_004_000_000L);
+        recorder.close();
+
+        SensorTrace trace = SensorTrace.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(3, trace.size());
+        assertEquals(1_000_000_000L, trace.getTimestamp(0));
+        assertEquals(1_005_000_000L, trace.getTimestamp(1));
+        assertEquals(1_004_000_000L, trace.getTimestamp(2));
+        assertEquals(28.81f, trace.getRaw(1, 2), FIXED_POINT_ERROR);
+        assertEquals(-8.25f, trace.getCalibrated(1, 1), FIXED_POINT_ERROR);
+        assertEquals(19f, trace.getCalibrated(1, 2), FIXED_POINT_ERROR);
+        assertEquals(-70.5f, trace.getCalibrated(2, 0), FIXED_POINT_ERROR);
+        assertEquals(0f, trace.getCalibrated(0, 2), FIXED_POINT_ERROR);
+    }
+
+    /**
+     * Tests that a sample cut off at the end of the trace is ignored.
+     */
+    @Test
+    public void testIgnoresTruncatedSample() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TraceRecorder recorder = new TraceRecorder(out)) {
+            recorder.record(new float[3], new float[3], 5_000_000L);
+            recorder.record(new float[3], new float[3], 10_000_000L);
+        }
+        byte[] bytes = out.toByteArray();
+
+        SensorTrace trace = SensorTrace.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)));
+
+        assertEquals(1, trace.size());
+    }
+
+    /**
+     * Tests that data without the trace header is rejected.
+     */
+    @Test
+    public void testRejectsOtherData() {
+        assertThrows(IOException.class, () -> SensorTrace.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5})));
+    }
+
+}
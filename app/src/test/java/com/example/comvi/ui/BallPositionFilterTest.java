@@ -0,0 +1,66 @@
+package com.example.comvi.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for the {@link BallPositionFilter} class.
+ *
+ * @author gxstxxv
+ */
+public class BallPositionFilterTest {
+
+    private final BallPositionFilter ballPositionFilter = new BallPositionFilter();
+
+    /**
+     * Sets up an area of radius 100 around (200, 300) before each test.
+     */
+    @Before
+    public void setup() {
+        ballPositionFilter.setBounds(200, 300, 100, 10);
+    }
+
+    /**
+     * Tests that the ball stays in the center without acceleration.
+     */
+    @Test
+    public void testStaysCenteredAtRest() {
+        for (int i = 0; i < 100; i++) ballPositionFilter.update(0f, 0f);
+
+        assertEquals(200f, ballPositionFilter.getX(), 0f);
+        assertEquals(300f, ballPositionFilter.getY(), 0f);
+        assertFalse(ballPositionFilter.isAtEdge());
+    }
+
+    /**
+     * Tests that a lasting tilt moves the ball against the X-axis and holds it at the edge.
+     */
+    @Test
+    public void testHeldAtEdge() {
+        for (int i = 0; i < 2000; i++) ballPositionFilter.update(9f, 0f);
+
+        assertTrue(ballPositionFilter.isAtEdge());
+        assertEquals(110f, ballPositionFilter.getX(), 1e-3f);
+        assertEquals(300f, ballPositionFilter.getY(), 1e-3f);
+    }
+
+    /**
+     * Tests that new bounds put the ball back into the center of the new area on the next sample.
+     */
+    @Test
+    public void testNewBoundsRecenterBall() {
+        for (int i = 0; i < 2000; i++) ballPositionFilter.update(9f, 0f);
+
+        ballPositionFilter.setBounds(50, 80, 40, 5);
+        ballPositionFilter.update(0f, 0f);
+
+        assertFalse(ballPositionFilter.isAtEdge());
+        assertEquals(50f, ballPositionFilter.getX(), 0f);
+        assertEquals(80f, ballPositionFilter.getY(), 0f);
+    }
+
+}
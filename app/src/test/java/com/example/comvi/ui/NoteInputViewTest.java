@@ -0,0 +1,70 @@
+package com.example.comvi.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.widget.EditText;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Robolectric test class for the {@link NoteInputView} class, verifying that the armed state
+ * follows the text of a real input field.
+ *
+ * @author gxstxxv
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class NoteInputViewTest {
+
+    private EditText editText;
+    private NoteInputView noteInputView;
+    private final List<Boolean> changes = new ArrayList<>();
+
+    /**
+     * Creates a view around an empty input field before each test.
+     */
+    @Before
+    public void setup() {
+        editText = new EditText(RuntimeEnvironment.getApplication());
+        noteInputView = new NoteInputView(editText);
+        noteInputView.setOnArmedChangeListener(changes::add);
+    }
+
+    /**
+     * Tests that the view starts disarmed for an empty field and armed for a field holding text.
+     */
+    @Test
+    public void testStartsArmedOnlyWithText() {
+        assertFalse(noteInputView.isArmed());
+
+        editText.setText("Note");
+        assertTrue(new NoteInputView(editText).isArmed());
+    }
+
+    /**
+     * Tests that typing arms the view and clearing disarms it, notifying the listener only on changes.
+     */
+    @Test
+    public void testArmedFollowsText() {
+        editText.setText("N");
+        editText.append("o");
+        assertTrue(noteInputView.isArmed());
+        assertEquals("No", noteInputView.getNoteText());
+
+        noteInputView.clearEditText();
+        assertFalse(noteInputView.isArmed());
+
+        assertEquals(List.of(true, false), changes);
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.example.comvi.util;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.IntConsumer;
+
+/**
+ * Assertion on the memory a piece of code allocates on the current thread, measured with
+ * the allocation counter of the HotSpot {@code ThreadMXBean}. Tests using it are skipped on
+ * JVMs without that counter.
+ *
+ * @author gxstxxv
+ */
+public final class AllocationAssert {
+
+    private AllocationAssert() {
+    }
+
+    /**
+     * Runs an iteration a number of times to warm it up, then asserts that running it the
+     * given number of times more allocates less than the given number of bytes.
+     *
+     * @param maxBytes   the exclusive upper bound of the allocated bytes
+     * @param warmUp     the number of iterations run before measuring
+     * @param iterations the number of measured iterations
+     * @param iteration  the code to run, receiving the index of the iteration
+     */
+    public static void assertAllocatesLessThan(long maxBytes, int warmUp, int iterations, IntConsumer iteration) {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < warmUp; i++) iteration.accept(i);
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) iteration.accept(i);
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("Allocated " + allocated + " bytes for " + iterations + " iterations", allocated < maxBytes);
+    }
+}
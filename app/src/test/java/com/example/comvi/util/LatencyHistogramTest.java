@@ -0,0 +1,83 @@
+package com.example.comvi.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Test class for the {@link LatencyHistogram} class, verifying the mean, percentiles and
+ * maximum, and recording from several threads.
+ *
+ * @author gxstxxv
+ */
+public class LatencyHistogramTest {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Tests that percentiles are reported as the upper bound of their power of two bucket,
+     * capped by the maximum.
+     */
+    @Test
+    public void testPercentiles() {
+        for (int i = 0; i < 98; i++) histogram.record(3_000_000);
+        histogram.record(40_000_000);
+        histogram.record(50_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(3_840_000, histogram.getMeanNanos());
+        assertEquals(50_000_000, histogram.getMaxNanos());
+        assertEquals((1L << 22) - 1, histogram.getPercentileNanos(50));
+        assertEquals((1L << 22) - 1, histogram.getPercentileNanos(98));
+        assertEquals(50_000_000, histogram.getPercentileNanos(99));
+        assertEquals(50_000_000, histogram.getPercentileNanos(100));
+    }
+
+    /**
+     * Tests that an empty histogram reports zeros and negative durations count as 0.
+     */
+    @Test
+    public void testEmptyAndNegative() {
+        assertEquals(0, histogram.getPercentileNanos(99));
+        assertEquals(0, histogram.getMeanNanos());
+
+        histogram.record(-5);
+        assertEquals(1, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(0, histogram.getMaxNanos());
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    /**
+     * Tests that a percentile out of range is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsPercentileOutOfRange() {
+        histogram.getPercentileNanos(101);
+    }
+
+    /**
+     * Tests that durations recorded concurrently from several threads are all counted.
+     *
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            long offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) histogram.record(i * 4 + offset);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(200_000, histogram.getCount());
+        assertEquals(199_999, histogram.getMaxNanos());
+        assertEquals(99_999, histogram.getMeanNanos());
+        assertEquals((1L << 17) - 1, histogram.getPercentileNanos(50));
+    }
+}